@@ -0,0 +1,147 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import mulan.classifier.MultiLabelLearner;
+
+/**
+ * Class storing a base classifier built for a subset of labels, together with its predictions over the validation set
+ *  and the projection of the instances over the subset, so an ensemble made of stored base classifiers is assembled without any pass over the data.
+ */
+public class BaseModel
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Multi-label learner built for the subset of labels */
+	protected final MultiLabelLearner learner;
+
+	/**
+	 *  Projection of the instances over the labels of the base classifier */
+	protected final LabelProjection projection;
+
+	/**
+	 *  Predictions over the validation set, or null if they have not been obtained yet */
+	protected volatile BaseModelPredictions predictions;
+
+	/**
+	 *  Time spent to build the base classifier (in milliseconds) */
+	protected long trainingTime;
+
+	/**
+	 *  Estimated size in memory of the base classifier and its predictions (in bytes) */
+	protected long size;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param learner Multi-label learner built for the subset of labels
+	 * @param projection Projection of the instances over the labels of the base classifier
+	 * @param predictions Predictions over the validation set, or null if they are not available
+	 */
+	public BaseModel(MultiLabelLearner learner, LabelProjection projection, BaseModelPredictions predictions)
+	{
+		this.learner = learner;
+		this.projection = projection;
+		this.predictions = predictions;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the multi-label learner
+	 *
+	 * @return Multi-label learner
+	 */
+	public MultiLabelLearner getLearner()
+	{
+		return learner;
+	}
+
+	/**
+	 * Get the projection of the instances over the labels of the base classifier
+	 *
+	 * @return Projection over the active labels
+	 */
+	public LabelProjection getProjection()
+	{
+		return projection;
+	}
+
+	/**
+	 * Get the predictions over the validation set
+	 *
+	 * @return Predictions of the base classifier, or null if they have not been obtained yet
+	 */
+	public BaseModelPredictions getPredictions()
+	{
+		return predictions;
+	}
+
+	/**
+	 * Set the predictions over the validation set
+	 *
+	 * @param predictions Predictions of the base classifier
+	 */
+	public void setPredictions(BaseModelPredictions predictions)
+	{
+		this.predictions = predictions;
+	}
+
+	/**
+	 * Get the time spent to build the base classifier
+	 *
+	 * @return Training time in milliseconds
+	 */
+	public long getTrainingTime()
+	{
+		return trainingTime;
+	}
+
+	/**
+	 * Set the time spent to build the base classifier
+	 *
+	 * @param trainingTime Training time in milliseconds
+	 */
+	public void setTrainingTime(long trainingTime)
+	{
+		this.trainingTime = trainingTime;
+	}
+
+	/**
+	 * Get the estimated size in memory of the base classifier and its predictions
+	 *
+	 * @return Size in bytes
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Set the estimated size in memory of the base classifier and its predictions
+	 *
+	 * @param size Size in bytes
+	 */
+	public void setSize(long size)
+	{
+		this.size = size;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.io.Serializable;
+
+import mulan.classifier.MultiLabelOutput;
+
+/**
+ * Class storing the predictions of a base classifier over all the instances of a dataset.
+ * The outputs are stored by active label, so they can be combined in the ensemble without running again the base classifier.
+ */
+public class BaseModelPredictions implements Serializable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 5263708236458196210L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Indices of the active labels of the base classifier */
+	protected int[] activeLabels;
+
+	/**
+	 *  Confidences of the base classifier for each active label and instance */
+	protected double[][] confidences;
+
+	/**
+	 *  Bipartitions of the base classifier for each active label and instance */
+	protected boolean[][] bipartitions;
+
+	/**
+	 *  Number of instances of the dataset */
+	protected int numInstances;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param activeLabels Indices of the active labels of the base classifier
+	 * @param numInstances Number of instances of the dataset
+	 */
+	public BaseModelPredictions(int[] activeLabels, int numInstances)
+	{
+		this.activeLabels = activeLabels;
+		this.numInstances = numInstances;
+		confidences = new double[activeLabels.length][numInstances];
+		bipartitions = new boolean[activeLabels.length][numInstances];
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the indices of the active labels
+	 *
+	 * @return Indices of the active labels
+	 */
+	public int[] getActiveLabels()
+	{
+		return activeLabels;
+	}
+
+	/**
+	 * Get the confidences for each active label and instance
+	 *
+	 * @return Matrix of confidences
+	 */
+	public double[][] getConfidences()
+	{
+		return confidences;
+	}
+
+	/**
+	 * Get the bipartitions for each active label and instance
+	 *
+	 * @return Matrix of bipartitions
+	 */
+	public boolean[][] getBipartitions()
+	{
+		return bipartitions;
+	}
+
+	/**
+	 * Get the number of instances
+	 *
+	 * @return Number of instances
+	 */
+	public int getNumInstances()
+	{
+		return numInstances;
+	}
+
+	/**
+	 * Estimate the size in memory of the predictions
+	 *
+	 * @return Size in bytes
+	 */
+	public long estimateSize()
+	{
+		//A confidence (8 bytes) and a bipartition (1 byte) for each active label and instance, plus the headers of the arrays
+		return activeLabels.length * (9L * numInstances + 32) + 4L * activeLabels.length + 64;
+	}
+
+	/**
+	 * Store the prediction of the base classifier for a given instance
+	 *
+	 * @param instance Index of the instance in the dataset
+	 * @param mlo Prediction of the base classifier, only including the active labels
+	 */
+	public void setPrediction(int instance, MultiLabelOutput mlo)
+	{
+		setPrediction(instance, mlo.getBipartition(), mlo.getConfidences());
+	}
+
+	/**
+	 * Store the prediction of the base classifier for a given instance
+	 *
+	 * @param instance Index of the instance in the dataset
+	 * @param bipartition Bipartition of the base classifier for its active labels
+	 * @param confidences Confidences of the base classifier for its active labels
+	 */
+	public void setPrediction(int instance, boolean[] bipartition, double[] confidences)
+	{
+		for(int k=0; k<activeLabels.length; k++)
+		{
+			this.confidences[k][instance] = confidences[k];
+			bipartitions[k][instance] = bipartition[k];
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.concurrent.Callable;
+
+import eme.learner.IBaseLearner;
+import eme.learner.J48LabelPowerset;
+import eme.learner.LabelPowersetTree;
+import mulan.classifier.MultiLabelLearner;
+import mulan.data.MultiLabelInstances;
+import weka.core.Instances;
+
+/**
+ * Class implementing the task that builds the base classifier of a subset of labels.
+ * It does not depend on any ensemble, so the base classifiers may be built before the ensembles that use them.
+ */
+public class BaseModelTrainer implements Callable<BaseModel>
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Subset of labels of the base classifier */
+	protected LabelSubset subset;
+
+	/**
+	 *  Dataset to build the base classifier */
+	protected MultiLabelInstances datasetTrain;
+
+	/**
+	 *  Dataset over which the predictions are obtained, or null if they are not needed */
+	protected MultiLabelInstances datasetValidation;
+
+	/**
+	 *  Dataset over which the predictions are obtained, stored in primitive arrays, or null if it is not available */
+	protected DenseDataset denseValidation;
+
+	/**
+	 *  Store on disk of the base classifiers built in any execution, or null if it is not used */
+	protected DiskModelStore diskStore;
+
+	/**
+	 *  Learner of the base classifier */
+	protected IBaseLearner baseLearner;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param subset Subset of labels of the base classifier
+	 * @param datasetTrain Dataset to build the base classifier
+	 * @param datasetValidation Dataset over which the predictions are obtained, or null if they are not needed
+	 */
+	public BaseModelTrainer(LabelSubset subset, MultiLabelInstances datasetTrain, MultiLabelInstances datasetValidation)
+	{
+		this(subset, datasetTrain, datasetValidation, null);
+	}
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param subset Subset of labels of the base classifier
+	 * @param datasetTrain Dataset to build the base classifier
+	 * @param datasetValidation Dataset over which the predictions are obtained, or null if they are not needed
+	 * @param diskStore Store on disk of the base classifiers, or null if it is not used
+	 */
+	public BaseModelTrainer(LabelSubset subset, MultiLabelInstances datasetTrain, MultiLabelInstances datasetValidation, DiskModelStore diskStore)
+	{
+		this(subset, datasetTrain, datasetValidation, diskStore, new J48LabelPowerset());
+	}
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param subset Subset of labels of the base classifier
+	 * @param datasetTrain Dataset to build the base classifier
+	 * @param datasetValidation Dataset over which the predictions are obtained, or null if they are not needed
+	 * @param diskStore Store on disk of the base classifiers, or null if it is not used
+	 * @param baseLearner Learner of the base classifier
+	 */
+	public BaseModelTrainer(LabelSubset subset, MultiLabelInstances datasetTrain, MultiLabelInstances datasetValidation, DiskModelStore diskStore, IBaseLearner baseLearner)
+	{
+		this(subset, datasetTrain, datasetValidation, null, diskStore, baseLearner);
+	}
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param subset Subset of labels of the base classifier
+	 * @param datasetTrain Dataset to build the base classifier
+	 * @param datasetValidation Dataset over which the predictions are obtained, or null if they are not needed
+	 * @param denseValidation Same dataset than datasetValidation, stored in primitive arrays, or null if it is not available
+	 * @param diskStore Store on disk of the base classifiers, or null if it is not used
+	 * @param baseLearner Learner of the base classifier
+	 */
+	public BaseModelTrainer(LabelSubset subset, MultiLabelInstances datasetTrain, MultiLabelInstances datasetValidation, DenseDataset denseValidation, DiskModelStore diskStore, IBaseLearner baseLearner)
+	{
+		this.subset = subset;
+		this.datasetTrain = datasetTrain;
+		this.datasetValidation = datasetValidation;
+		this.denseValidation = denseValidation;
+		this.diskStore = diskStore;
+		this.baseLearner = baseLearner;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Build the base classifier with the labels of the subset, using the base learner (LP with J48 by default).
+	 * If the store on disk is used, the base classifier is loaded from it if possible, and stored in it otherwise.
+	 * If the validation dataset is set, the predictions over it are also obtained.
+	 * The dataset is projected over the labels of the subset without copying the instances, so it can be run in any thread.
+	 *
+	 * @return Base classifier with its predictions
+	 *
+	 * @throws Exception exception
+	 */
+	@Override
+	public BaseModel call() throws Exception
+	{
+		LabelProjection projection = new LabelProjection(subset, datasetTrain.getLabelIndices(), datasetTrain.getDataSet());
+
+		MultiLabelLearner learner = null;
+		if(diskStore != null)
+			learner = diskStore.load(subset);
+
+		if(learner == null)
+		{
+			learner = baseLearner.createLearner(subset);
+			learner.build(projection.project(datasetTrain));
+
+			if(diskStore != null)
+				diskStore.save(subset, learner);
+		}
+
+		BaseModelPredictions predictions = null;
+		if(datasetValidation != null)
+			predictions = predictModel(subset, learner, projection, datasetValidation, denseValidation);
+
+		return new BaseModel(learner, projection, predictions);
+	}
+
+	/**
+	 * Obtain the predictions of a base classifier over all the instances of a dataset
+	 *
+	 * @param subset Subset of labels of the base classifier
+	 * @param learner Base classifier
+	 * @param projection Projection over the active labels of the subset
+	 * @param mlData Multi-label dataset
+	 *
+	 * @return Predictions of the base classifier for its active labels
+	 *
+	 * @throws Exception exception
+	 */
+	public static BaseModelPredictions predictModel(LabelSubset subset, MultiLabelLearner learner, LabelProjection projection, MultiLabelInstances mlData) throws Exception
+	{
+		return predictModel(subset, learner, projection, mlData, null);
+	}
+
+	/**
+	 * Obtain the predictions of a base classifier over all the instances of a dataset.
+	 * The trees of the tree learners of EME are run directly over the columns of the dataset in primitive arrays, if it is given.
+	 * Otherwise, each instance is projected and predicted on its own.
+	 *
+	 * @param subset Subset of labels of the base classifier
+	 * @param learner Base classifier
+	 * @param projection Projection over the active labels of the subset
+	 * @param mlData Multi-label dataset
+	 * @param denseData Same dataset than mlData, stored in primitive arrays, or null if it is not available
+	 *
+	 * @return Predictions of the base classifier for its active labels
+	 *
+	 * @throws Exception exception
+	 */
+	public static BaseModelPredictions predictModel(LabelSubset subset, MultiLabelLearner learner, LabelProjection projection, MultiLabelInstances mlData, DenseDataset denseData) throws Exception
+	{
+		BaseModelPredictions predictions = new BaseModelPredictions(subset.getActiveLabels(), mlData.getNumInstances());
+
+		if(learner instanceof LabelPowersetTree && denseData != null && denseData.isBuiltFrom(mlData.getDataSet()))
+		{
+			((LabelPowersetTree) learner).makePredictions(denseData, predictions);
+			return predictions;
+		}
+
+		Instances data = mlData.getDataSet();
+
+		for(int i=0; i<mlData.getNumInstances(); i++)
+		{
+			predictions.setPrediction(i, learner.makePrediction(projection.project(data.get(i))));
+		}
+
+		return predictions;
+	}
+}
@@ -0,0 +1,352 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import mulan.data.MultiLabelInstances;
+import net.sf.jclec.util.random.IRandGen;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Class storing a multi-label dataset in primitive arrays, built only once for each dataset.
+ *
+ * The features are stored by columns in a single array, so the value of the feature f for the instance i is features[f*numInstances + i].
+ *  Nominal features store the index of their value, and missing values are stored as NaN, as in Weka.
+ * The labels are stored as a bit matrix, with LabelSubset.numWords(numLabels) words for each instance,
+ *  so the label j of the instance i is the bit (j % 64) of the word labels[i*numLabelWords + j/64].
+ */
+public class DenseDataset implements Serializable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -5404963137245412826L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Number of instances */
+	protected int numInstances;
+
+	/**
+	 *  Number of features */
+	protected int numFeatures;
+
+	/**
+	 *  Number of labels */
+	protected int numLabels;
+
+	/**
+	 *  Number of words of the labels of each instance */
+	protected int numLabelWords;
+
+	/**
+	 *  Values of the features, stored by columns */
+	protected double[] features;
+
+	/**
+	 *  Number of values of each feature, or 0 if it is numeric */
+	protected int[] numFeatureValues;
+
+	/**
+	 *  Bit matrix of the labels, stored by instances */
+	protected long[] labels;
+
+	/**
+	 *  Weight of each instance */
+	protected double[] weights;
+
+	/**
+	 *  Instances from which the dataset was built, only kept to identify them */
+	protected transient Instances source;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param mlData Multi-label dataset
+	 */
+	public DenseDataset(MultiLabelInstances mlData)
+	{
+		Instances data = mlData.getDataSet();
+		source = data;
+		int[] featureIndices = mlData.getFeatureIndices();
+		int[] labelIndices = mlData.getLabelIndices();
+
+		numInstances = data.numInstances();
+		numFeatures = featureIndices.length;
+		numLabels = labelIndices.length;
+		numLabelWords = LabelSubset.numWords(numLabels);
+
+		numFeatureValues = new int[numFeatures];
+		for(int f=0; f<numFeatures; f++)
+		{
+			Attribute attribute = data.attribute(featureIndices[f]);
+			if(attribute.isNominal())
+				numFeatureValues[f] = attribute.numValues();
+		}
+
+		//Index of the value meaning that each label is relevant
+		int[] relevantValue = new int[numLabels];
+		for(int j=0; j<numLabels; j++)
+		{
+			relevantValue[j] = data.attribute(labelIndices[j]).indexOfValue("1");
+		}
+
+		features = new double[numFeatures * numInstances];
+		labels = new long[numInstances * numLabelWords];
+		weights = new double[numInstances];
+
+		for(int i=0; i<numInstances; i++)
+		{
+			Instance instance = data.instance(i);
+			for(int f=0; f<numFeatures; f++)
+			{
+				features[f*numInstances + i] = instance.value(featureIndices[f]);
+			}
+			for(int j=0; j<numLabels; j++)
+			{
+				if((int) instance.value(labelIndices[j]) == relevantValue[j])
+					labels[i*numLabelWords + (j >>> 6)] |= 1L << j;
+			}
+			weights[i] = instance.weight();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Indicates if the dataset was built from the given instances.
+	 * They are compared by reference, so a dataset with the same shape but different instances is never taken for this one.
+	 *
+	 * @param data Instances
+	 *
+	 * @return TRUE if the dataset was built from them and FALSE otherwise
+	 */
+	public boolean isBuiltFrom(Instances data)
+	{
+		return source != null && source == data;
+	}
+
+	/**
+	 * Indicates if each instance of a dataset is a projection of the instance with the same index in this dataset
+	 *
+	 * @param data Instances
+	 *
+	 * @return TRUE if all the instances are projections of the instances of this dataset and FALSE otherwise
+	 */
+	public boolean isProjectedBy(Instances data)
+	{
+		if(source == null || data.numInstances() != numInstances)
+			return false;
+
+		for(int i=0; i<numInstances; i++)
+		{
+			Instance instance = data.instance(i);
+			if(!(instance instanceof ProjectedInstance) || ((ProjectedInstance) instance).getSource() != source.instance(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of instances
+	 *
+	 * @return Number of instances
+	 */
+	public int getNumInstances()
+	{
+		return numInstances;
+	}
+
+	/**
+	 * Get the number of features
+	 *
+	 * @return Number of features
+	 */
+	public int getNumFeatures()
+	{
+		return numFeatures;
+	}
+
+	/**
+	 * Get the number of labels
+	 *
+	 * @return Number of labels
+	 */
+	public int getNumLabels()
+	{
+		return numLabels;
+	}
+
+	/**
+	 * Get the number of words of the labels of each instance
+	 *
+	 * @return Number of words
+	 */
+	public int getNumLabelWords()
+	{
+		return numLabelWords;
+	}
+
+	/**
+	 * Get the values of the features, stored by columns. They must not be modified.
+	 *
+	 * @return Values of the features
+	 */
+	public double[] getFeatures()
+	{
+		return features;
+	}
+
+	/**
+	 * Get the value of a feature for an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param feature Index of the feature
+	 *
+	 * @return Value of the feature
+	 */
+	public double getValue(int instance, int feature)
+	{
+		return features[feature*numInstances + instance];
+	}
+
+	/**
+	 * Get the number of values of a feature
+	 *
+	 * @param feature Index of the feature
+	 *
+	 * @return Number of values if the feature is nominal, and 0 if it is numeric
+	 */
+	public int getNumFeatureValues(int feature)
+	{
+		return numFeatureValues[feature];
+	}
+
+	/**
+	 * Get the bit matrix of the labels, stored by instances. It must not be modified.
+	 *
+	 * @return Bit matrix of the labels
+	 */
+	public long[] getLabels()
+	{
+		return labels;
+	}
+
+	/**
+	 * Indicates if a label is relevant for an instance
+	 *
+	 * @param instance Index of the instance
+	 * @param label Index of the label
+	 *
+	 * @return TRUE if the label is relevant and FALSE otherwise
+	 */
+	public boolean getLabel(int instance, int label)
+	{
+		return (labels[instance*numLabelWords + (label >>> 6)] & (1L << label)) != 0;
+	}
+
+	/**
+	 * Get the weight of an instance
+	 *
+	 * @param instance Index of the instance
+	 *
+	 * @return Weight of the instance
+	 */
+	public double getWeight(int instance)
+	{
+		return weights[instance];
+	}
+
+	/**
+	 * Obtain a random order of the instances stratified by their combination of labels, so any prefix of the order is a stratified subsample.
+	 * The instances of each combination are placed at their relative position within the combination, so the combinations are spread along the order.
+	 *
+	 * @param randGen Random numbers generator
+	 *
+	 * @return Indices of the instances in the new order
+	 */
+	public int[] stratifiedOrder(IRandGen randGen)
+	{
+		//Group the instances by combination of labels
+		HashMap<String, ArrayList<Integer>> groups = new HashMap<String, ArrayList<Integer>>();
+		for(int i=0; i<numInstances; i++)
+		{
+			String combination = Arrays.toString(Arrays.copyOfRange(labels, i*numLabelWords, (i+1)*numLabelWords));
+			ArrayList<Integer> group = groups.get(combination);
+			if(group == null)
+			{
+				group = new ArrayList<Integer>();
+				groups.put(combination, group);
+			}
+			group.add(i);
+		}
+
+		//Each instance is placed at its relative position within its group, so the groups are spread along the order
+		final double[] position = new double[numInstances];
+		Iterator<ArrayList<Integer>> it = groups.values().iterator();
+		while(it.hasNext())
+		{
+			ArrayList<Integer> group = it.next();
+
+			//Shuffle of the group in linear time (Fisher-Yates), instead of inserting each instance at a random position
+			for(int k=group.size()-1; k>0; k--)
+			{
+				Collections.swap(group, k, randGen.choose(k + 1));
+			}
+			for(int k=0; k<group.size(); k++)
+			{
+				position[group.get(k)] = (k + randGen.raw()) / group.size();
+			}
+		}
+
+		Integer[] order = new Integer[numInstances];
+		for(int i=0; i<numInstances; i++)
+		{
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(position[a], position[b]);
+			}
+		});
+
+		int[] result = new int[numInstances];
+		for(int i=0; i<numInstances; i++)
+		{
+			result[i] = order[i];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import mulan.classifier.MultiLabelLearner;
+import mulan.data.MultiLabelInstances;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Class storing the built base classifiers on disk, so they can be reused in later executions.
+ *
+ * A base classifier only depends on the training data and its subset of labels, so it is stored in a directory
+ *  named with the SHA-256 hash of the content of the training data, and a file named with the bitmask of the subset.
+ * Each file is written to a temporary file in the same directory and then atomically moved to its final name,
+ *  so several processes can share the same directory and a file is never read before it is complete.
+ */
+public class DiskModelStore
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Version of the stored files of the default base learner */
+	protected static final String FORMAT = "LP-J48-v1";
+
+	/**
+	 *  Version of the stored files, given by the base learner */
+	protected String format;
+
+	/**
+	 *  Directory storing the base classifiers of the training data */
+	protected File directory;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param rootDirectory Root directory of the store, shared by all the datasets
+	 * @param datasetTrain Dataset used to build the base classifiers
+	 */
+	public DiskModelStore(String rootDirectory, MultiLabelInstances datasetTrain)
+	{
+		this(rootDirectory, datasetTrain, FORMAT);
+	}
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param rootDirectory Root directory of the store, shared by all the datasets
+	 * @param datasetTrain Dataset used to build the base classifiers
+	 * @param format Version of the stored files, given by the base learner
+	 */
+	public DiskModelStore(String rootDirectory, MultiLabelInstances datasetTrain, String format)
+	{
+		this.format = format;
+		directory = new File(rootDirectory, hashDataset(datasetTrain, format));
+		directory.mkdirs();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Load the base classifier of a subset of labels
+	 *
+	 * @param subset Subset of labels
+	 *
+	 * @return Base classifier, or null if it is not stored or it could not be read
+	 */
+	public MultiLabelLearner load(LabelSubset subset)
+	{
+		File file = getFile(subset);
+		if(!file.exists())
+			return null;
+
+		ObjectInputStream ois = null;
+		try {
+			ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			return (MultiLabelLearner) ois.readObject();
+		} catch (Exception e) {
+			//A damaged file is ignored, and the base classifier is built again
+			e.printStackTrace();
+			return null;
+		} finally {
+			close(ois);
+		}
+	}
+
+	/**
+	 * Store the base classifier of a subset of labels.
+	 * If it is already stored by another process, it is replaced by an identical one.
+	 *
+	 * @param subset Subset of labels
+	 * @param learner Base classifier
+	 */
+	public void save(LabelSubset subset, MultiLabelLearner learner)
+	{
+		File file = getFile(subset);
+		File tmp = null;
+		ObjectOutputStream oos = null;
+		try {
+			tmp = File.createTempFile(file.getName(), ".tmp", directory);
+			oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			oos.writeObject(learner);
+			oos.close();
+			oos = null;
+
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			close(oos);
+			if(tmp != null && tmp.exists())
+				tmp.delete();
+		}
+	}
+
+	/**
+	 * Get the directory storing the base classifiers of the training data
+	 *
+	 * @return Directory
+	 */
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Get the version of the stored files
+	 *
+	 * @return Name of the format
+	 */
+	public String getFormat()
+	{
+		return format;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the file storing the base classifier of a subset of labels
+	 *
+	 * @param subset Subset of labels
+	 *
+	 * @return File of the base classifier
+	 */
+	protected File getFile(LabelSubset subset)
+	{
+		StringBuilder sb = new StringBuilder();
+		long[] mask = subset.getMask();
+		for(int w=0; w<mask.length; w++)
+		{
+			sb.append(String.format("%016x", mask[w]));
+		}
+		sb.append(".model");
+		return new File(directory, sb.toString());
+	}
+
+	/**
+	 * Calculate the SHA-256 hash of the content of a multi-label dataset, including its header and its labels
+	 *
+	 * @param mlData Multi-label dataset
+	 *
+	 * @return Hexadecimal hash
+	 */
+	public static String hashDataset(MultiLabelInstances mlData)
+	{
+		return hashDataset(mlData, FORMAT);
+	}
+
+	/**
+	 * Calculate the SHA-256 hash of the content of a multi-label dataset, including its header and its labels, for a format of the stored files
+	 *
+	 * @param mlData Multi-label dataset
+	 * @param format Version of the stored files
+	 *
+	 * @return Hexadecimal hash
+	 */
+	public static String hashDataset(MultiLabelInstances mlData, String format)
+	{
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			Instances data = mlData.getDataSet();
+
+			md.update(format.getBytes(StandardCharsets.UTF_8));
+			md.update(new Instances(data, 0).toString().getBytes(StandardCharsets.UTF_8));
+
+			int[] labelIndices = mlData.getLabelIndices();
+			for(int j=0; j<labelIndices.length; j++)
+			{
+				updateLong(md, labelIndices[j]);
+			}
+
+			for(int i=0; i<data.numInstances(); i++)
+			{
+				Instance instance = data.get(i);
+				double[] values = instance.toDoubleArray();
+				for(int a=0; a<values.length; a++)
+				{
+					updateLong(md, Double.doubleToLongBits(values[a]));
+				}
+				updateLong(md, Double.doubleToLongBits(instance.weight()));
+			}
+
+			byte[] digest = md.digest();
+			StringBuilder sb = new StringBuilder();
+			for(int i=0; i<digest.length; i++)
+			{
+				sb.append(String.format("%02x", digest[i]));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Add a long value to a message digest
+	 *
+	 * @param md Message digest
+	 * @param v Value
+	 */
+	private static void updateLong(MessageDigest md, long v)
+	{
+		for(int b=0; b<8; b++)
+		{
+			md.update((byte) (v >>> (8*b)));
+		}
+	}
+
+	/**
+	 * Close a stream, only reporting the errors
+	 *
+	 * @param c Stream to close
+	 */
+	private static void close(Closeable c)
+	{
+		if(c != null)
+		{
+			try {
+				c.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.HashMap;
+
+/**
+ * Class storing, for an evaluated ensemble, the sum of the confidences of its base classifiers and the number of votes of each label over the validation set.
+ * The accumulators of an offspring are obtained from the ones of an evaluated ensemble sharing most of its base classifiers,
+ *  by subtracting the outputs of the removed base classifiers and adding the ones of the new base classifiers.
+ *
+ * The confidences are added as fixed-point numbers, so the subtractions are exact and the accumulators of an ensemble
+ *  do not depend on the ensemble they were derived from.
+ */
+public class EnsembleAccumulator
+{
+	/**
+	 *  Scale of the fixed-point confidences */
+	public static final double SCALE = 4294967296.0;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Subset of labels of each base classifier */
+	protected LabelSubset[] subsets;
+
+	/**
+	 *  Predictions of each base classifier over the validation set */
+	protected BaseModelPredictions[] predictions;
+
+	/**
+	 *  Number of labels */
+	protected int numLabels;
+
+	/**
+	 *  Number of instances */
+	protected int numInstances;
+
+	/**
+	 *  Sum of the fixed-point confidences of each label (row) and instance (column) */
+	protected long[] sums;
+
+	/**
+	 *  Number of base classifiers including each label */
+	protected int[] lengthVotes;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters. The outputs of all the base classifiers are added.
+	 *
+	 * @param subsets Subset of labels of each base classifier
+	 * @param predictions Predictions of each base classifier over the validation set
+	 * @param numLabels Number of labels
+	 * @param numInstances Number of instances of the validation set
+	 */
+	public EnsembleAccumulator(LabelSubset[] subsets, BaseModelPredictions[] predictions, int numLabels, int numInstances)
+	{
+		this.subsets = subsets;
+		this.predictions = predictions;
+		this.numLabels = numLabels;
+		this.numInstances = numInstances;
+
+		sums = new long[numLabels * numInstances];
+		lengthVotes = new int[numLabels];
+		for(int model=0; model<predictions.length; model++)
+		{
+			add(predictions[model], 1);
+		}
+	}
+
+	/**
+	 * Constructor with parameters. The accumulators are copied from other ensemble, and then they are updated.
+	 *
+	 * @param base Accumulators of other ensemble
+	 * @param subsets Subset of labels of each base classifier
+	 * @param predictions Predictions of each base classifier over the validation set
+	 */
+	protected EnsembleAccumulator(EnsembleAccumulator base, LabelSubset[] subsets, BaseModelPredictions[] predictions)
+	{
+		this.subsets = subsets;
+		this.predictions = predictions;
+		this.numLabels = base.numLabels;
+		this.numInstances = base.numInstances;
+
+		sums = base.sums.clone();
+		lengthVotes = base.lengthVotes.clone();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Obtain the accumulators of other ensemble from the ones of this ensemble.
+	 * Only the base classifiers that are not shared by both ensembles are subtracted or added.
+	 * If more than half of the base classifiers of the new ensemble are not shared, all of them are added from scratch.
+	 *
+	 * @param subsets Subset of labels of each base classifier of the new ensemble
+	 * @param predictions Predictions of each base classifier of the new ensemble
+	 *
+	 * @return Accumulators of the new ensemble
+	 */
+	public EnsembleAccumulator derive(LabelSubset[] subsets, BaseModelPredictions[] predictions)
+	{
+		//Number of times each subset of this ensemble has not been matched yet
+		HashMap<LabelSubset, Integer> remaining = new HashMap<LabelSubset, Integer>();
+		for(int model=0; model<this.subsets.length; model++)
+		{
+			Integer count = remaining.get(this.subsets[model]);
+			remaining.put(this.subsets[model], (count == null) ? 1 : count + 1);
+		}
+
+		boolean[] added = new boolean[subsets.length];
+		int numAdded = 0;
+		for(int model=0; model<subsets.length; model++)
+		{
+			Integer count = remaining.get(subsets[model]);
+			if(count != null && count > 0)
+			{
+				remaining.put(subsets[model], count - 1);
+			}
+			else
+			{
+				added[model] = true;
+				numAdded++;
+			}
+		}
+
+		if(2*numAdded > subsets.length)
+			return new EnsembleAccumulator(subsets, predictions, numLabels, numInstances);
+
+		EnsembleAccumulator derived = new EnsembleAccumulator(this, subsets, predictions);
+		for(int model=0; model<this.subsets.length; model++)
+		{
+			Integer count = remaining.get(this.subsets[model]);
+			if(count > 0)
+			{
+				derived.add(this.predictions[model], -1);
+				remaining.put(this.subsets[model], count - 1);
+			}
+		}
+		for(int model=0; model<subsets.length; model++)
+		{
+			if(added[model])
+				derived.add(predictions[model], 1);
+		}
+
+		return derived;
+	}
+
+	/**
+	 * Obtain the bipartitions of the ensemble for all the instances.
+	 * A label is predicted if the average of the confidences of the base classifiers including it is at least the threshold.
+	 *
+	 * @param threshold Prediction threshold
+	 *
+	 * @return Bit matrix of the predicted labels, with the same layout than the labels of a DenseDataset
+	 */
+	public long[] bipartitions(double threshold)
+	{
+		int numLabelWords = (numLabels + 63) >>> 6;
+		long[] bipartitions = new long[numInstances * numLabelWords];
+
+		for(int j=0; j<numLabels; j++)
+		{
+			int offset = j*numInstances;
+			int word = j >>> 6;
+			long bit = 1L << j;
+
+			//The average is compared without dividing each sum
+			double limit = fixedLimit(threshold, lengthVotes[j]);
+			for(int i=0; i<numInstances; i++)
+			{
+				if(sums[offset + i] >= limit)
+					bipartitions[i*numLabelWords + word] |= bit;
+			}
+		}
+
+		return bipartitions;
+	}
+
+	/**
+	 * Convert a confidence to a fixed-point number.
+	 * All the bipartitions of the ensembles are obtained from the sums of these numbers, so the ties with the threshold
+	 *  are resolved in the same way whatever the order of the sums, with or without evaluation by differences.
+	 *
+	 * @param confidence Confidence
+	 *
+	 * @return Fixed-point confidence
+	 */
+	public static long toFixed(double confidence)
+	{
+		return Math.round(confidence * SCALE);
+	}
+
+	/**
+	 * Get the minimum sum of the fixed-point confidences of a label to be predicted
+	 *
+	 * @param threshold Prediction threshold
+	 * @param lengthVotes Number of base classifiers including the label
+	 *
+	 * @return Minimum sum. If no base classifier includes the label, it is predicted only if the threshold is not positive.
+	 */
+	public static double fixedLimit(double threshold, int lengthVotes)
+	{
+		if(lengthVotes == 0)
+			return (threshold > 0) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+		return threshold * lengthVotes * SCALE;
+	}
+
+	/**
+	 * Get the number of base classifiers including each label
+	 *
+	 * @return Number of votes of each label
+	 */
+	public int[] getLengthVotes()
+	{
+		return lengthVotes;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Add or subtract the outputs of a base classifier
+	 *
+	 * @param prediction Predictions of the base classifier
+	 * @param sign 1 to add them and -1 to subtract them
+	 */
+	protected void add(BaseModelPredictions prediction, int sign)
+	{
+		int[] activeLabels = prediction.getActiveLabels();
+		double[][] confidences = prediction.getConfidences();
+		for(int k=0; k<activeLabels.length; k++)
+		{
+			double[] conf = confidences[k];
+			int offset = activeLabels[k]*numInstances;
+			for(int i=0; i<numInstances; i++)
+			{
+				sums[offset + i] += sign * toFixed(conf[i]);
+			}
+			lengthVotes[activeLabels[k]] += sign;
+		}
+	}
+}
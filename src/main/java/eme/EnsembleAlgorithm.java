@@ -12,22 +12,26 @@
 package eme;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
+import java.util.List;
 
 import mulan.data.LabelPowersetStratification;
 import mulan.data.MultiLabelInstances;
 import mulan.data.Statistics;
-import mulan.classifier.MultiLabelLearner;
-import mulan.classifier.transformation.LabelPowerset;
-import weka.classifiers.trees.J48;
+import net.sf.jclec.IConfigure;
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.algorithm.classic.SGE;
+import net.sf.jclec.fitness.IValueFitness;
 import net.sf.jclec.binarray.BinArrayIndividual;
 import net.sf.jclec.selector.BettersSelector;
+import net.sf.jclec.util.random.IRandGen;
+import net.sf.jclec.util.random.RanecuFactory;
 //import net.sf.jclec.selector.WorsesSelector;
 
 import org.apache.commons.configuration.Configuration;
 
+import eme.learner.IBaseLearner;
 import eme.mut.IntraModelMutator;
 import eme.mut.PhiBasedIntraModelMutator;
 import eme.rec.UniformModelCrossover;
@@ -64,6 +68,18 @@ public class EnsembleAlgorithm extends SGE
 	 *  Dataset to test the final ensemble */
 	private MultiLabelInstances datasetTest;
 	
+	/**
+	 *  Dataset to build the ensembles, stored in primitive arrays */
+	private DenseDataset denseTrain;
+	
+	/**
+	 *  Dataset to evaluate the individuals, stored in primitive arrays */
+	private DenseDataset denseValidation;
+	
+	/**
+	 *  Dataset to test the final ensemble, stored in primitive arrays */
+	private DenseDataset denseTest;
+	
 	/**
 	 *  Final ensemble classifier */
 	private EnsembleClassifier classifier;
@@ -85,12 +101,24 @@ public class EnsembleAlgorithm extends SGE
 	private boolean variable;
 	
 	/**
-	 * Table that stores all built base classifiers */
-	private Hashtable<String, MultiLabelLearner> tableClassifiers;
+	 * Store with all built base classifiers */
+	private transient ModelStore modelStore;
 	
 	/**
 	 * Table that stores the fitness of all evaluated individuals */
-	private Hashtable<String, Double> tableFitness;
+	private Hashtable<EnsembleKey, Double> tableFitness;
+	
+	/**
+	 *  Levels of fidelity of the evaluation used in the first generations, in increasing order of generations */
+	private transient List<FidelityLevel> fidelityLevels;
+	
+	/**
+	 *  Level of full fidelity, with the full training set, the configured base learner, and the store and table of the algorithm */
+	private transient FidelityLevel fullFidelity;
+	
+	/**
+	 *  Level of fidelity currently used by the evaluator */
+	private transient FidelityLevel currentFidelity;
 	
 	/**
 	 *  Indicates if a validation set is used to evaluate the individuals
@@ -127,8 +155,8 @@ public class EnsembleAlgorithm extends SGE
 	{
 		super();
 		
-		tableClassifiers = new Hashtable<String, MultiLabelLearner> ();
-		tableFitness = new Hashtable<String, Double> ();
+		modelStore = new ModelStore();
+		tableFitness = new Hashtable<EnsembleKey, Double> ();
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -165,6 +193,36 @@ public class EnsembleAlgorithm extends SGE
 		return datasetTest;
 	}
 	
+	/**
+	 * Get the train dataset stored in primitive arrays
+	 * 
+	 * @return The dataset used for training the models
+	 */
+	public DenseDataset getDenseTrain()
+	{
+		return denseTrain;
+	}
+	
+	/**
+	 * Get the validation dataset stored in primitive arrays
+	 * 
+	 * @return The dataset used for the evaluation of the individuals
+	 */
+	public DenseDataset getDenseValidation()
+	{
+		return denseValidation;
+	}
+	
+	/**
+	 * Get the test dataset stored in primitive arrays
+	 * 
+	 * @return The dataset used for testing the final ensemble
+	 */
+	public DenseDataset getDenseTest()
+	{
+		return denseTest;
+	}
+	
 	/**
 	 * Get the ensemble classifier obtained by EME
 	 * 
@@ -234,7 +292,16 @@ public class EnsembleAlgorithm extends SGE
 	 * @return Size of the table storing the built base classifiers
 	 */
 	public int getTableClassifiersSize() {
-		return tableClassifiers.size();
+		return modelStore.getNumBuilt();
+	}
+	
+	/**
+	 * Get the store with the built base classifiers, including its hit, miss and eviction counters
+	 * 
+	 * @return Store with the base classifiers
+	 */
+	public ModelStore getModelStore() {
+		return modelStore;
 	}
 	
 	/**
@@ -254,7 +321,7 @@ public class EnsembleAlgorithm extends SGE
 	 */
 	private void configureEmeDefaults(Configuration configuration) {
 		//Species
-		configuration.setProperty("species[@type]", "net.sf.jclec.binarray.BinArrayIndividualSpecies");
+		configuration.setProperty("species[@type]", "eme.EnsembleIndividualSpecies");
 		configuration.setProperty("species[@genotype-length]", "1");
 		
 		//Variable
@@ -292,6 +359,24 @@ public class EnsembleAlgorithm extends SGE
 		if(! configuration.containsKey("listener[@type]")) {
 			configuration.addProperty("listener[@type]", "eme.EnsembleListener");
 		}
+
+		//Packed genotype, the species and the operators of EME are replaced by their packed versions
+		if(configuration.getBoolean("packed-genotype", false)) {
+			configuration.setProperty("species[@type]", "eme.PackedEnsembleIndividualSpecies");
+
+			String [] keys = {"provider[@type]", "mutator[@type]", "recombinator[@type]"};
+			List<String> packedTypes = Arrays.asList("eme.EnsembleMLCCreator", "eme.mut.IntraModelMutator", "eme.mut.PhiBasedIntraModelMutator",
+					"eme.rec.UniformModelCrossover", "eme.rec.ModelCrossover", "eme.rec.MultiModelCrossover");
+			for(int i=0; i<keys.length; i++)
+			{
+				String type = configuration.getString(keys[i], null);
+				if(packedTypes.contains(type))
+				{
+					int dot = type.lastIndexOf('.');
+					configuration.setProperty(keys[i], type.substring(0, dot+1) + "Packed" + type.substring(dot+1));
+				}
+			}
+		}
 	}
 	
 	/**
@@ -339,6 +424,14 @@ public class EnsembleAlgorithm extends SGE
 				datasetValidation = datasetTrain;
 			}
 			
+			// Store the datasets in primitive arrays, only once for each of them
+			denseTrain = new DenseDataset(datasetTrain);
+			if(datasetValidation == datasetTrain)
+				denseValidation = denseTrain;
+			else
+				denseValidation = new DenseDataset(datasetValidation);
+			denseTest = new DenseDataset(datasetTest);
+			
 			// Obtain settings
 			int numberLabels = datasetTrain.getNumLabels();
 			variable = configuration.getBoolean("variable");
@@ -351,6 +444,101 @@ public class EnsembleAlgorithm extends SGE
 			
 			useCoverage = configuration.getBoolean("use-coverage");
 			
+			// Threads used to build the base classifiers (by default, one per available processor)
+			modelStore.setNumThreads(configuration.getInt("training-threads", 0));
+			
+			// Memory budget of the stored base classifiers (by default, unbounded)
+			modelStore.setMaxMB(configuration.getDouble("model-cache[@max-mb]", 0));
+			
+			// Learner of the base classifiers (by default, LP with J48)
+			IBaseLearner baseLearner = (IBaseLearner) Class.forName(configuration.getString("base-learner[@type]", "eme.learner.J48LabelPowerset")).newInstance();
+			if(baseLearner instanceof IConfigure) {
+				((IConfigure) baseLearner).configure(configuration.subset("base-learner"));
+			}
+			baseLearner.setDatasetTrain(datasetTrain, denseTrain);
+			modelStore.setBaseLearner(baseLearner);
+			
+			// Directory to save and load the base classifiers across executions (only if provided)
+			if(configuration.containsKey("model-store[@dir]")) {
+				modelStore.setDiskStore(new DiskModelStore(configuration.getString("model-store[@dir]"), datasetTrain, baseLearner.getFormat()));
+			}
+			
+			// Archive to reuse the fitness of the ensembles across executions (only if provided)
+			FitnessArchive fitnessArchive = null;
+			if(configuration.containsKey("fitness-archive[@dir]")) {
+				fitnessArchive = new FitnessArchive(configuration.getString("fitness-archive[@dir]"), datasetTrain, datasetValidation, predictionThreshold, useCoverage, baseLearner.getFormat());
+				int loaded = fitnessArchive.load(tableFitness);
+				System.out.println("Loaded " + loaded + " fitness values from " + fitnessArchive.getFile());
+			}
+			
+			// Build the missing base classifiers of each generation in a single wave (by default, true)
+			boolean trainingWave = configuration.getBoolean("training-wave", true);
+			
+			// Number of evaluated ensembles whose accumulators are kept to evaluate their offspring by differences (by default, 0)
+			int deltaCacheSize = configuration.getInt("delta-evaluation[@cache-size]", 0);
+			
+			// Reject the individuals that can not improve the population only from their genotype (by default, false)
+			boolean preScreen = configuration.getBoolean("pre-screen", false);
+			
+			// Surrogate model of the fitness, so only the most promising individuals are evaluated (only if provided)
+			FitnessSurrogate surrogate = null;
+			if(configuration.containsKey("surrogate[@fraction]")) {
+				surrogate = new FitnessSurrogate(numberLabels, new Statistics().calculatePhi(datasetTrain));
+			}
+			
+			// Racing of the offspring over growing subsamples of the validation set (only if provided)
+			int racingMinInstances = configuration.getInt("racing[@min-instances]", 0);
+			
+			// Levels of fidelity of the first generations, with stratified subsamples of the training set and maybe faster learners (only if provided)
+			fullFidelity = new FidelityLevel(Integer.MAX_VALUE, 1, datasetTrain, modelStore, tableFitness, fitnessArchive);
+			currentFidelity = fullFidelity;
+			fidelityLevels = new ArrayList<FidelityLevel>();
+			int numberLevels = configuration.getList("fidelity.level[@until]").size();
+			
+			// The subsamples have their own generator, so they do not change the random numbers of the evolution
+			RanecuFactory subsampleFactory = new RanecuFactory();
+			subsampleFactory.setSeed(configuration.getInt("rand-gen-factory[@seed]", 1234567890));
+			IRandGen subsampleRandGen = subsampleFactory.createRandGen();
+			
+			for(int i=0; i<numberLevels; i++)
+			{
+				String levelKey = "fidelity.level(" + i + ")";
+				int until = configuration.getInt(levelKey + "[@until]");
+				double fraction = configuration.getDouble(levelKey + "[@fraction]", 1);
+				
+				MultiLabelInstances levelTrain = datasetTrain;
+				DenseDataset levelDenseTrain = denseTrain;
+				if(fraction < 1)
+				{
+					levelTrain = FidelityLevel.subsample(datasetTrain, denseTrain, fraction, subsampleRandGen);
+					levelDenseTrain = new DenseDataset(levelTrain);
+				}
+				
+				// Learner of the level (by default, the same than in full fidelity)
+				IBaseLearner levelLearner = (IBaseLearner) Class.forName(configuration.getString(levelKey + "[@type]", baseLearner.getClass().getName())).newInstance();
+				String learnerKey = configuration.containsKey(levelKey + "[@type]") ? levelKey : "base-learner";
+				if(levelLearner instanceof IConfigure) {
+					((IConfigure) levelLearner).configure(configuration.subset(learnerKey));
+				}
+				levelLearner.setDatasetTrain(levelTrain, levelDenseTrain);
+				
+				ModelStore levelStore = new ModelStore(modelStore.getNumThreads());
+				levelStore.setMaxMB(configuration.getDouble("model-cache[@max-mb]", 0));
+				levelStore.setBaseLearner(levelLearner);
+				if(configuration.containsKey("model-store[@dir]")) {
+					levelStore.setDiskStore(new DiskModelStore(configuration.getString("model-store[@dir]"), levelTrain, levelLearner.getFormat()));
+				}
+				
+				Hashtable<EnsembleKey, Double> levelTable = new Hashtable<EnsembleKey, Double>();
+				FitnessArchive levelArchive = null;
+				if(configuration.containsKey("fitness-archive[@dir]")) {
+					levelArchive = new FitnessArchive(configuration.getString("fitness-archive[@dir]"), levelTrain, datasetValidation, predictionThreshold, useCoverage, levelLearner.getFormat());
+					levelArchive.load(levelTable);
+				}
+				
+				fidelityLevels.add(new FidelityLevel(until, fraction, levelTrain, levelStore, levelTable, levelArchive));
+			}
+			
 			// Set provider settings
 			((EnsembleMLCCreator) provider).setNumberClassifiers(numberClassifiers);
 			((EnsembleMLCCreator) provider).setMaxNumberLabelsClassifier(maxNumberLabelsClassifier);
@@ -360,14 +548,26 @@ public class EnsembleAlgorithm extends SGE
 			// Set evaluator settings			
 			((EnsembleMLCEvaluator) evaluator).setDatasetTrain(datasetTrain);
 			((EnsembleMLCEvaluator) evaluator).setDatasetValidation(datasetValidation);
+			((EnsembleMLCEvaluator) evaluator).setDenseValidation(denseValidation);
 			((EnsembleMLCEvaluator) evaluator).setNumberClassifiers(numberClassifiers);
 			((EnsembleMLCEvaluator) evaluator).setMaxNumberLabelsClassifier(maxNumberLabelsClassifier);
 			((EnsembleMLCEvaluator) evaluator).setPredictionThreshold(predictionThreshold);
 			((EnsembleMLCEvaluator) evaluator).setVariable(variable);
-			((EnsembleMLCEvaluator) evaluator).setTable(tableClassifiers);
+			((EnsembleMLCEvaluator) evaluator).setModelStore(modelStore);
 			((EnsembleMLCEvaluator) evaluator).setTableFitness(tableFitness);
 			((EnsembleMLCEvaluator) evaluator).setRandGenFactory(randGenFactory);
 			((EnsembleMLCEvaluator) evaluator).setUseCoverage(useCoverage);
+			((EnsembleMLCEvaluator) evaluator).setTrainingWave(trainingWave);
+			((EnsembleMLCEvaluator) evaluator).setDeltaCacheSize(deltaCacheSize);
+			((EnsembleMLCEvaluator) evaluator).setPreScreen(preScreen);
+			((EnsembleMLCEvaluator) evaluator).setSurrogate(surrogate);
+			((EnsembleMLCEvaluator) evaluator).setSurrogateFraction(configuration.getDouble("surrogate[@fraction]", 0.5));
+			((EnsembleMLCEvaluator) evaluator).setSurrogateExploration(configuration.getDouble("surrogate[@exploration]", 0.1));
+			((EnsembleMLCEvaluator) evaluator).setSurrogateMinSamples(configuration.getInt("surrogate[@min-samples]", 50));
+			((EnsembleMLCEvaluator) evaluator).setRacingMinInstances(racingMinInstances);
+			((EnsembleMLCEvaluator) evaluator).setRacingEta(configuration.getInt("racing[@eta]", 2));
+			((EnsembleMLCEvaluator) evaluator).setRacingConfidence(configuration.getDouble("racing[@confidence]", 0.95));
+			((EnsembleMLCEvaluator) evaluator).setFitnessArchive(fitnessArchive);
 
 			// Set genetic operator settings
 			((IntraModelMutator) mutator.getDecorated()).setNumberLabels(numberLabels);
@@ -397,6 +597,35 @@ public class EnsembleAlgorithm extends SGE
 	// -------------------------------------------- Protected methods
 	/////////////////////////////////////////////////////////////////
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void doInit()
+	{
+		updateFidelity(0);
+		
+		super.doInit();
+		
+		updateScreenFitness();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Before keeping the best individual, the best offspring are evaluated over the full validation set until the best one has its true fitness,
+	 *  so an individual with a partial or predicted fitness never replaces the elite.
+	 * The offspring rejected by the screening are replaced by their parents, so they are never selected as parents nor used as screening fitness.
+	 */
+	@Override
+	protected void doUpdate()
+	{
+		replaceScreened(cset);
+		evaluateBestFully(cset);
+		
+		super.doUpdate();
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -409,16 +638,41 @@ public class EnsembleAlgorithm extends SGE
 		//Order the individual by fitness
 		BettersSelector bselector = new BettersSelector(this);
 //		WorsesSelector wselector = new WorsesSelector(this);
+		
+		//Fidelity of the next generation, or the full one to obtain the final ensemble
+		if(generation >= maxOfGenerations)
+			updateFidelity(Integer.MAX_VALUE);
+		else
+			updateFidelity(generation + 1);
+		
+		evaluateBestFully(bset);
 		bset = bselector.select(bset);	
 		
+		updateScreenFitness();
+		
+		//Budget of real evaluations and error of the surrogate model in this generation
+		EnsembleMLCEvaluator mlcEvaluator = (EnsembleMLCEvaluator) evaluator;
+		if(mlcEvaluator.getSurrogate() != null)
+		{
+			System.out.println("Evaluated fully: " + mlcEvaluator.getNumRealEvaluations() + "; surrogate: " + mlcEvaluator.getNumSurrogateEvaluations() + "; surrogate MAE: " + mlcEvaluator.getSurrogateError());
+		}
+		if(mlcEvaluator.getRacingMinInstances() > 0)
+		{
+			System.out.println("Stopped by racing: " + mlcEvaluator.getNumRacingStopped());
+		}
+		
 		// If maximum number of generations is exceeded, evolution is finished
 		if (generation >= maxOfGenerations)
 		{
 			/* Build the best individual */
 			IIndividual bestInd = bselector.select(bset, 1).get(0);
-			byte[] genotype = ((BinArrayIndividual) bestInd).getGenotype();
+			byte[] genotype;
+			if(bestInd instanceof IEnsembleIndividual)
+				genotype = ((IEnsembleIndividual) bestInd).toByteGenotype(datasetTrain.getNumLabels());
+			else
+				genotype = ((BinArrayIndividual) bestInd).getGenotype();
 
-			classifier = new EnsembleClassifier(maxNumberLabelsClassifier, numberClassifiers, predictionThreshold, variable, new LabelPowerset(new J48()), genotype, tableClassifiers, randGenFactory.createRandGen());			
+			classifier = new EnsembleClassifier(maxNumberLabelsClassifier, numberClassifiers, predictionThreshold, variable, modelStore.getBaseLearner().createLearner(null), genotype, modelStore, randGenFactory.createRandGen());			
 			//Indicate that it is the final individual, to export some measures
 			((EnsembleMLCEvaluator) evaluator).finalInd = true;
 			
@@ -455,8 +709,126 @@ public class EnsembleAlgorithm extends SGE
 				e.printStackTrace();
 			}
 			
+			modelStore.shutdown();
+			
 			state = FINISHED;
 		}
 	}
-
-}
\ No newline at end of file
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Evaluate over the full validation set the best individuals of a set, until the best one has not a partial or predicted fitness
+	 * 
+	 * @param inds Set of individuals
+	 */
+	private void evaluateBestFully(List<IIndividual> inds)
+	{
+		while(true)
+		{
+			IIndividual best = null;
+			double bestFitness = Double.NEGATIVE_INFINITY;
+			for(int i=0; i<inds.size(); i++)
+			{
+				double fitness = ((IValueFitness) inds.get(i).getFitness()).getValue();
+				if(best == null || fitness > bestFitness)
+				{
+					best = inds.get(i);
+					bestFitness = fitness;
+				}
+			}
+			
+			if(best == null || !(best.getFitness() instanceof EstimatedValueFitness))
+				return;
+			((EnsembleMLCEvaluator) evaluator).evaluateFully(best);
+		}
+	}
+	
+	/**
+	 * Use in the evaluator the level of fidelity of a generation, that is the first level not finished yet, or the full fidelity if all of them are finished.
+	 * The finished levels are released, since their base classifiers and fitness are not used anymore.
+	 * If the level changes, the population is evaluated again with the new level, so its fitness is comparable with the one of the offspring.
+	 * 
+	 * @param nextGeneration Generation whose offspring are going to be evaluated
+	 */
+	private void updateFidelity(int nextGeneration)
+	{
+		for(int i=fidelityLevels.size()-1; i>=0; i--)
+		{
+			if(nextGeneration >= fidelityLevels.get(i).getUntil())
+				fidelityLevels.remove(i).release();
+		}
+		
+		FidelityLevel level = fullFidelity;
+		if(fidelityLevels.size() > 0)
+			level = fidelityLevels.get(0);
+		
+		if(level == currentFidelity)
+			return;
+		
+		currentFidelity = level;
+		System.out.println("Fidelity: " + level);
+		((EnsembleMLCEvaluator) evaluator).setFidelity(level);
+		
+		if(bset != null)
+			((EnsembleMLCEvaluator) evaluator).evaluateFully(bset);
+	}
+	
+	/**
+	 * Replace the individuals rejected by the screening with a copy of the evaluated parent they were derived from,
+	 *  or of one of the selected parents if it is unknown
+	 * 
+	 * @param inds Set of offspring
+	 */
+	private void replaceScreened(List<IIndividual> inds)
+	{
+		if(pset == null || pset.isEmpty())
+			return;
+		
+		int numberLabels = datasetTrain.getNumLabels();
+		for(int i=0; i<inds.size(); i++)
+		{
+			if(!EstimatedValueFitness.isKind(inds.get(i).getFitness(), EstimatedValueFitness.SCREENED))
+				continue;
+			
+			IIndividual parent = null;
+			if(inds.get(i) instanceof IEnsembleIndividual)
+			{
+				EnsembleKey parentKey = ((IEnsembleIndividual) inds.get(i)).getParentKey();
+				for(int p=0; p<pset.size() && parent == null && parentKey != null; p++)
+				{
+					if(pset.get(p) instanceof IEnsembleIndividual && parentKey.equals(((IEnsembleIndividual) pset.get(p)).getEnsembleKey(numberLabels)))
+						parent = pset.get(p);
+				}
+			}
+			if(parent == null)
+				parent = pset.get(i % pset.size());
+			
+			inds.set(i, parent.copy());
+		}
+	}
+	
+	/**
+	 * Set the fitness of the worst individual of the population as the fitness that the offspring must be able to reach to be evaluated.
+	 * The individuals rejected by the screening (only possible in the initial population) are not considered.
+	 */
+	private void updateScreenFitness()
+	{
+		double worst = Double.POSITIVE_INFINITY;
+		for(int i=0; i<bset.size(); i++)
+		{
+			if(EstimatedValueFitness.isKind(bset.get(i).getFitness(), EstimatedValueFitness.SCREENED))
+				continue;
+			
+			double fitness = ((IValueFitness) bset.get(i).getFitness()).getValue();
+			if(fitness < worst)
+				worst = fitness;
+		}
+		if(worst == Double.POSITIVE_INFINITY)
+			worst = Double.NEGATIVE_INFINITY;
+		
+		((EnsembleMLCEvaluator) evaluator).setScreenFitness(worst);
+	}
+}
@@ -14,21 +14,14 @@ package eme;
 import mulan.data.InvalidDataFormatException;
 import mulan.data.MultiLabelInstances;
 
-import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.concurrent.Future;
 
-import weka.classifiers.trees.J48;
 import weka.core.Instance;
-import weka.core.Instances;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
 import mulan.classifier.InvalidDataException;
-import mulan.classifier.ModelInitializationException;
 import mulan.classifier.MultiLabelLearner;
 import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.meta.MultiLabelMetaLearner;
-import mulan.classifier.transformation.LabelPowerset;
 import net.sf.jclec.util.random.IRandGen;
 
 /**
@@ -79,13 +72,29 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	protected int[] SizeSubsets;
 	
 	/**
-	 *  Filter to remove the non-active labels */
-	protected Remove[] Filters;
+	 *  Projection of the instances over the active labels of each base classifier */
+	protected LabelProjection[] Projections;
 	
 	/**
 	 *  Binary matrix that identifies the ensemble */
 	protected byte EnsembleMatrix[][]=null;
 	
+	/**
+	 *  Subset of active labels of each base classifier */
+	protected LabelSubset[] Subsets;
+	
+	/**
+	 *  Indices of the active labels of each base classifier, in the order of its outputs */
+	protected int[][] ActiveLabels;
+	
+	/**
+	 *  Number of base classifiers including each label */
+	protected int[] lengthVotes;
+	
+	/**
+	 *  Inverse of the number of base classifiers including each label, or 0 if no one includes it */
+	protected double[] invLengthVotes;
+	
 	/**
 	 *  Indicates if the number of active labels is variable for each base classifier */
 	protected boolean variable;
@@ -99,12 +108,24 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	protected IRandGen randGen;
 	
 	/**
-	 *  Table that stores all base classifiers built */
-	private Hashtable<String, MultiLabelLearner> tableClassifiers;
+	 *  Store with all base classifiers built */
+	private transient ModelStore modelStore;
 	
 	/**
 	 *  Array with number of votes of the ensemble for each label */
 	private int [] votesPerLabel;
+	
+	/**
+	 *  Dataset over which the predictions of the base classifiers are stored */
+	private MultiLabelInstances datasetValidation;
+	
+	/**
+	 *  Dataset over which the predictions of the base classifiers are stored, in primitive arrays, or null if it is not available */
+	private transient DenseDataset denseValidation;
+	
+	/**
+	 *  Predictions over the validation set of each base classifier in the ensemble */
+	protected BaseModelPredictions[] ModelPredictions;
 
 	
 
@@ -121,10 +142,10 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	 * @param variable Indicates if the number of labels is variable or not for each base classifier (at the moment, only fixed has been proved)
 	 * @param baseLearner Type of multi-label learner used for EME. LP(J48) is proposed as default.
 	 * @param genotype Genotype of the individual
-	 * @param tableClassifiers Table storing the classifiers built
+	 * @param modelStore Store with the classifiers built
 	 * @param randGen Random numbers generator
 	 */
-	public EnsembleClassifier(int maxSubsetSize, int numClassifiers, double threshold, boolean variable, MultiLabelLearner baseLearner, byte[] genotype, Hashtable<String, MultiLabelLearner> tableClassifiers, IRandGen randGen)
+	public EnsembleClassifier(int maxSubsetSize, int numClassifiers, double threshold, boolean variable, MultiLabelLearner baseLearner, byte[] genotype, ModelStore modelStore, IRandGen randGen)
 	{
 		super(baseLearner);
 		this.maxSubsetSize = maxSubsetSize;
@@ -132,7 +153,7 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		this.threshold = threshold;
 	    this.variable = variable;
 		this.genotype = genotype;
-		this.tableClassifiers = tableClassifiers;
+		this.modelStore = modelStore;
 		this.randGen = randGen;		
 	}
 	
@@ -144,10 +165,10 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	 * @param variable Indicates if the number of labels is variable or not for each base classifier (at the moment, only fixed has been proved)
 	 * @param baseLearner Type of multi-label learner used for EME. LP(J48) is proposed as default.
 	 * @param genotype Genotype of the individual
-	 * @param tableClassifiers Table storing the classifiers built
+	 * @param modelStore Store with the classifiers built
 	 * @param randGen Random numbers generator
 	 */
-	public EnsembleClassifier(int maxSubsetSize, double threshold, boolean variable, MultiLabelLearner baseLearner, byte[] genotype, Hashtable<String, MultiLabelLearner> tableClassifiers, IRandGen randGen)
+	public EnsembleClassifier(int maxSubsetSize, double threshold, boolean variable, MultiLabelLearner baseLearner, byte[] genotype, ModelStore modelStore, IRandGen randGen)
 	{
 		super(baseLearner);
 		this.maxSubsetSize = maxSubsetSize;
@@ -155,7 +176,7 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		this.threshold = threshold;
 	    this.variable = variable;
 		this.genotype = genotype;
-		this.tableClassifiers = tableClassifiers;
+		this.modelStore = modelStore;
 		this.randGen = randGen;
 	}
 	
@@ -167,17 +188,17 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	 * @param threshold Prediction threshold
 	 * @param variable Indicates if the number of labels is variable or not for each base classifier (at the moment, only fixed has been proved)
 	 * @param baseLearner Type of multi-label learner used for EME. LP(J48) is proposed as default.
-	 * @param tableClassifiers Table storing the classifiers built
+	 * @param modelStore Store with the classifiers built
 	 * @param randGen Random numbers generator
 	 */
-	public EnsembleClassifier(int maxSubsetSize, int numClassifiers, double threshold, boolean variable, MultiLabelLearner baseLearner, Hashtable<String, MultiLabelLearner> tableClassifiers, IRandGen randGen)
+	public EnsembleClassifier(int maxSubsetSize, int numClassifiers, double threshold, boolean variable, MultiLabelLearner baseLearner, ModelStore modelStore, IRandGen randGen)
 	{
 		super(baseLearner);
 		this.maxSubsetSize = maxSubsetSize;
 		this.numClassifiers = numClassifiers;
 		this.threshold = threshold;
 	    this.variable = variable;
-		this.tableClassifiers = tableClassifiers;
+		this.modelStore = modelStore;
 		this.randGen = randGen;
 	}
 	
@@ -200,7 +221,7 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		this.threshold = threshold;
 	    this.variable = variable;
 		this.genotype = genotype;
-		tableClassifiers = new Hashtable<String, MultiLabelLearner>();
+		modelStore = new ModelStore();
 		this.randGen = randGen;
 	}
 	
@@ -221,7 +242,7 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		this.numClassifiers = numClassifiers;
 		this.threshold = threshold;
 	    this.variable = variable;
-		tableClassifiers = new Hashtable<String, MultiLabelLearner>();
+		modelStore = new ModelStore();
 		this.randGen = randGen;
 	}
 		
@@ -355,6 +376,48 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		return votesPerLabel;
 	}
 	
+	/**
+	 * Set the dataset over which the predictions of the base classifiers are stored.
+	 * When it is set, the predictions of each base classifier are obtained only once, when it is built.
+	 * 
+	 * @param datasetValidation Dataset over which the predictions are obtained
+	 */
+	public void setDatasetValidation(MultiLabelInstances datasetValidation)
+	{
+		setDatasetValidation(datasetValidation, null);
+	}
+	
+	/**
+	 * Set the dataset over which the predictions of the base classifiers are stored, and the same dataset in primitive arrays.
+	 * The base classifiers that support it are run directly over the primitive arrays.
+	 * 
+	 * @param datasetValidation Dataset over which the predictions are obtained
+	 * @param denseValidation Same dataset in primitive arrays, or null if it is not available
+	 */
+	public void setDatasetValidation(MultiLabelInstances datasetValidation, DenseDataset denseValidation)
+	{
+		this.datasetValidation = datasetValidation;
+		this.denseValidation = denseValidation;
+	}
+	
+	/**
+	 * Get the subset of labels of each base classifier in the ensemble
+	 * 
+	 * @return Array with the subset of each base classifier, in the same order than its predictions
+	 */
+	public LabelSubset[] getSubsets() {
+		return Subsets;
+	}
+	
+	/**
+	 * Get the predictions over the validation set of each base classifier in the ensemble
+	 * 
+	 * @return Array with the predictions of each base classifier, or null if the validation dataset was not set
+	 */
+	public BaseModelPredictions[] getModelPredictions() {
+		return ModelPredictions;
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -385,40 +448,112 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	 * @return Binary matrix with bipartitions for the dataset
 	 */
 	public int[][] classify(MultiLabelInstances mlData)
+	{
+		return classify(mlData, null);
+	}
+	
+	/**
+	 * Classify a set of instances, also given in primitive arrays.
+	 * The bipartitions are the ones of predictBipartitions, so they are obtained with the same fixed-point sums than the fitness.
+	 * 
+	 * @param mlData multi-label dataset
+	 * @param denseData Same dataset in primitive arrays, or null if it is not available
+	 * 
+	 * @return Binary matrix with bipartitions for the dataset
+	 */
+	public int[][] classify(MultiLabelInstances mlData, DenseDataset denseData)
 	{		
+		long[] bipartitions = predictBipartitions(mlData, denseData);
+		int numLabelWords = (numLabels + 63) >>> 6;
 		int[][] predictions = new int[mlData.getNumInstances()][numLabels];
-
-		Instances data = mlData.getDataSet();
 		
-		MultiLabelOutput mlo = null;
-		
-		for (int i=0; i<mlData.getNumInstances(); i++)
+		for (int i=0; i<predictions.length; i++)
 		{ 	
-		    try {
-				mlo = this.makePrediction(data.get(i));
-				for(int j=0; j<this.numLabels; j++)
-				{	
-					if(mlo.getBipartition()[j])
-					{
-						predictions[i][j]=1;
-					}	
-					else
-					{
-						predictions[i][j]=0;
-					}	  
-				}
-				
-			} catch (InvalidDataException e) {
-				e.printStackTrace();
-			} catch (ModelInitializationException e) {
-				e.printStackTrace();
-			} catch (Exception e) {
-				e.printStackTrace();
+			for(int j=0; j<this.numLabels; j++)
+			{	
+				if((bipartitions[i*numLabelWords + (j >>> 6)] & (1L << j)) != 0)
+				{
+					predictions[i][j]=1;
+				}	
+				else
+				{
+					predictions[i][j]=0;
+				}	  
 			}
 		}
 		return(predictions);		
 	}
 	
+	/**
+	 * Obtain the confidences of the ensemble for a set of instances.
+	 * Each base classifier is run once over the whole dataset, and its outputs are combined through the indices of its active labels.
+	 * If the dataset is the validation one, the stored predictions of the base classifiers are used.
+	 * 
+	 * @param mlData multi-label dataset
+	 * 
+	 * @return Matrix with the confidence of each instance (row) and label (column)
+	 */
+	public double[][] predict(MultiLabelInstances mlData)
+	{
+		return predict(mlData, null);
+	}
+	
+	/**
+	 * Obtain the confidences of the ensemble for a set of instances, also given in primitive arrays.
+	 * The base classifiers that support it are run directly over the primitive arrays.
+	 * 
+	 * @param mlData multi-label dataset
+	 * @param denseData Same dataset in primitive arrays, or null if it is not available
+	 * 
+	 * @return Matrix with the confidence of each instance (row) and label (column)
+	 */
+	public double[][] predict(MultiLabelInstances mlData, DenseDataset denseData)
+	{
+		return combinePredictions(getPredictions(mlData, denseData), numLabels, mlData.getNumInstances());
+	}
+	
+	/**
+	 * Obtain the bipartitions of the ensemble for a set of instances, as a bit matrix by instances.
+	 * The confidences are only computed by blocks of instances, and they are not stored.
+	 * 
+	 * @param mlData multi-label dataset
+	 * 
+	 * @return Bit matrix of the predicted labels, with the same layout than the labels of a DenseDataset
+	 */
+	public long[] predictBipartitions(MultiLabelInstances mlData)
+	{
+		return predictBipartitions(mlData, null);
+	}
+	
+	/**
+	 * Obtain the bipartitions of the ensemble for a set of instances, also given in primitive arrays, as a bit matrix by instances.
+	 * The base classifiers that support it are run directly over the primitive arrays.
+	 * 
+	 * @param mlData multi-label dataset
+	 * @param denseData Same dataset in primitive arrays, or null if it is not available
+	 * 
+	 * @return Bit matrix of the predicted labels, with the same layout than the labels of a DenseDataset
+	 */
+	public long[] predictBipartitions(MultiLabelInstances mlData, DenseDataset denseData)
+	{
+		return new VoteAggregator(getPredictions(mlData, denseData), numLabels, mlData.getNumInstances()).bipartitions(threshold);
+	}
+	
+	/**
+	 * Combine the predictions of the base classifiers of an ensemble.
+	 * The confidence for each label is the average of the confidences of the base classifiers including it.
+	 * 
+	 * @param predictions Predictions of each base classifier over the same dataset
+	 * @param numLabels Number of labels
+	 * @param numInstances Number of instances of the dataset
+	 * 
+	 * @return Matrix with the confidence of each instance (row) and label (column)
+	 */
+	public static double[][] combinePredictions(BaseModelPredictions[] predictions, int numLabels, int numInstances)
+	{
+		return new VoteAggregator(predictions, numLabels, numInstances).confidences();
+	}
+	
 	
 	/*
 	 * Build the ensemble
@@ -435,7 +570,9 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 			   throw new Exception("The number of models exceed the number of combinations");
 		   
 		   Ensemble = new MultiLabelLearner[numClassifiers];		
-		   Filters = new Remove[numClassifiers];	
+		   Projections = new LabelProjection[numClassifiers];
+		   if(datasetValidation != null)
+			   ModelPredictions = new BaseModelPredictions[numClassifiers];
 		   
 		   votesPerLabel = new int[numLabels];
 		   for(int i=0; i<genotype.length; i++)
@@ -448,34 +585,58 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		   else
 			 this.genotypeToEnsembleMatrix();
 		   
-		   Instances instances = null;
+		   Subsets = new LabelSubset[numClassifiers];
+		   ActiveLabels = new int[numClassifiers][];
+		   for(int i=0; i<numClassifiers; i++)
+		   {
+			   Subsets[i] = LabelSubset.fromRow(EnsembleMatrix[i]);
+			   ActiveLabels[i] = Subsets[i].getActiveLabels();
+		   }
+		   
+		   //The averages of the votes are computed with the inverse of the number of votes of each label
+		   lengthVotes = new int[numLabels];
+		   for(int i=0; i<numClassifiers; i++)
+		   {
+			   for(int k=0; k<ActiveLabels[i].length; k++)
+			   {
+				   lengthVotes[ActiveLabels[i][k]]++;
+			   }
+		   }
+		   invLengthVotes = new double[numLabels];
+		   for(int j=0; j<numLabels; j++)
+		   {
+			   if(lengthVotes[j] != 0)
+				   invLengthVotes[j] = 1.0 / lengthVotes[j];
+		   }
+		   
+		   //Request all base classifiers, so the missing ones are built in parallel
+		   @SuppressWarnings("unchecked")
+		   Future<BaseModel>[] futures = new Future[numClassifiers];
+		   for(int i = 0; i < numClassifiers; i++)
+		   {
+			   futures[i] = modelStore.request(Subsets[i], new BaseModelTrainer(Subsets[i], multilabelDatasetTrain, datasetValidation, denseValidation, modelStore.getDiskStore(), modelStore.getBaseLearner()));
+		   }
+		   
 		   for(int i = 0; i < numClassifiers; i++)
-		   {			
-			    //Transform the multilabel dataset using LP and the labels of the current individual's classifier
-				instances = transformInstances(multilabelDatasetTrain, i);
-				
-				// build a MultiLabelLearner for the selected label subset;
+		   {
 				try {
+					//Wait for the classifier, built by this or by another ensemble
+					BaseModel baseModel = modelStore.get(Subsets[i], futures[i]);
+					Ensemble[i] = baseModel.getLearner();
+					//The projection is stored with the classifier, so stored classifiers do not need any pass over the data
+					Projections[i] = baseModel.getProjection();
 					
-					//Try to get a classifier from the tableClassifiers					
-					String s = new String();				
-					for(int j=0; j<numLabels; j++)
-					{
-						s = s+EnsembleMatrix[i][j];
-					}
-					
-					if(tableClassifiers.get(s) == null)
+					if(datasetValidation != null)
 					{
-						//Build the classifier and put in the table
-						Ensemble[i] = new LabelPowerset(new J48());
-			        	Ensemble[i].build(this.multilabelDatasetTrain.reintegrateModifiedDataSet(instances));	
-			        	tableClassifiers.put(s, Ensemble[i]);
+						//Predictions over the validation set are only obtained the first time
+						ModelPredictions[i] = baseModel.getPredictions();
+						if(ModelPredictions[i] == null)
+						{
+							ModelPredictions[i] = BaseModelTrainer.predictModel(Subsets[i], Ensemble[i], Projections[i], datasetValidation, denseValidation);
+							//Charged against the memory budget of the store
+							ModelPredictions[i] = modelStore.attachPredictions(Subsets[i], baseModel, ModelPredictions[i]);
+						}
 					}
-					else
-					{
-						//Get the classifier from the table
-						Ensemble[i] = tableClassifiers.get(s);
-					}					
 				} catch (InvalidDataException e) {	
 					e.printStackTrace();
 				} catch (InvalidDataFormatException e){
@@ -493,55 +654,35 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	@Override
 	protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception
 	{
-	    double[] sumConf = new double[numLabels];
+	    long[] sumConf = new long[numLabels];
 	    double[] sumVotes = new double[numLabels];
-	    double[] lengthVotes = new double[numLabels];
 	    
 	    // gather votes
 	    for (int model = 0; model < numClassifiers; model++) 
 	    {	        
-	    	Filters[model].input(instance);
-	        Filters[model].batchFinished();
-	        Instance newInstance = Filters[model].output();
-	        MultiLabelOutput subsetMLO = Ensemble[model].makePrediction(newInstance);
+	        MultiLabelOutput subsetMLO = Ensemble[model].makePrediction(Projections[model].project(instance));
+	        double[] conf = subsetMLO.getConfidences();
+	        boolean[] bip = subsetMLO.getBipartition();
 	        	
-	        for (int label=0, k=0; label < numLabels; label++)
+	        for (int k=0; k < ActiveLabels[model].length; k++)
 	        { 
-	        	if (EnsembleMatrix[model][label]==1)
-	            {	
-	        		sumConf[label] += subsetMLO.getConfidences()[k];
-	                sumVotes[label] += subsetMLO.getBipartition()[k] ? 1 : 0;
-	                lengthVotes[label]++;
-
-	                k++;
-	            }
+	        	int label = ActiveLabels[model][k];
+	        	sumConf[label] += EnsembleAccumulator.toFixed(conf[k]);
+	        	if (bip[k])
+	        		sumVotes[label]++;
 	        }	       
 	    }	      
 	    
-	    double[] confidence1 = new double[numLabels];
-	    double[] confidence2 = new double[numLabels];
+	    // the sum of votes is reused as the confidence of the output
+	    // the bipartition compares the fixed-point sums, as the fitness and predictBipartitions
 	    boolean[] bipartition = new boolean[numLabels];
-	        
 	    for (int i = 0; i < numLabels; i++)
 	    {
-	    	if (lengthVotes[i] != 0)
-	        {
-	        	confidence1[i] = sumVotes[i] / lengthVotes[i];
-	            confidence2[i] = sumConf[i] / lengthVotes[i];
-	        }else 
-	        {
-	        	confidence1[i] = 0;
-	            confidence2[i] = 0;
-	        }
-	         
-	        if (confidence2[i] >= threshold) {
-	            bipartition[i] = true;
-	        } else {
-	            bipartition[i] = false;
-	        }
+	    	sumVotes[i] *= invLengthVotes[i];
+	    	bipartition[i] = (sumConf[i] >= EnsembleAccumulator.fixedLimit(threshold, lengthVotes[i]));
 	    }
 
-	    MultiLabelOutput mlo = new MultiLabelOutput(bipartition, confidence1);
+	    MultiLabelOutput mlo = new MultiLabelOutput(bipartition, sumVotes);
 	    return mlo;
 	}	
 
@@ -550,42 +691,31 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 	// ---------------------------------------------- protected methods
 	/////////////////////////////////////////////////////////////////	
 	/**
-	 * Transform the instances for a given k-labelset (for a given model with different subset of labels)
-	 * 
-	 * @param mlData Multi-label dataset
-	 * @param model Number identifying the model in the ensemble
+	 * Get the predictions of each base classifier over a set of instances.
+	 * If the dataset is the validation one, the stored predictions are used.
 	 * 
-	 * @return Instances dataset including only the labels for this model
+	 * @param mlData multi-label dataset
+	 * @param denseData Same dataset in primitive arrays, or null if it is not available
 	 * 
-	 * @throws Exception exception
+	 * @return Predictions of each base classifier
 	 */
-	protected Instances transformInstances(MultiLabelInstances mlData, int model) throws Exception
-	{   
-		int labelsToRemove[]=new int[numLabels-SizeSubsets[model]];
-	    Instances data = mlData.getDataSet();
-	    
-	    for (int label=0, k=0; k <(numLabels-SizeSubsets[model]); label++)
-	    {
-	        if (EnsembleMatrix[model][label] == 0)
-	        {  	
-	        	labelsToRemove[k]=labelIndices[label];
-	        	k++;
-	        }
-	    }	       
-	    Filters[model] = new Remove();
-	    Filters[model].setAttributeIndicesArray(labelsToRemove);	    
-	    try 
-	    {
-		    Filters[model].setInputFormat(data);
-	    }		
-		catch (Exception e)
+	protected BaseModelPredictions[] getPredictions(MultiLabelInstances mlData, DenseDataset denseData)
+	{
+		if((mlData == datasetValidation) && (ModelPredictions != null))
+			return ModelPredictions;
+		if((mlData == datasetValidation) && (denseData == null))
+			denseData = denseValidation;
+		
+		BaseModelPredictions[] predictions = new BaseModelPredictions[numClassifiers];
+		for(int model=0; model<numClassifiers; model++)
 		{
-			e.printStackTrace();
+			try {
+				predictions[model] = BaseModelTrainer.predictModel(Subsets[model], Ensemble[model], Projections[model], mlData, denseData);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
 		}
-	    Filters[model].setInvertSelection(false);
-	    Instances trainSubset = Filter.useFilter(data, Filters[model]);
-	        
-        return(trainSubset);		
+		return predictions;
 	}
 	
 	/**
@@ -596,7 +726,7 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		EnsembleMatrix = new byte[numClassifiers][numLabels];		
 		SizeSubsets = new int[numClassifiers];
 	    
-		HashSet<String> Combinations = new HashSet<String>();
+		HashSet<LabelSubset> Combinations = new HashSet<LabelSubset>();
 		
 		//For each classifier in the ensemble
 		for(int model=0; model<numClassifiers;)
@@ -609,13 +739,11 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
 		   }
 		   
 		   //Inicializations
-		   StringBuffer comb2 = new StringBuffer("");
 		   boolean visited[] = new boolean[numLabels];	
 		   for(int label=0; label<numLabels; label++)
 		   {	   
 		      visited[label]=false;
 		      EnsembleMatrix[model][label]=0;
-		      comb2.append('0');
 		   }
 		   
 		   for(int label=0; label<SizeSubsets[model]; )
@@ -626,12 +754,11 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
                {	   
 			      visited[randomLabel]=true;
 			      EnsembleMatrix[model][randomLabel]=1;
-			      comb2.setCharAt(randomLabel, '1');
 			      label++;
                }   
 		   }		
 			 
-		   if(checkModel(model)==true && Combinations.add(comb2.toString())==true)
+		   if(checkModel(model)==true && Combinations.add(LabelSubset.fromRow(EnsembleMatrix[model]))==true)
 		   {   		   
 			    model++;                 
 		   }   
@@ -686,38 +813,13 @@ public class EnsembleClassifier extends MultiLabelMetaLearner
     
     
     /**
-     * Get a String identifying the ensemble
+     * Get the key identifying the ensemble
      * The base classifiers are ordered, in order to compare ensembles
      * 
-     * @return A string that identifies the ensemble, independently of the order of its base classifiers
+     * @return A key that identifies the ensemble, independently of the order of its base classifiers
      */
-    protected String getOrderedStringFromEnsembleMatrix()
-	{		
-		String [] matrix = new String[numClassifiers];
-     	  	
-		// EnsembleMatrix to Strings array
-     	for(int i=0; i<numClassifiers; i++)
-     	{
-     		String s = new String();
-     			
-     		for(int j=0; j<numLabels; j++)
-     		{
-     			s = s+EnsembleMatrix[i][j];
-     		}
-     	 		
-     		matrix[i] = s;
-     	}
-
-     	// Ordered list of rows of the EnsembleMatrix
-     	Arrays.sort(matrix);
-     		
-     	String s2 = new String();
-     	 	
-	    for(int i=0; i<numClassifiers; i++)
-	    {
-	    	s2 = s2 + matrix[i];
-	    }
-		
-		return s2;
+    protected EnsembleKey getEnsembleKey()
+	{
+		return new EnsembleKey(Subsets);
 	}
 }
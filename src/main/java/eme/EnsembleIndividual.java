@@ -0,0 +1,171 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+import net.sf.jclec.binarray.BinArrayIndividual;
+
+/**
+ * Class implementing the individuals of EME.
+ * It is a binary array individual that also keeps the key identifying its ensemble,
+ *  so the genetic operators can obtain the key of the offspring from the key of the parents.
+ */
+public class EnsembleIndividual extends BinArrayIndividual implements IEnsembleIndividual
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -7383469914126650735L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Key identifying the ensemble, only obtained when needed */
+	protected transient EnsembleKey ensembleKey;
+
+	/**
+	 *  Key of the evaluated ensemble this individual was derived from, or null if it is unknown */
+	protected transient EnsembleKey parentKey;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public EnsembleIndividual()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that sets the genotype
+	 *
+	 * @param genotype Genotype of the individual
+	 */
+	public EnsembleIndividual(byte[] genotype)
+	{
+		super(genotype);
+	}
+
+	/**
+	 * Constructor that sets the genotype and the fitness
+	 *
+	 * @param genotype Genotype of the individual
+	 * @param fitness Fitness of the individual
+	 */
+	public EnsembleIndividual(byte[] genotype, IFitness fitness)
+	{
+		super(genotype, fitness);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the key identifying the ensemble.
+	 * If it was not set by the genetic operators, it is obtained from the genotype.
+	 *
+	 * @param numLabels Number of labels
+	 *
+	 * @return Key identifying the ensemble
+	 */
+	public EnsembleKey getEnsembleKey(int numLabels)
+	{
+		if(ensembleKey == null)
+		{
+			ensembleKey = EnsembleKey.fromGenotype(genotype, genotype.length/numLabels, numLabels);
+		}
+		return ensembleKey;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] toByteGenotype(int numLabels)
+	{
+		return genotype;
+	}
+
+	/**
+	 * Set the key identifying the ensemble
+	 *
+	 * @param ensembleKey Key identifying the ensemble
+	 */
+	public void setEnsembleKey(EnsembleKey ensembleKey)
+	{
+		this.ensembleKey = ensembleKey;
+	}
+
+	/**
+	 * Obtain the key of this individual from the key of its parent, only updating the base classifiers changed by the genetic operator
+	 *
+	 * @param parent Parent of the individual
+	 * @param donor Other parent that gave base classifiers in the same positions, or null if there is not
+	 * @param models Positions of the changed base classifiers
+	 * @param count Number of changed base classifiers
+	 * @param numLabels Number of labels
+	 */
+	public void inheritEnsembleKey(EnsembleIndividual parent, EnsembleIndividual donor, int[] models, int count, int numLabels)
+	{
+		EnsembleKey donorKey = null;
+		if(donor != null)
+			donorKey = donor.getEnsembleKey(numLabels);
+
+		ensembleKey = parent.getEnsembleKey(numLabels).derive(models, count, genotype, donorKey);
+
+		//If the parent has not been evaluated, it is not the origin of this individual but its own parent
+		if(parent.getFitness() == null && parent.parentKey != null)
+			parentKey = parent.parentKey;
+		else
+			parentKey = parent.ensembleKey;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EnsembleKey getParentKey()
+	{
+		return parentKey;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IIndividual copy()
+	{
+		byte[] genotypeCopy = new byte[genotype.length];
+		System.arraycopy(genotype, 0, genotypeCopy, 0, genotype.length);
+
+		EnsembleIndividual copy;
+		if(fitness != null)
+			copy = new EnsembleIndividual(genotypeCopy, fitness.copy());
+		else
+			copy = new EnsembleIndividual(genotypeCopy);
+
+		copy.ensembleKey = ensembleKey;
+		copy.parentKey = parentKey;
+		return copy;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import net.sf.jclec.IConfigure;
+import net.sf.jclec.binarray.BinArraySpecies;
+
+import org.apache.commons.configuration.Configuration;
+
+/**
+ * Class implementing the species of the individuals of EME
+ */
+public class EnsembleIndividualSpecies extends BinArraySpecies implements IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 2906474396522131574L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public EnsembleIndividualSpecies()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EnsembleIndividual createIndividual(byte[] genotype)
+	{
+		return new EnsembleIndividual(genotype);
+	}
+
+	// IConfigure interface
+
+	@Override
+	public void configure(Configuration configuration)
+	{
+		// The genotype length is fixed later by EME, so the schema only indicates that all loci are free
+		int genotypeLength = configuration.getInt("[@genotype-length]", 1);
+		genotypeSchema = new byte[genotypeLength];
+		for(int i=0; i<genotypeLength; i++)
+		{
+			genotypeSchema[i] = -1;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof EnsembleIndividualSpecies) {
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * All the objects of this type are equal, so all of them have the same hash code.
+	 */
+	@Override
+	public int hashCode()
+	{
+		return EnsembleIndividualSpecies.class.getName().hashCode();
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Class identifying an ensemble, independently of the order of its base classifiers.
+ *
+ * The hash of the ensemble is the sum of the hashes of the subsets of labels of its base classifiers, so it does not depend on their order
+ *  and it can be updated only for the base classifiers that change in an offspring.
+ * The ordered subsets, used for the exact comparison, are only obtained when two keys have the same hash.
+ */
+public final class EnsembleKey implements Serializable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 8326107151594842381L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Subsets of labels of the base classifiers, in the order of the individual */
+	private final LabelSubset[] subsets;
+
+	/**
+	 *  Hash of the ensemble */
+	private final long hash;
+
+	/**
+	 *  Ordered subsets of labels, only obtained when needed */
+	private transient volatile LabelSubset[] orderedSubsets;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param subsets Subsets of labels of the base classifiers, in any order
+	 */
+	public EnsembleKey(LabelSubset[] subsets)
+	{
+		this(subsets.clone(), sumHashes(subsets));
+	}
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param subsets Subsets of labels of the base classifiers. They are not copied.
+	 * @param hash Hash of the ensemble
+	 */
+	private EnsembleKey(LabelSubset[] subsets, long hash)
+	{
+		this.subsets = subsets;
+		this.hash = hash;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create the key of the ensemble directly from the genotype of an individual
+	 *
+	 * @param genotype Genotype of the individual
+	 * @param numClassifiers Number of classifiers in the ensemble
+	 * @param numLabels Number of labels
+	 *
+	 * @return Key identifying the ensemble
+	 */
+	public static EnsembleKey fromGenotype(byte[] genotype, int numClassifiers, int numLabels)
+	{
+		LabelSubset[] subsets = new LabelSubset[numClassifiers];
+		for(int model=0; model<numClassifiers; model++)
+		{
+			subsets[model] = LabelSubset.fromGenotype(genotype, model, numLabels);
+		}
+
+		return new EnsembleKey(subsets, sumHashes(subsets));
+	}
+
+	/**
+	 * Create the key of the ensemble directly from the packed genotype of an individual
+	 *
+	 * @param genotype Packed genotype of the individual
+	 * @param numClassifiers Number of classifiers in the ensemble
+	 * @param numLabels Number of labels
+	 *
+	 * @return Key identifying the ensemble
+	 */
+	public static EnsembleKey fromPackedGenotype(long[] genotype, int numClassifiers, int numLabels)
+	{
+		LabelSubset[] subsets = new LabelSubset[numClassifiers];
+		for(int model=0; model<numClassifiers; model++)
+		{
+			subsets[model] = LabelSubset.fromPackedGenotype(genotype, model, numLabels);
+		}
+
+		return new EnsembleKey(subsets, sumHashes(subsets));
+	}
+
+	/**
+	 * Create the key of an ensemble that differs from this one only in some base classifiers.
+	 * The hash is updated only for the replaced base classifiers.
+	 *
+	 * @param models Positions of the replaced base classifiers
+	 * @param newSubsets New subsets of labels, one for each replaced position
+	 * @param count Number of replaced base classifiers
+	 *
+	 * @return Key identifying the new ensemble
+	 */
+	public EnsembleKey replace(int[] models, LabelSubset[] newSubsets, int count)
+	{
+		if(count == 0)
+			return this;
+
+		LabelSubset[] s = subsets.clone();
+		long h = hash;
+		for(int c=0; c<count; c++)
+		{
+			h -= s[models[c]].longHashCode();
+			s[models[c]] = newSubsets[c];
+			h += newSubsets[c].longHashCode();
+		}
+
+		return new EnsembleKey(s, h);
+	}
+
+	/**
+	 * Create the key of an offspring from the key of its parent.
+	 * Only the base classifiers changed by the genetic operator are considered, so the cost does not depend on the rest of the genotype.
+	 * Their subsets are taken from the donor, that is, the other parent that gave these base classifiers in the same positions,
+	 *  or obtained from the genotype of the offspring if there is not donor.
+	 *
+	 * @param models Positions of the changed base classifiers
+	 * @param count Number of changed base classifiers
+	 * @param childGenotype Genotype of the offspring
+	 * @param donor Key of the other parent, or null if the changed base classifiers were not copied from another individual
+	 *
+	 * @return Key identifying the offspring
+	 */
+	public EnsembleKey derive(int[] models, int count, byte[] childGenotype, EnsembleKey donor)
+	{
+		int numLabels = childGenotype.length / subsets.length;
+
+		LabelSubset[] newSubsets = new LabelSubset[count];
+		for(int c=0; c<count; c++)
+		{
+			if(donor != null)
+				newSubsets[c] = donor.subsets[models[c]];
+			else
+				newSubsets[c] = LabelSubset.fromGenotype(childGenotype, models[c], numLabels);
+		}
+
+		return replace(models, newSubsets, count);
+	}
+
+	/**
+	 * Create the key of an offspring from the key of its parent, both with packed genotypes.
+	 * Only the base classifiers changed by the genetic operator are considered.
+	 *
+	 * @param models Positions of the changed base classifiers
+	 * @param count Number of changed base classifiers
+	 * @param childGenotype Packed genotype of the offspring
+	 * @param donor Key of the other parent that gave the changed base classifiers in the same positions, or null if there is not
+	 *
+	 * @return Key identifying the offspring
+	 */
+	public EnsembleKey derive(int[] models, int count, long[] childGenotype, EnsembleKey donor)
+	{
+		LabelSubset[] newSubsets = new LabelSubset[count];
+		for(int c=0; c<count; c++)
+		{
+			if(donor != null)
+				newSubsets[c] = donor.subsets[models[c]];
+			else
+				newSubsets[c] = LabelSubset.fromPackedGenotype(childGenotype, models[c], subsets[models[c]].getNumLabels());
+		}
+
+		return replace(models, newSubsets, count);
+	}
+
+	/**
+	 * Get the number of base classifiers
+	 *
+	 * @return Number of base classifiers
+	 */
+	public int getNumSubsets()
+	{
+		return subsets.length;
+	}
+
+	/**
+	 * Get the subset of labels of a base classifier, in the order of the individual
+	 *
+	 * @param model Position of the base classifier
+	 *
+	 * @return Subset of labels
+	 */
+	public LabelSubset getSubset(int model)
+	{
+		return subsets[model];
+	}
+
+	/**
+	 * Get the ordered subsets of labels of the base classifiers. They must not be modified.
+	 *
+	 * @return Ordered subsets of labels
+	 */
+	public LabelSubset[] getOrderedSubsets()
+	{
+		LabelSubset[] ordered = orderedSubsets;
+		if(ordered == null)
+		{
+			ordered = subsets.clone();
+			Arrays.sort(ordered);
+			orderedSubsets = ordered;
+		}
+		return ordered;
+	}
+
+	/**
+	 * Get the 64-bit hash of the ensemble
+	 *
+	 * @return 64-bit hash
+	 */
+	public long longHashCode()
+	{
+		return hash;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if(this == other) {
+			return true;
+		}
+		if(other instanceof EnsembleKey) {
+			EnsembleKey o = (EnsembleKey) other;
+			//The exact comparison is only made when the hashes collide
+			return (hash == o.hash) && Arrays.equals(getOrderedSubsets(), o.getOrderedSubsets());
+		}
+		else {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		LabelSubset[] ordered = getOrderedSubsets();
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<ordered.length; i++)
+		{
+			sb.append(ordered[i].toString());
+		}
+		return sb.toString();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Sum the hashes of the subsets of labels
+	 *
+	 * @param subsets Subsets of labels
+	 *
+	 * @return Sum of the hashes
+	 */
+	private static long sumHashes(LabelSubset[] subsets)
+	{
+		long h = 0;
+		for(int i=0; i<subsets.length; i++)
+		{
+			h += subsets[i].longHashCode();
+		}
+		return h;
+	}
+}
@@ -71,6 +71,8 @@ import net.sf.jclec.algorithm.PopulationAlgorithm;
 import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.binarray.BinArrayIndividual;
 
+import eme.learner.LabelPowersetEncoder;
+
 /**
  * @author Jose M. Moyano: jmoyano@uco.es
  *
@@ -309,7 +311,12 @@ public class EnsembleListener implements IAlgorithmListener, IConfigure
 				
 				// Prints individuals
 				for(int i=0; i<inds.size(); i++) {
-					buffer.append(Arrays.toString(((BinArrayIndividual)inds.get(i)).getGenotype()) + ": " + ((SimpleValueFitness)inds.get(i).getFitness()).getValue() + System.getProperty("line.separator"));
+					byte[] genotype;
+					if(inds.get(i) instanceof IEnsembleIndividual)
+						genotype = ((IEnsembleIndividual)inds.get(i)).toByteGenotype(((EnsembleAlgorithm) algorithm).getDatasetTrain().getNumLabels());
+					else
+						genotype = ((BinArrayIndividual)inds.get(i)).getGenotype();
+					buffer.append(Arrays.toString(genotype) + ": " + ((SimpleValueFitness)inds.get(i).getFitness()).getValue() + System.getProperty("line.separator"));
 					avgFitness += ((SimpleValueFitness)inds.get(i).getFitness()).getValue();
 				}
 				avgFitness /= inds.size();
@@ -344,20 +351,21 @@ public class EnsembleListener implements IAlgorithmListener, IConfigure
 		// Train Report file
 		File trainReportFile = new File(reportDirectory, trainReportFilename);
 		
-		classify(algorithm.getDatasetTrain(), algorithm.getClassifier(), trainReportFile);
-		classify(algorithm.getDatasetTest(), algorithm.getClassifier(), testReportFile);
+		classify(algorithm.getDatasetTrain(), algorithm.getDenseTrain(), algorithm.getClassifier(), trainReportFile);
+		classify(algorithm.getDatasetTest(), algorithm.getDenseTest(), algorithm.getClassifier(), testReportFile);
 	}
 
     /**
      * Classify a multi-label dataset with a given ensemble classifier
      * 
      * @param mldata Multi-label dataset
+     * @param dense Multi-label dataset stored in primitive arrays, used to obtain the actual labels
      * @param classifier Ensemble classifier
      * @param file File to store the predictions
      */
-    protected void classify(MultiLabelInstances mldata, EnsembleClassifier classifier, File file)
+    protected void classify(MultiLabelInstances mldata, DenseDataset dense, EnsembleClassifier classifier, File file)
     {
-		int[][] predicted = classifier.classify(mldata);
+		int[][] predicted = classifier.classify(mldata, dense);
 		int numberLabels = mldata.getNumLabels();
 		
 		try {
@@ -372,7 +380,7 @@ public class EnsembleListener implements IAlgorithmListener, IConfigure
     			fw.write("\t");
     			
     			for(int j = 0; j < numberLabels; j++)
-    				fw.write((int) mldata.getDataSet().get(i).value(mldata.getDataSet().numAttributes() - numberLabels + j) + " ");
+    				fw.write((dense.getLabel(i, j) ? 1 : 0) + " ");
     			fw.write(System.getProperty("line.separator"));
         	}
 
@@ -470,7 +478,7 @@ public class EnsembleListener implements IAlgorithmListener, IConfigure
 				file.write("\n"+m.getName()+": "+df4.format(m.getValue()));
 				cab=cab+m.getName()+", ";				
 		    }
-			cab=cab+"number of evaluations, execution time, final coverage, final measure, final fitness, tableClassifiersSize, tableFitnessSize\n";
+			cab=cab+"number of evaluations, execution time, final coverage, final measure, final fitness, tableClassifiersSize, tableFitnessSize, modelCacheHits, modelCacheMisses, modelCacheEvictions\n";
 			file.write(System.getProperty("line.separator"));
 			
 			// Global report
@@ -497,11 +505,25 @@ public class EnsembleListener implements IAlgorithmListener, IConfigure
 			
 			bw.write(algorithm.getEvaluator().getNumberOfEvaluations() + ",");
 			bw.write((((double)(endTime-initTime)) / 1000.0) + ",");
-			bw.write(algorithm.finalEnsembleCoverage + "," + algorithm.finalEnsembleMeasure + "," + algorithm.finalEnsembleFitness + "," + algorithm.getTableClassifiersSize() + "," + algorithm.getTableFitnessSize());
+			bw.write(algorithm.finalEnsembleCoverage + "," + algorithm.finalEnsembleMeasure + "," + algorithm.finalEnsembleFitness + "," + algorithm.getTableClassifiersSize() + ",");
+			bw.write(algorithm.getTableFitnessSize() + ",");
+			bw.write(algorithm.getModelStore().getHits() + "," + algorithm.getModelStore().getMisses() + "," + algorithm.getModelStore().getEvictions());
 		
 			file.write(System.getProperty("line.separator") + "Ensemble of classifiers" + System.getProperty("line.separator"));
 			file.write(classifier.toString());
 			
+			//Number of classes of the LP transformation of each base classifier over the training set
+			LabelSubset[] subsets = classifier.getSubsets();
+			if(subsets != null && algorithm.getDenseTrain() != null)
+			{
+				file.write(System.getProperty("line.separator") + "LP classes per base classifier:");
+				for(int i=0; i<subsets.length; i++)
+				{
+					file.write(" " + LabelPowersetEncoder.countClasses(algorithm.getDenseTrain(), subsets[i]));
+				}
+				file.write(System.getProperty("line.separator"));
+			}
+			
 			// Close the files
 			bw.close();
 			file.close();			
@@ -36,20 +36,20 @@ public class EnsembleMLCCreator extends BinArrayCreator
 	
 	/**
 	 * Number of labels */
-	private int numberLabels;
+	protected int numberLabels;
 	
 	/**
 	 * Number of classifiers in the ensemble */
-	private int numberClassifiers;
+	protected int numberClassifiers;
 	
 	/**
 	 * Max number of labels in each base classifier (k)
 	 * At the moment, the number of labels for each classifier is fixed, but it could be variable */
-	private int maxNumberLabelsClassifier;
+	protected int maxNumberLabelsClassifier;
 	
 	/** 
 	 * Indicates if the number of active labels is variable for each base classifier */
-	private boolean variable;
+	protected boolean variable;
 
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -130,7 +130,7 @@ public class EnsembleMLCCreator extends BinArrayCreator
 	private final byte [] createGenotype()
 	{
 		byte [] result = new byte[numberClassifiers * numberLabels];
-		HashSet<String> Combinations = new HashSet<String>();
+		HashSet<LabelSubset> Combinations = new HashSet<LabelSubset>();
 		
 		int numLabelsClassifier;
 		boolean [] visited;
@@ -144,14 +144,12 @@ public class EnsembleMLCCreator extends BinArrayCreator
 				numLabelsClassifier = maxNumberLabelsClassifier;	
 			
 			//Inicializations
-			StringBuffer comb2 = new StringBuffer("");			
 			visited = new boolean[numberLabels];	
 			
 			for(int label=0; label<numberLabels; label++)
 			{	   
 			   visited[label]=false;
 			   result[model*numberLabels+label]=0;
-			   comb2.append('0');
 			}
 			   
 			for(int label=0; label<numLabelsClassifier; ) 
@@ -162,12 +160,11 @@ public class EnsembleMLCCreator extends BinArrayCreator
 	           {	   
 				  visited[randomLabel]=true;
 				  result[model*numberLabels+randomLabel]=1;
-				  comb2.setCharAt(randomLabel, '1');
 	          	  label++;
 	           }   
 			}	
 			
-			if((checkModel(model, result)==true) && (Combinations.add(comb2.toString())==true))
+			if((checkModel(model, result)==true) && (Combinations.add(LabelSubset.fromGenotype(result, model, numberLabels))==true))
 			{   //Checks if the model is already in the ensemble
 	             model++;
 			}
@@ -12,24 +12,26 @@
 package eme;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 import mulan.data.MultiLabelInstances;
 import mulan.classifier.MultiLabelLearner;
-import mulan.classifier.transformation.LabelPowerset;
-import mulan.evaluation.Evaluation;
-import mulan.evaluation.Evaluator;
-import mulan.evaluation.measure.ExampleBasedFMeasure;
-import mulan.evaluation.measure.Measure;
-import weka.classifiers.trees.J48;
 import net.sf.jclec.IFitness;
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.base.AbstractParallelEvaluator;
 import net.sf.jclec.binarray.BinArrayIndividual;
+import net.sf.jclec.fitness.IValueFitness;
 import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.fitness.ValueFitnessComparator;
+import net.sf.jclec.util.random.IRandGen;
 import net.sf.jclec.util.random.IRandGenFactory;
 
 /**
@@ -60,6 +62,10 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 	 *  Dataset to evaluate the individuals */
 	protected MultiLabelInstances datasetValidation;
 	
+	/**
+	 *  Dataset to evaluate the individuals, stored in primitive arrays */
+	protected DenseDataset denseValidation;
+	
 	/**
 	 *  Max number of active labels in each base classifier 
 	 *  
@@ -92,13 +98,17 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 	protected Comparator<IFitness> COMPARATOR = new ValueFitnessComparator(!maximize);
 	
 	/**
-	 *  Table that stores all base classifiers built */
-	public Hashtable<String, MultiLabelLearner> tableClassifiers;
+	 *  Store with all base classifiers built */
+	public transient ModelStore modelStore;
 	
 	/**
 	 *  Table that stores the fitness of all evaluated individuals */
-	public Hashtable<String, Double> tableFitness;
-
+	public Hashtable<EnsembleKey, Double> tableFitness;
+	
+	/**
+	 *  Archive on disk of the fitness of the evaluated individuals, or null if it is not used */
+	protected FitnessArchive fitnessArchive;
+	
 	/**
 	 *  Random numbers generator */
 	protected IRandGenFactory randGenFactory;
@@ -107,6 +117,82 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 	 *  Indicates if the coverage ratio is used in fitness */
 	private boolean useCoverage;
 	
+	/**
+	 *  Indicates if the missing base classifiers of all the individuals are built in a single wave before evaluating them */
+	protected boolean trainingWave = true;
+	
+	/**
+	 *  Maximum number of recently evaluated ensembles whose accumulators are kept, or 0 if the fitness is not obtained by differences */
+	protected int deltaCacheSize = 0;
+	
+	/**
+	 *  Accumulators over the validation set of the recently evaluated ensembles, in access order */
+	protected transient LinkedHashMap<EnsembleKey, EnsembleAccumulator> accumulators;
+	
+	/**
+	 *  Indicates if the individuals are screened from their genotype before building their ensembles */
+	protected boolean preScreen = false;
+	
+	/**
+	 *  Fitness that the individuals must be able to reach to pass the screening */
+	protected double screenFitness = Double.NEGATIVE_INFINITY;
+	
+	/**
+	 *  Number of individuals rejected by the screening */
+	protected int numScreened;
+	
+	/**
+	 *  Surrogate model of the fitness, or null if all the individuals are evaluated */
+	protected transient FitnessSurrogate surrogate;
+	
+	/**
+	 *  Fraction of the individuals with best predicted fitness that are evaluated */
+	protected double surrogateFraction = 0.5;
+	
+	/**
+	 *  Probability of evaluating each one of the other individuals */
+	protected double surrogateExploration = 0.1;
+	
+	/**
+	 *  Minimum number of evaluated ensembles to use the surrogate model */
+	protected int surrogateMinSamples = 50;
+	
+	/**
+	 *  Random numbers generator of the exploration of the surrogate model */
+	protected transient IRandGen surrogateRandGen;
+	
+	/**
+	 *  Number of validation instances of the first subsample of the racing, or 0 if the racing is not used */
+	protected int racingMinInstances = 0;
+	
+	/**
+	 *  Factor by which the subsample grows, and the number of raced individuals is reduced, at each step of the racing */
+	protected int racingEta = 2;
+	
+	/**
+	 *  Confidence of the bound on the Example-based F-measure used to stop individuals in the racing */
+	protected double racingConfidence = 0.95;
+	
+	/**
+	 *  Order of the validation instances, whose prefixes are the stratified subsamples of the racing */
+	protected transient int[] racingOrder;
+	
+	/**
+	 *  Number of individuals stopped by the racing in the last call */
+	protected int numRacingStopped;
+	
+	/**
+	 *  Number of individuals evaluated in the last call */
+	protected int numRealEvaluations;
+	
+	/**
+	 *  Number of individuals that got the predicted fitness in the last call */
+	protected int numSurrogateEvaluations;
+	
+	/**
+	 *  Mean absolute error of the surrogate model over the individuals evaluated in the last call, or NaN if it was not used */
+	protected double surrogateError = Double.NaN;
+	
 	/**
 	 *  Indicate if the final individual is going to be evaluated */
 	public boolean finalInd = false;
@@ -186,6 +272,15 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 	public void setDatasetValidation(MultiLabelInstances datasetValidation) {
 		this.datasetValidation = datasetValidation;
 	}
+	
+	/**
+	 * Set validation dataset stored in primitive arrays
+	 * 
+	 * @param denseValidation Validation dataset in primitive arrays
+	 */
+	public void setDenseValidation(DenseDataset denseValidation) {
+		this.denseValidation = denseValidation;
+	}
 
 	/**
 	 * Set the number of classifiers in the ensemble
@@ -242,12 +337,12 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 	}
 	
 	/**
-	 * Set the table storing the classifiers built so far
+	 * Set the store with the classifiers built so far
 	 * 
-	 * @param tableClassifiers Table with built classifiers
+	 * @param modelStore Store with built classifiers
 	 */
-	public void setTable(Hashtable<String, MultiLabelLearner> tableClassifiers) {
-		this.tableClassifiers = tableClassifiers;
+	public void setModelStore(ModelStore modelStore) {
+		this.modelStore = modelStore;
 	}
 	
 	/**
@@ -255,7 +350,7 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 	 * 
 	 * @param tableFitness Table storing the fitness values
 	 */
-	public void setTableFitness(Hashtable<String, Double> tableFitness) {
+	public void setTableFitness(Hashtable<EnsembleKey, Double> tableFitness) {
 		this.tableFitness = tableFitness;
 	}
 	
@@ -279,6 +374,321 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 		this.useCoverage = useCoverage;
 	}
 	
+	/**
+	 * Set the archive on disk where the fitness of the new evaluated individuals is appended
+	 * 
+	 * @param fitnessArchive Fitness archive, or null if it is not used
+	 */
+	public void setFitnessArchive(FitnessArchive fitnessArchive)
+	{
+		this.fitnessArchive = fitnessArchive;
+	}
+	
+	/**
+	 * Set if the missing base classifiers of all the individuals are built in a single wave before evaluating them
+	 * 
+	 * @param trainingWave TRUE to build them in a single wave and FALSE to build them when each individual is evaluated
+	 */
+	public void setTrainingWave(boolean trainingWave)
+	{
+		this.trainingWave = trainingWave;
+	}
+	
+	/**
+	 * Set the number of recently evaluated ensembles whose accumulators over the validation set are kept.
+	 * The fitness of the offspring of these ensembles is obtained only updating the accumulators with the changed base classifiers.
+	 * 
+	 * @param deltaCacheSize Number of ensembles, or 0 to evaluate each ensemble from scratch
+	 */
+	public void setDeltaCacheSize(int deltaCacheSize)
+	{
+		this.deltaCacheSize = deltaCacheSize;
+	}
+	
+	/**
+	 * Set if the individuals are screened from their genotype before building their ensembles
+	 * 
+	 * @param preScreen TRUE to screen the individuals and FALSE otherwise
+	 */
+	public void setPreScreen(boolean preScreen)
+	{
+		this.preScreen = preScreen;
+	}
+	
+	/**
+	 * Set the fitness that the individuals must be able to reach to pass the screening, usually the fitness of the worst individual of the population
+	 * 
+	 * @param screenFitness Minimum fitness
+	 */
+	public void setScreenFitness(double screenFitness)
+	{
+		this.screenFitness = screenFitness;
+	}
+	
+	/**
+	 * Get the number of individuals rejected by the screening
+	 * 
+	 * @return Number of rejected individuals
+	 */
+	public int getNumScreened()
+	{
+		return numScreened;
+	}
+	
+	/**
+	 * Set the surrogate model of the fitness
+	 * 
+	 * @param surrogate Surrogate model, or null if all the individuals are evaluated
+	 */
+	public void setSurrogate(FitnessSurrogate surrogate)
+	{
+		this.surrogate = surrogate;
+	}
+	
+	/**
+	 * Get the surrogate model of the fitness
+	 * 
+	 * @return Surrogate model, or null if all the individuals are evaluated
+	 */
+	public FitnessSurrogate getSurrogate()
+	{
+		return surrogate;
+	}
+	
+	/**
+	 * Set the fraction of the individuals with best predicted fitness that are evaluated
+	 * 
+	 * @param surrogateFraction Fraction of individuals
+	 */
+	public void setSurrogateFraction(double surrogateFraction)
+	{
+		this.surrogateFraction = surrogateFraction;
+	}
+	
+	/**
+	 * Set the probability of evaluating each one of the individuals not included in the best fraction
+	 * 
+	 * @param surrogateExploration Probability
+	 */
+	public void setSurrogateExploration(double surrogateExploration)
+	{
+		this.surrogateExploration = surrogateExploration;
+	}
+	
+	/**
+	 * Set the minimum number of evaluated ensembles to use the surrogate model
+	 * 
+	 * @param surrogateMinSamples Minimum number of ensembles
+	 */
+	public void setSurrogateMinSamples(int surrogateMinSamples)
+	{
+		this.surrogateMinSamples = surrogateMinSamples;
+	}
+	
+	/**
+	 * Set the number of validation instances of the first subsample of the racing
+	 * 
+	 * @param racingMinInstances Number of instances, or 0 to evaluate all individuals over the full validation set
+	 */
+	public void setRacingMinInstances(int racingMinInstances)
+	{
+		this.racingMinInstances = racingMinInstances;
+	}
+	
+	/**
+	 * Set the factor by which the subsample grows, and the number of raced individuals is reduced, at each step of the racing
+	 * 
+	 * @param racingEta Factor, at least 2
+	 * 
+	 * @throws IllegalArgumentException if the factor is less than 2, since the subsamples would not shrink
+	 */
+	public void setRacingEta(int racingEta)
+	{
+		if(racingEta < 2)
+			throw new IllegalArgumentException("The racing eta must be at least 2, but it is " + racingEta);
+		
+		this.racingEta = racingEta;
+	}
+	
+	/**
+	 * Set the confidence of the bound on the Example-based F-measure used to stop individuals in the racing
+	 * 
+	 * @param racingConfidence Confidence, between 0 and 1
+	 */
+	public void setRacingConfidence(double racingConfidence)
+	{
+		this.racingConfidence = racingConfidence;
+	}
+	
+	/**
+	 * Set the level of fidelity used to evaluate the individuals from now on.
+	 * The base classifiers are built over the training set of the level, and they and the fitness are stored only in the level,
+	 *  so the accumulators kept for the evaluation by differences are removed.
+	 *
+	 * @param level Level of fidelity
+	 */
+	public synchronized void setFidelity(FidelityLevel level)
+	{
+		this.datasetTrain = level.getDatasetTrain();
+		this.modelStore = level.getModelStore();
+		this.tableFitness = level.getTableFitness();
+		this.fitnessArchive = level.getFitnessArchive();
+	
+		if(accumulators != null)
+			accumulators.clear();
+	}
+	
+	/**
+	 * Get the number of validation instances of the first subsample of the racing
+	 * 
+	 * @return Number of instances, or 0 if the racing is not used
+	 */
+	public int getRacingMinInstances()
+	{
+		return racingMinInstances;
+	}
+	
+	/**
+	 * Get the number of individuals stopped by the racing in the last call
+	 * 
+	 * @return Number of individuals with a partial fitness
+	 */
+	public int getNumRacingStopped()
+	{
+		return numRacingStopped;
+	}
+	
+	/**
+	 * Evaluate an individual over the full validation set, even if it already has a partial or predicted fitness
+	 * 
+	 * @param ind Individual
+	 */
+	public void evaluateFully(IIndividual ind)
+	{
+		ind.setFitness(null);
+		evaluate(ind);
+		
+		//The individual can not be evaluated, so it gets the worst fitness
+		if(ind.getFitness() == null)
+			ind.setFitness(new SimpleValueFitness(0));
+	}
+	
+	/**
+	 * Evaluate in parallel a set of individuals over the full validation set, even if they already have a fitness.
+	 * Neither the screening, nor the surrogate model, nor the racing are applied, but the training wave is.
+	 * 
+	 * @param inds Individuals
+	 */
+	public void evaluateFully(List<IIndividual> inds)
+	{
+		for(int i=0; i<inds.size(); i++)
+		{
+			inds.get(i).setFitness(null);
+		}
+		
+		if(trainingWave)
+			trainMissingModels(inds);
+		
+		super.evaluate(inds);
+		
+		//The individuals that can not be evaluated get the worst fitness
+		for(int i=0; i<inds.size(); i++)
+		{
+			if(inds.get(i).getFitness() == null)
+				inds.get(i).setFitness(new SimpleValueFitness(0));
+		}
+		
+		if(fitnessArchive != null)
+			fitnessArchive.flush();
+	}
+	
+	/**
+	 * Get the number of individuals evaluated over the full validation set in the last call.
+	 * The ones stopped by the racing are not included, and they are given by getNumRacingStopped().
+	 * 
+	 * @return Number of evaluated individuals
+	 */
+	public int getNumRealEvaluations()
+	{
+		return numRealEvaluations;
+	}
+	
+	/**
+	 * Get the number of individuals that got the fitness predicted by the surrogate model in the last call
+	 * 
+	 * @return Number of individuals
+	 */
+	public int getNumSurrogateEvaluations()
+	{
+		return numSurrogateEvaluations;
+	}
+	
+	/**
+	 * Get the mean absolute error of the surrogate model over the individuals evaluated in the last call
+	 * 
+	 * @return Mean absolute error, or NaN if the surrogate model was not used or no individual was evaluated over the full validation set
+	 */
+	public double getSurrogateError()
+	{
+		return surrogateError;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * If the screening is enabled, the individuals that can not reach the screening fitness are rejected before building any base classifier.
+	 * If the surrogate model is used, only the individuals with best predicted fitness and some random ones are evaluated.
+	 * If the training wave is enabled, all the missing base classifiers of the individuals are built in parallel before evaluating them.
+	 * If the racing is enabled, only the individuals that survive it are evaluated over the full validation set.
+	 */
+	@Override
+	public void evaluate(List<IIndividual> inds)
+	{
+		if(preScreen && !finalInd)
+			screen(inds);
+		
+		//Individuals evaluated because of the surrogate model, and their predicted fitness
+		ArrayList<IIndividual> predictedInds = new ArrayList<IIndividual>();
+		ArrayList<Double> predictions = new ArrayList<Double>();
+		if(surrogate != null && !finalInd)
+			applySurrogate(inds, predictedInds, predictions);
+		
+		if(trainingWave && !finalInd)
+			trainMissingModels(inds);
+		
+		if(racingMinInstances > 0 && !finalInd)
+		{
+			race(inds);
+			
+			//The individuals stopped by the racing are not evaluated over the full validation set
+			if(surrogate != null)
+				numRealEvaluations -= numRacingStopped;
+		}
+		
+		super.evaluate(inds);
+		
+		//The error is only measured over the individuals with the fitness obtained over the full validation set
+		if(predictedInds.size() > 0)
+		{
+			double error = 0;
+			int count = 0;
+			for(int i=0; i<predictedInds.size(); i++)
+			{
+				IFitness fitness = predictedInds.get(i).getFitness();
+				if(fitness != null && !(fitness instanceof EstimatedValueFitness))
+				{
+					error += Math.abs(((IValueFitness) fitness).getValue() - predictions.get(i));
+					count++;
+				}
+			}
+			if(count > 0)
+				surrogateError = error / count;
+		}
+		
+		if(fitnessArchive != null)
+			fitnessArchive.flush();
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------ Overwriting AbstractEvaluator methods
 	/////////////////////////////////////////////////////////////////
@@ -287,88 +697,539 @@ public class EnsembleMLCEvaluator extends AbstractParallelEvaluator
 	protected void evaluate(IIndividual ind) 
 	{
 		// Individual genotype
-		byte[] genotype = ((BinArrayIndividual) ind).getGenotype();
-
-		EnsembleClassifier classifier = new EnsembleClassifier(maxNumberLabelsClassifier, numberClassifiers, predictionThreshold, variable, new LabelPowerset(new J48()), genotype, tableClassifiers, randGenFactory.createRandGen());
+		byte[] genotype = getByteGenotype(ind);
+		
+		// Obtain the key identifying the ensemble
+		EnsembleKey s = getEnsembleKey(ind);
 		
-		Evaluator eval = new Evaluator();
+		//Try to get the individual fitness from the table, before building the ensemble
+		if(!finalInd)
+		{
+			Double storedFitness = tableFitness.get(s);
+			if(storedFitness != null)
+			{
+				ind.setFitness(new SimpleValueFitness(storedFitness.doubleValue()));
+				return;
+			}
+		}
+
+		EnsembleClassifier classifier = createClassifier(genotype);
 
         try {
         	// Build classifier using train data
         	classifier.build(datasetTrain);
-        	    
-        	List<Measure> measures = new ArrayList<Measure>();  
-        	//Add only the measure to use
-//  	       	measures.add(new HammingLoss());
-  	       	measures.add(new ExampleBasedFMeasure());
-  	       	Evaluation results;
-  	       	  	
-  	       	// Obtain ensembleMatrix
-  	       	String s = classifier.getOrderedStringFromEnsembleMatrix();
-  	       	  	
-  	       	double fitness = -1;
-  	       	//Try to get the individual fitness from the table
-  	       	
-  	       	if(tableFitness.containsKey(s) && !finalInd)
-  	       	{
-  	       		fitness = tableFitness.get(s).doubleValue();
-  	       	}
-  	       	else
-  	       	{
-  	       		//Calculate base fitness (1-HLoss) with validation set
-  	       		results = eval.evaluate(classifier, datasetValidation, measures);
-//  	       		MultipleEvaluation mResults = eval.crossValidate(classifier, datasetTrain, measures, 3);
-  	       		
-  	       		fitness = results.getMeasures().get(0).getValue();
-//	       		fitness = mResults.getMean("Example-Based F Measure");
-  	       		if(finalInd) {
-	       			finalMeasure = fitness;
-	       		}
-
-     	  		if(useCoverage)
-     	  		{
-     	  			int [] v = classifier.getVotesPerLabel();
-     	  			double expectedVotes = 0;
-     	  			for(int i=0; i<v.length; i++)
-     	  			{
-     	  				expectedVotes += v[i];
-     	  			}
-     	  			expectedVotes = expectedVotes/v.length;
-     	  			//System.out.println("expectedVotes: " + expectedVotes);
-     	  			double distance = 0;
-     				for(int i=0; i<getDatasetTrain().getNumLabels(); i++)
-     				{
-     					distance += (double)Math.pow(expectedVotes - v[i], 2);
-     				}
-     				
-     				distance = Math.sqrt(distance) / datasetTrain.getNumLabels();
-     				if(finalInd) {
-     					System.out.println("distance: " + distance + " -> fitness: " + fitness);
-     				}
-     				//Maximize [(ExF) + (1-coverage)]
-     				if(finalInd) {
-    	       			finalCoverage = distance;
-    	       		}
-     				fitness = (fitness + (1-distance))/2;
-     				
-     	  		}
-     	  		
-     	  		if(finalInd) {
-     	  			finalFitness = fitness;
-	       		}     	  		
-  	       	  	tableFitness.put(s, fitness);
-  	       	  	if(finalInd) {
-					System.out.println("finalFitness: " + fitness);
+        	
+        	//Calculate base fitness (ExF) with validation set, combining the stored predictions of the base classifiers
+        	double fitness;
+        	if(deltaCacheSize > 0)
+        		fitness = evaluateMeasure(classifier, s, (ind instanceof IEnsembleIndividual) ? ((IEnsembleIndividual) ind).getParentKey() : null);
+        	else
+        		fitness = evaluateMeasure(classifier);
+        	if(finalInd) {
+        		finalMeasure = fitness;
+        	}
+        	
+        	if(useCoverage)
+        	{
+        		double distance = coverageDistance(classifier.getVotesPerLabel());
+        		if(finalInd) {
+        			System.out.println("distance: " + distance + " -> fitness: " + fitness);
+        		}
+        		//Maximize [(ExF) + (1-coverage)]
+        		if(finalInd) {
+        			finalCoverage = distance;
+        		}
+        		fitness = (fitness + (1-distance))/2;
+        	}
+        	
+        	if(finalInd) {
+        		finalFitness = fitness;
+        	}
+        	if(tableFitness.put(s, fitness) == null && fitnessArchive != null && !finalInd) {
+        		fitnessArchive.add(s, fitness);
+        	}
+        	if(finalInd) {
+        		System.out.println("finalFitness: " + fitness);
+        	}
+        	
+        	ind.setFitness(new SimpleValueFitness(fitness));
+        	
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}	
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Get the key identifying the ensemble of an individual.
+	 * It is inherited from the parents if possible or obtained directly from the genotype otherwise.
+	 * 
+	 * @param ind Individual
+	 * 
+	 * @return Key identifying the ensemble
+	 */
+	protected EnsembleKey getEnsembleKey(IIndividual ind)
+	{
+		if(ind instanceof IEnsembleIndividual)
+			return ((IEnsembleIndividual) ind).getEnsembleKey(datasetTrain.getNumLabels());
+		else
+			return EnsembleKey.fromGenotype(((BinArrayIndividual) ind).getGenotype(), numberClassifiers, datasetTrain.getNumLabels());
+	}
+	
+	/**
+	 * Get the genotype of an individual with one byte per label, as used by the ensemble classifier
+	 * 
+	 * @param ind Individual
+	 * 
+	 * @return Genotype with one byte per label
+	 */
+	protected byte[] getByteGenotype(IIndividual ind)
+	{
+		if(ind instanceof IEnsembleIndividual)
+			return ((IEnsembleIndividual) ind).toByteGenotype(datasetTrain.getNumLabels());
+		else
+			return ((BinArrayIndividual) ind).getGenotype();
+	}
+	
+	/**
+	 * Calculate the coverage term of the fitness: the distance between the votes of each label and the average votes of all labels
+	 * 
+	 * @param votesPerLabel Number of base classifiers including each label
+	 * 
+	 * @return Distance, normalized by the number of labels
+	 */
+	protected double coverageDistance(int[] votesPerLabel)
+	{
+		double expectedVotes = 0;
+		for(int i=0; i<votesPerLabel.length; i++)
+		{
+			expectedVotes += votesPerLabel[i];
+		}
+		expectedVotes = expectedVotes/votesPerLabel.length;
+		
+		double distance = 0;
+		for(int i=0; i<votesPerLabel.length; i++)
+		{
+			distance += (double)Math.pow(expectedVotes - votesPerLabel[i], 2);
+		}
+		
+		return Math.sqrt(distance) / votesPerLabel.length;
+	}
+	
+	/**
+	 * Reject, only from their genotype, the individuals to evaluate whose ensembles are not valid or can not reach the screening fitness.
+	 * An ensemble is not valid if it has base classifiers with less than two labels or with all labels, or repeated base classifiers, as the ones not created by EME.
+	 * The best fitness that a valid ensemble may reach is the one with a perfect F-measure, so it only depends on the coverage.
+	 * The rejected individuals get this bound as fitness (or 0 if they are not valid), marked as a SCREENED EstimatedValueFitness,
+	 *  and it is not stored in the table of fitness.
+	 * 
+	 * @param inds Individuals to evaluate
+	 */
+	protected void screen(List<IIndividual> inds)
+	{
+		int numLabels = datasetTrain.getNumLabels();
+		
+		for(int i=0; i<inds.size(); i++)
+		{
+			IIndividual ind = inds.get(i);
+			if(ind.getFitness() != null)
+				continue;
+			
+			EnsembleKey key = getEnsembleKey(ind);
+			if(tableFitness.containsKey(key))
+				continue;
+			
+			//Validity of each base classifier, and repeated ones (adjacent once ordered)
+			LabelSubset[] ordered = key.getOrderedSubsets();
+			boolean valid = true;
+			for(int model=0; model<ordered.length && valid; model++)
+			{
+				int size = ordered[model].size();
+				if(size < 2 || size == numLabels || (model > 0 && ordered[model].equals(ordered[model-1])))
+					valid = false;
+			}
+			
+			if(!valid)
+			{
+				ind.setFitness(new EstimatedValueFitness(0, EstimatedValueFitness.SCREENED));
+				numScreened++;
+				continue;
+			}
+			
+			//Best reachable fitness
+			double bound = 1;
+			if(useCoverage)
+			{
+				int[] votesPerLabel = new int[numLabels];
+				for(int model=0; model<ordered.length; model++)
+				{
+					int[] activeLabels = ordered[model].getActiveLabels();
+					for(int k=0; k<activeLabels.length; k++)
+					{
+						votesPerLabel[activeLabels[k]]++;
+					}
 				}
-  	       	}
-  	       	  	
-  	       	ind.setFitness(new SimpleValueFitness(fitness));
-
-			} catch (IllegalArgumentException e) {
+				bound = (1 + (1 - coverageDistance(votesPerLabel)))/2;
+			}
+			
+			if(bound < screenFitness)
+			{
+				ind.setFitness(new EstimatedValueFitness(bound, EstimatedValueFitness.SCREENED));
+				numScreened++;
+			}
+		}
+	}
+	
+	/**
+	 * Predict, by means of the surrogate model fitted again with all the evaluated ensembles, the fitness of the individuals to evaluate.
+	 * Only a fraction of them with best predicted fitness, and each one of the other ones with the exploration probability, are evaluated.
+	 * The other ones get the predicted fitness, marked as a SURROGATE EstimatedValueFitness, and it is not stored in the table of fitness.
+	 * 
+	 * @param inds Individuals to evaluate
+	 * @param predictedInds List where the individuals to evaluate with a predicted fitness are added
+	 * @param predictions List where their predicted fitness are added
+	 */
+	protected void applySurrogate(List<IIndividual> inds, List<IIndividual> predictedInds, List<Double> predictions)
+	{
+		//Individuals that need an evaluation
+		ArrayList<IIndividual> pending = new ArrayList<IIndividual>();
+		for(int i=0; i<inds.size(); i++)
+		{
+			IIndividual ind = inds.get(i);
+			if(ind.getFitness() == null && !tableFitness.containsKey(getEnsembleKey(ind)))
+				pending.add(ind);
+		}
+		numRealEvaluations = pending.size();
+		numSurrogateEvaluations = 0;
+		surrogateError = Double.NaN;
+		
+		surrogate.fit(tableFitness);
+		if(surrogate.getNumSamples() < surrogateMinSamples || pending.isEmpty())
+			return;
+		
+		if(surrogateRandGen == null)
+			surrogateRandGen = randGenFactory.createRandGen();
+		
+		//Order the individuals by predicted fitness
+		final double[] predicted = new double[pending.size()];
+		Integer[] order = new Integer[pending.size()];
+		for(int i=0; i<pending.size(); i++)
+		{
+			predicted[i] = surrogate.predict(getEnsembleKey(pending.get(i)));
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(predicted[b], predicted[a]);
+			}
+		});
+		
+		int numBest = (int) Math.ceil(surrogateFraction * pending.size());
+		for(int r=0; r<order.length; r++)
+		{
+			int i = order[r];
+			if(r < numBest || surrogateRandGen.coin(surrogateExploration))
+			{
+				predictedInds.add(pending.get(i));
+				predictions.add(predicted[i]);
+			}
+			else
+			{
+				pending.get(i).setFitness(new EstimatedValueFitness(predicted[i], EstimatedValueFitness.SURROGATE));
+				numSurrogateEvaluations++;
+			}
+		}
+		numRealEvaluations -= numSurrogateEvaluations;
+	}
+	
+	/**
+	 * Create the ensemble classifier of a genotype, storing the predictions of its base classifiers over the validation set
+	 * 
+	 * @param genotype Genotype with one byte per label
+	 * 
+	 * @return Ensemble classifier, not built yet
+	 */
+	protected EnsembleClassifier createClassifier(byte[] genotype)
+	{
+		EnsembleClassifier classifier = new EnsembleClassifier(maxNumberLabelsClassifier, numberClassifiers, predictionThreshold, variable, modelStore.getBaseLearner().createLearner(null), genotype, modelStore, randGenFactory.createRandGen());
+		classifier.setDatasetValidation(datasetValidation, getDenseValidation());
+		return classifier;
+	}
+	
+	/**
+	 * Race the individuals to evaluate over growing stratified subsamples of the validation set, as in successive halving.
+	 * At each step, the Example-based F-measure of the raced individuals is updated with the new instances of the subsample,
+	 *  and only the best 1/eta of them go on to the next subsample, which is eta times larger.
+	 * Besides, an individual is stopped when even the upper bound of its F-measure (Hoeffding bound with the racing confidence)
+	 *  can not reach the screening fitness. The stopped individuals get the estimated fitness, marked as a PARTIAL EstimatedValueFitness,
+	 *  and it is not stored in the table of fitness. The individuals that reach the full validation set are evaluated as usual.
+	 * The base classifiers of all the raced individuals are built in parallel before the first step, if the training wave did not build them yet.
+	 * 
+	 * @param inds Individuals to evaluate
+	 */
+	protected void race(List<IIndividual> inds)
+	{
+		numRacingStopped = 0;
+		
+		//Individuals that need an evaluation
+		ArrayList<IIndividual> raced = new ArrayList<IIndividual>();
+		for(int i=0; i<inds.size(); i++)
+		{
+			IIndividual ind = inds.get(i);
+			if(ind.getFitness() == null && !tableFitness.containsKey(getEnsembleKey(ind)))
+				raced.add(ind);
+		}
+		
+		DenseDataset truth = getDenseValidation();
+		int numInstances = truth.getNumInstances();
+		if(raced.size() < 2 || numInstances <= racingMinInstances)
+			return;
+		
+		//Sizes of the subsamples, each one eta times larger than the previous one
+		ArrayList<Integer> sizes = new ArrayList<Integer>();
+		for(long size=numInstances/racingEta; size>=racingMinInstances; size/=racingEta)
+		{
+			sizes.add(0, (int) size);
+		}
+		if(sizes.isEmpty())
+			return;
+		
+		//The missing base classifiers are built in a single parallel wave, so the ensembles only combine stored base classifiers
+		if(!trainingWave)
+			trainMissingModels(raced);
+		
+		//Aggregator of the votes and coverage of each raced individual
+		VoteAggregator[] aggregators = new VoteAggregator[raced.size()];
+		double[] coverage = new double[raced.size()];
+		for(int i=0; i<raced.size(); i++)
+		{
+			EnsembleClassifier classifier = createClassifier(getByteGenotype(raced.get(i)));
+			try {
+				classifier.build(datasetTrain);
+			} catch (Exception e) {
 				e.printStackTrace();
+			}
+			if(classifier.getModelPredictions() != null)
+				aggregators[i] = new VoteAggregator(classifier.getModelPredictions(), truth.getNumLabels(), numInstances);
+			if(useCoverage)
+				coverage[i] = 1 - coverageDistance(classifier.getVotesPerLabel());
+		}
+		
+		int[] order = getRacingOrder();
+		final double[] sums = new double[raced.size()];
+		ArrayList<Integer> alive = new ArrayList<Integer>();
+		for(int i=0; i<raced.size(); i++)
+		{
+			if(aggregators[i] != null)
+				alive.add(i);
+		}
+		
+		int evaluated = 0;
+		for(int step=0; step<sizes.size() && alive.size()>1; step++)
+		{
+			int size = sizes.get(step);
+			for(int a=0; a<alive.size(); a++)
+			{
+				int i = alive.get(a);
+				long[] predicted = aggregators[i].bipartitions(predictionThreshold, order, evaluated, size);
+				sums[i] += PackedMeasures.exampleBasedFMeasureSum(predicted, truth.getLabels(), order, evaluated, size, truth.getNumLabelWords());
+			}
+			evaluated = size;
+			
+			//Order the raced individuals by their estimated F-measure
+			Collections.sort(alive, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(sums[b], sums[a]);
+				}
+			});
+			
+			double bound = Math.sqrt(Math.log(1 / (1 - racingConfidence)) / (2.0 * evaluated));
+			int numKept = Math.max(1, (int) Math.ceil((double) alive.size() / racingEta));
+			ArrayList<Integer> kept = new ArrayList<Integer>();
+			for(int a=0; a<alive.size(); a++)
+			{
+				int i = alive.get(a);
+				double estimate = sums[i] / evaluated;
+				double upper = Math.min(1, estimate + bound);
+				if(useCoverage)
+				{
+					estimate = (estimate + coverage[i])/2;
+					upper = (upper + coverage[i])/2;
+				}
+				
+				if(a < numKept && upper >= screenFitness)
+				{
+					kept.add(i);
+				}
+				else
+				{
+					raced.get(i).setFitness(new EstimatedValueFitness(estimate, EstimatedValueFitness.PARTIAL));
+					numRacingStopped++;
+				}
+			}
+			alive = kept;
+		}
+	}
+	
+	/**
+	 * Get the order of the validation instances used in the racing, obtained only the first time.
+	 * The instances are stratified by their combination of labels, so any prefix of the order is a stratified subsample.
+	 * 
+	 * @return Order of the instances
+	 */
+	protected synchronized int[] getRacingOrder()
+	{
+		if(racingOrder == null)
+			racingOrder = getDenseValidation().stratifiedOrder(randGenFactory.createRandGen());
+		
+		return racingOrder;
+	}
+	
+	/**
+	 * Build, in a single parallel wave, the base classifiers needed by the individuals to evaluate that have not been built yet.
+	 * The individuals already evaluated or whose fitness is stored in the table are not considered,
+	 *  and each subset of labels is only built once, although it appears in several individuals.
+	 * 
+	 * @param inds Individuals to evaluate
+	 */
+	protected void trainMissingModels(List<IIndividual> inds)
+	{
+		//Collect the missing subsets of labels
+		HashSet<LabelSubset> missing = new HashSet<LabelSubset>();
+		for(int i=0; i<inds.size(); i++)
+		{
+			IIndividual ind = inds.get(i);
+			if(ind.getFitness() != null)
+				continue;
+			
+			EnsembleKey key = getEnsembleKey(ind);
+			if(tableFitness.containsKey(key))
+				continue;
+			
+			for(int model=0; model<key.getNumSubsets(); model++)
+			{
+				if(!modelStore.contains(key.getSubset(model)))
+					missing.add(key.getSubset(model));
+			}
+		}
+		
+		//Request all of them, so they are built in parallel
+		ArrayList<LabelSubset> subsets = new ArrayList<LabelSubset>(missing);
+		ArrayList<Future<BaseModel>> futures = new ArrayList<Future<BaseModel>>(subsets.size());
+		for(int i=0; i<subsets.size(); i++)
+		{
+			futures.add(modelStore.request(subsets.get(i), new BaseModelTrainer(subsets.get(i), datasetTrain, datasetValidation, getDenseValidation(), modelStore.getDiskStore(), modelStore.getBaseLearner())));
+		}
+		
+		//Wait for the whole wave
+		for(int i=0; i<subsets.size(); i++)
+		{
+			try {
+				modelStore.get(subsets.get(i), futures.get(i));
 			} catch (Exception e) {
 				e.printStackTrace();
-			}	
+			}
+		}
+	}
+	
+	/**
+	 * Calculate the Example-based F-measure of a built ensemble over the validation set.
+	 * The bipartitions of the ensemble are obtained in a single batch from the stored predictions of its base classifiers,
+	 *  so no base classifier is executed over the validation set, and they are compared with the true labels through their bits.
+	 * 
+	 * @param classifier Built ensemble classifier
+	 * 
+	 * @return Example-based F-measure
+	 */
+	protected double evaluateMeasure(EnsembleClassifier classifier)
+	{
+		long [] predicted = classifier.predictBipartitions(datasetValidation);
+		DenseDataset truth = getDenseValidation();
+		
+		return PackedMeasures.exampleBasedFMeasure(predicted, truth.getLabels(), truth.getNumInstances(), truth.getNumLabelWords());
+	}
+	
+	/**
+	 * Calculate the Example-based F-measure of a built ensemble over the validation set, by means of its accumulators.
+	 * If the accumulators of the ensemble it was derived from are kept, only the changed base classifiers are considered.
+	 * The accumulators of the ensemble are kept for its own offspring.
+	 * 
+	 * @param classifier Built ensemble classifier
+	 * @param key Key identifying the ensemble
+	 * @param parentKey Key of the ensemble it was derived from, or null if it is unknown
+	 * 
+	 * @return Example-based F-measure
+	 */
+	protected double evaluateMeasure(EnsembleClassifier classifier, EnsembleKey key, EnsembleKey parentKey)
+	{
+		EnsembleAccumulator parent = null;
+		if(parentKey != null)
+			parent = getAccumulator(parentKey);
+		
+		EnsembleAccumulator accumulator;
+		if(parent != null)
+			accumulator = parent.derive(classifier.getSubsets(), classifier.getModelPredictions());
+		else
+			accumulator = new EnsembleAccumulator(classifier.getSubsets(), classifier.getModelPredictions(), datasetValidation.getNumLabels(), datasetValidation.getNumInstances());
+		putAccumulator(key, accumulator);
+		
+		DenseDataset truth = getDenseValidation();
+		return PackedMeasures.exampleBasedFMeasure(accumulator.bipartitions(predictionThreshold), truth.getLabels(), truth.getNumInstances(), truth.getNumLabelWords());
+	}
+	
+	/**
+	 * Get the accumulators of a recently evaluated ensemble
+	 * 
+	 * @param key Key identifying the ensemble
+	 * 
+	 * @return Accumulators of the ensemble, or null if they are not kept
+	 */
+	protected synchronized EnsembleAccumulator getAccumulator(EnsembleKey key)
+	{
+		if(accumulators == null)
+			return null;
+		return accumulators.get(key);
+	}
+	
+	/**
+	 * Keep the accumulators of an evaluated ensemble, removing the least recently used ones if there are too many
+	 * 
+	 * @param key Key identifying the ensemble
+	 * @param accumulator Accumulators of the ensemble
+	 */
+	@SuppressWarnings("serial")
+	protected synchronized void putAccumulator(EnsembleKey key, EnsembleAccumulator accumulator)
+	{
+		if(accumulators == null)
+		{
+			accumulators = new LinkedHashMap<EnsembleKey, EnsembleAccumulator>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<EnsembleKey, EnsembleAccumulator> eldest) {
+					return size() > deltaCacheSize;
+				}
+			};
+		}
+		accumulators.put(key, accumulator);
+	}
+	
+	/**
+	 * Get the validation set stored in primitive arrays.
+	 * It is only built the first time, if it was not provided.
+	 * 
+	 * @return Validation dataset in primitive arrays
+	 */
+	protected synchronized DenseDataset getDenseValidation()
+	{
+		if(denseValidation == null)
+			denseValidation = new DenseDataset(datasetValidation);
+		
+		return denseValidation;
 	}
-
 }
\ No newline at end of file
@@ -0,0 +1,333 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import eme.learner.LabelPowersetEncoder;
+import eme.learner.LabelPowersetTree;
+import eme.learner.PresortedTreeLearner;
+import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.transformation.LabelPowerset;
+import mulan.data.MultiLabelInstances;
+import mulan.evaluation.GroundTruth;
+import mulan.evaluation.measure.ExampleBasedFMeasure;
+import mulan.transformations.LabelPowersetTransformation;
+import weka.classifiers.trees.J48;
+import weka.core.Instances;
+
+/**
+ * Class comparing the primitive-array implementations of EME with the Mulan and Weka ones they replace, over a given dataset:
+ *  - PackedMeasures with ExampleBasedFMeasure of Mulan
+ *  - LabelPowersetEncoder with the LP transformation of Mulan
+ *  - LP with the trees of PresortedTreeLearner with LP with J48 without subtree raising, as PresortedTreeLearner does not raise subtrees
+ *  - The predictions of the trees over the columns of the dataset with the ones of each instance
+ *
+ * The trees are only compared if the training set has no missing values, since PresortedTreeLearner sends an instance
+ *  with a missing value only to the largest branch, while J48 sends it to all the branches.
+ * Even then, the splits with the same gain ratio may be chosen in a different order, and the counts of the nodes are added in a different order,
+ *  so the differences with J48 are reported as known deviations, and they do not make the check fail.
+ * The rest of comparisons are exact, so it ends with an error status if any of them does not match.
+ */
+public class EquivalenceCheck
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Usage message */
+	private static final String USAGE_MES = "\teme.EquivalenceCheck <train arff> <test arff> <xml>\t\t(Compare with Mulan and Weka)";
+
+	/**
+	 *  Tolerance of the comparisons of real values */
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 *  Seed of the random bipartitions */
+	private static final long SEED = 10;
+
+	/**
+	 *  Number of failed checks */
+	private static int failed = 0;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Private constructor, it is only run from the main method
+	 */
+	private EquivalenceCheck()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Main method
+	 *
+	 * @param args Train and test arff files, and xml file of the labels
+	 *
+	 * @throws Exception exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if(args.length < 3) {
+			System.out.println("Usage:" + USAGE_MES);
+			System.exit(1);
+		}
+
+		MultiLabelInstances train = new MultiLabelInstances(args[0], args[2]);
+		MultiLabelInstances test = new MultiLabelInstances(args[1], args[2]);
+		DenseDataset denseTrain = new DenseDataset(train);
+		DenseDataset denseTest = new DenseDataset(test);
+
+		checkEncoder(train, denseTrain);
+
+		//LP with J48, as the default base classifiers of EME, but without subtree raising
+		J48 j48 = new J48();
+		j48.setSubtreeRaising(false);
+		LabelPowerset lp = new LabelPowerset(j48);
+		lp.build(train);
+		boolean[][] lpBipartitions = new boolean[test.getNumInstances()][];
+		for(int i=0; i<test.getNumInstances(); i++)
+		{
+			lpBipartitions[i] = lp.makePrediction(test.getDataSet().instance(i)).getBipartition();
+		}
+
+		checkFMeasure("LP with J48", lpBipartitions, denseTest);
+		checkFMeasure("random bipartitions", randomBipartitions(test.getNumInstances(), test.getNumLabels()), denseTest);
+		checkTree(train, denseTrain, test, denseTest, lp);
+
+		if(failed > 0) {
+			System.out.println(failed + " checks failed");
+			System.exit(1);
+		}
+		System.out.println("All checks passed");
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Check that LabelPowersetEncoder assigns the same class than the LP transformation of Mulan to each instance,
+	 *  and that the labels of each class are the ones of its combination
+	 *
+	 * @param train Training dataset
+	 * @param denseTrain Training dataset in primitive arrays
+	 *
+	 * @throws Exception exception
+	 */
+	private static void checkEncoder(MultiLabelInstances train, DenseDataset denseTrain) throws Exception
+	{
+		int numLabels = train.getNumLabels();
+		int[] labels = new int[numLabels];
+		for(int j=0; j<numLabels; j++)
+		{
+			labels[j] = j;
+		}
+		LabelPowersetEncoder encoder = new LabelPowersetEncoder(denseTrain, labels);
+		boolean[][] classLabels = encoder.getClassLabels();
+
+		Instances transformed = new LabelPowersetTransformation().transformInstances(train);
+		HashMap<String, Integer> classOf = new HashMap<String, Integer>();
+		int mismatches = 0;
+		for(int i=0; i<transformed.numInstances(); i++)
+		{
+			String combination = transformed.instance(i).stringValue(transformed.classIndex());
+			int c = encoder.getClasses()[i];
+
+			//The classes must be a bijection with the combinations of Mulan
+			Integer previous = classOf.get(combination);
+			if(previous == null)
+				classOf.put(combination, c);
+			else if(previous.intValue() != c)
+				mismatches++;
+
+			for(int j=0; j<numLabels; j++)
+			{
+				if(classLabels[c][j] != (combination.charAt(j) == '1'))
+				{
+					mismatches++;
+					break;
+				}
+			}
+		}
+		if(classOf.size() != encoder.getNumClasses())
+			mismatches++;
+
+		report("LP classes: Mulan " + classOf.size() + ", encoder " + encoder.getNumClasses() + ", mismatched instances " + mismatches, mismatches == 0);
+	}
+
+	/**
+	 * Check that PackedMeasures obtains the same Example-based F-measure than Mulan for some bipartitions
+	 *
+	 * @param name Name of the bipartitions
+	 * @param bipartitions Predicted bipartition of each instance
+	 * @param truth Dataset with the true labels, in primitive arrays
+	 */
+	private static void checkFMeasure(String name, boolean[][] bipartitions, DenseDataset truth)
+	{
+		ExampleBasedFMeasure measure = new ExampleBasedFMeasure();
+		long[] predicted = new long[truth.getNumInstances() * truth.getNumLabelWords()];
+		for(int i=0; i<truth.getNumInstances(); i++)
+		{
+			boolean[] trueLabels = new boolean[truth.getNumLabels()];
+			for(int j=0; j<truth.getNumLabels(); j++)
+			{
+				trueLabels[j] = truth.getLabel(i, j);
+				if(bipartitions[i][j])
+					predicted[i*truth.getNumLabelWords() + (j >>> 6)] |= 1L << j;
+			}
+			measure.update(new MultiLabelOutput(bipartitions[i]), new GroundTruth(trueLabels));
+		}
+
+		double mulan = measure.getValue();
+		double packed = PackedMeasures.exampleBasedFMeasure(predicted, truth.getLabels(), truth.getNumInstances(), truth.getNumLabelWords());
+		report("Example-based F-measure of " + name + ": Mulan " + mulan + ", packed " + packed, Math.abs(mulan - packed) < EPSILON);
+	}
+
+	/**
+	 * Compare the trees of LP with PresortedTreeLearner with the ones of LP with J48 without subtree raising, if the training set has no missing values,
+	 *  and check that the predictions over the columns of the dataset are the same than the ones of each instance
+	 *
+	 * @param train Training dataset
+	 * @param denseTrain Training dataset in primitive arrays
+	 * @param test Test dataset
+	 * @param denseTest Test dataset in primitive arrays
+	 * @param lp LP with J48, built over the training dataset
+	 *
+	 * @throws Exception exception
+	 */
+	private static void checkTree(MultiLabelInstances train, DenseDataset denseTrain, MultiLabelInstances test, DenseDataset denseTest, LabelPowerset lp) throws Exception
+	{
+		PresortedTreeLearner learner = new PresortedTreeLearner();
+		learner.setDatasetTrain(train, denseTrain);
+		LabelPowersetTree tree = (LabelPowersetTree) learner.createLearner(null);
+		tree.build(train);
+
+		boolean compareJ48 = !hasMissingValues(denseTrain);
+		double j48Size = ((J48) lp.getBaseClassifier()).measureTreeSize();
+		if(compareJ48)
+			deviation("Tree size: J48 " + (int) j48Size + ", presorted " + tree.getTree().numNodes(), (int) j48Size == tree.getTree().numNodes());
+		else
+			System.out.println("[SKIP] Comparison with J48: the training set has missing values");
+
+		int numLabels = test.getNumLabels();
+		int[] labels = new int[numLabels];
+		for(int j=0; j<numLabels; j++)
+		{
+			labels[j] = j;
+		}
+		BaseModelPredictions batch = new BaseModelPredictions(labels, test.getNumInstances());
+		tree.makePredictions(denseTest, batch);
+
+		int differentJ48 = 0, differentBatch = 0;
+		double maxConfidenceDiff = 0;
+		for(int i=0; i<test.getNumInstances(); i++)
+		{
+			MultiLabelOutput expected = lp.makePrediction(test.getDataSet().instance(i));
+			MultiLabelOutput actual = tree.makePrediction(test.getDataSet().instance(i));
+
+			boolean sameJ48 = true, sameBatch = true;
+			for(int j=0; j<numLabels; j++)
+			{
+				if(expected.getBipartition()[j] != actual.getBipartition()[j])
+					sameJ48 = false;
+				maxConfidenceDiff = Math.max(maxConfidenceDiff, Math.abs(expected.getConfidences()[j] - actual.getConfidences()[j]));
+				if(batch.getBipartitions()[j][i] != actual.getBipartition()[j] || batch.getConfidences()[j][i] != actual.getConfidences()[j])
+					sameBatch = false;
+			}
+			if(!sameJ48)
+				differentJ48++;
+			if(!sameBatch)
+				differentBatch++;
+		}
+
+		if(compareJ48)
+			deviation("Test bipartitions different from J48: " + differentJ48 + " of " + test.getNumInstances() + ", max confidence difference " + maxConfidenceDiff,
+					differentJ48 == 0 && maxConfidenceDiff < EPSILON);
+		report("Test predictions different between the columns and the instances: " + differentBatch, differentBatch == 0);
+	}
+
+	/**
+	 * Generate random bipartitions, with some empty ones
+	 *
+	 * @param numInstances Number of instances
+	 * @param numLabels Number of labels
+	 *
+	 * @return Bipartition of each instance
+	 */
+	private static boolean[][] randomBipartitions(int numInstances, int numLabels)
+	{
+		Random random = new Random(SEED);
+		boolean[][] bipartitions = new boolean[numInstances][numLabels];
+		for(int i=0; i<numInstances; i++)
+		{
+			if(random.nextInt(5) == 0)
+				continue;
+			for(int j=0; j<numLabels; j++)
+			{
+				bipartitions[i][j] = random.nextBoolean();
+			}
+		}
+		return bipartitions;
+	}
+
+	/**
+	 * Indicates if a dataset has any missing value in its features
+	 *
+	 * @param data Dataset in primitive arrays
+	 *
+	 * @return TRUE if there is a missing value, and FALSE otherwise
+	 */
+	private static boolean hasMissingValues(DenseDataset data)
+	{
+		double[] features = data.getFeatures();
+		for(int i=0; i<features.length; i++)
+		{
+			if(Double.isNaN(features[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Print the result of a comparison with a known deviation, that does not make the check fail
+	 *
+	 * @param message Description of the result
+	 * @param same TRUE if there is no difference and FALSE otherwise
+	 */
+	private static void deviation(String message, boolean same)
+	{
+		System.out.println((same ? "[OK]   " : "[DIFF] ") + message);
+	}
+
+	/**
+	 * Print the result of a check
+	 *
+	 * @param message Description of the result
+	 * @param passed TRUE if the check passed and FALSE otherwise
+	 */
+	private static void report(String message, boolean passed)
+	{
+		System.out.println((passed ? "[OK]   " : "[FAIL] ") + message);
+		if(!passed)
+			failed++;
+	}
+}
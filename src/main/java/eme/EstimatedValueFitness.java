@@ -0,0 +1,122 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.fitness.SimpleValueFitness;
+
+/**
+ * Fitness of an individual that was not obtained by evaluating its ensemble over the full validation set, and it is not stored in the table of fitness.
+ * The kind indicates how it was obtained:
+ *  - PARTIAL: estimated over a subsample of the validation set, because the individual was stopped by the racing of the evaluator
+ *  - SURROGATE: predicted by the surrogate model of the evaluator
+ *  - SCREENED: upper bound of the fitness (or 0 if the ensemble is not valid), because the individual was rejected by the screening
+ *     of the evaluator from its genotype. The individual does not survive to the next generation.
+ */
+public class EstimatedValueFitness extends SimpleValueFitness
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 4417208815736194306L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Fitness estimated over a subsample of the validation set */
+	public static final int PARTIAL = 0;
+
+	/**
+	 *  Fitness predicted by the surrogate model */
+	public static final int SURROGATE = 1;
+
+	/**
+	 *  Upper bound of the fitness of an individual rejected by the screening */
+	public static final int SCREENED = 2;
+
+	/**
+	 *  Names of the kinds, used in toString */
+	private static final String[] KIND_NAMES = {"partial", "surrogate", "screened"};
+
+	/**
+	 *  Kind of estimation */
+	protected int kind;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public EstimatedValueFitness()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that sets the estimated value and its kind
+	 *
+	 * @param value Estimated fitness
+	 * @param kind Kind of estimation (PARTIAL, SURROGATE or SCREENED)
+	 */
+	public EstimatedValueFitness(double value, int kind)
+	{
+		super(value);
+		this.kind = kind;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the kind of estimation
+	 *
+	 * @return PARTIAL, SURROGATE or SCREENED
+	 */
+	public int getKind()
+	{
+		return kind;
+	}
+
+	/**
+	 * Indicates if a fitness is an estimation of a given kind
+	 *
+	 * @param fitness Fitness
+	 * @param kind Kind of estimation
+	 *
+	 * @return TRUE if it is an EstimatedValueFitness of the kind, and FALSE otherwise
+	 */
+	public static boolean isKind(IFitness fitness, int kind)
+	{
+		return (fitness instanceof EstimatedValueFitness) && ((EstimatedValueFitness) fitness).kind == kind;
+	}
+
+	@Override
+	public IFitness copy()
+	{
+		return new EstimatedValueFitness(value, kind);
+	}
+
+	@Override
+	public String toString()
+	{
+		return super.toString() + " (" + KIND_NAMES[kind] + ")";
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+import mulan.data.InvalidDataFormatException;
+import mulan.data.MultiLabelInstances;
+import net.sf.jclec.util.random.IRandGen;
+import weka.core.Instances;
+
+/**
+ * Class representing a level of fidelity of the evaluation of the individuals, used until a given generation.
+ * In each level, the base classifiers are built over a stratified subsample of the training set, and maybe with a faster learner.
+ *
+ * Each level has its own store of base classifiers and table of fitness (and maybe store on disk and fitness archive,
+ *  identified by the subsample and the learner), so the base classifiers and fitness of different levels are never mixed.
+ */
+public class FidelityLevel
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 *  Generation from which this level is not used anymore */
+	protected int until;
+	
+	/**
+	 *  Fraction of the training set used to build the base classifiers */
+	protected double fraction;
+	
+	/**
+	 *  Training set of the base classifiers */
+	protected MultiLabelInstances datasetTrain;
+	
+	/**
+	 *  Store of the base classifiers of this level */
+	protected ModelStore modelStore;
+	
+	/**
+	 *  Table with the fitness of the individuals evaluated in this level */
+	protected Hashtable<EnsembleKey, Double> tableFitness;
+	
+	/**
+	 *  Archive on disk of the fitness of this level, or null if it is not used */
+	protected FitnessArchive fitnessArchive;
+	
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param until Generation from which this level is not used anymore
+	 * @param fraction Fraction of the training set used to build the base classifiers
+	 * @param datasetTrain Training set of the base classifiers
+	 * @param modelStore Store of the base classifiers of this level, with its learner
+	 * @param tableFitness Table with the fitness of the individuals evaluated in this level
+	 * @param fitnessArchive Archive on disk of the fitness of this level, or null if it is not used
+	 */
+	public FidelityLevel(int until, double fraction, MultiLabelInstances datasetTrain, ModelStore modelStore, Hashtable<EnsembleKey, Double> tableFitness, FitnessArchive fitnessArchive)
+	{
+		this.until = until;
+		this.fraction = fraction;
+		this.datasetTrain = datasetTrain;
+		this.modelStore = modelStore;
+		this.tableFitness = tableFitness;
+		this.fitnessArchive = fitnessArchive;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Get the generation from which this level is not used anymore
+	 *
+	 * @return Generation
+	 */
+	public int getUntil()
+	{
+		return until;
+	}
+	
+	/**
+	 * Get the fraction of the training set used to build the base classifiers
+	 *
+	 * @return Fraction of the training set
+	 */
+	public double getFraction()
+	{
+		return fraction;
+	}
+	
+	/**
+	 * Get the training set of the base classifiers
+	 *
+	 * @return Training set
+	 */
+	public MultiLabelInstances getDatasetTrain()
+	{
+		return datasetTrain;
+	}
+	
+	/**
+	 * Get the store of the base classifiers of this level
+	 *
+	 * @return Store of base classifiers
+	 */
+	public ModelStore getModelStore()
+	{
+		return modelStore;
+	}
+	
+	/**
+	 * Get the table with the fitness of the individuals evaluated in this level
+	 *
+	 * @return Table of fitness
+	 */
+	public Hashtable<EnsembleKey, Double> getTableFitness()
+	{
+		return tableFitness;
+	}
+	
+	/**
+	 * Get the archive on disk of the fitness of this level
+	 *
+	 * @return Fitness archive, or null if it is not used
+	 */
+	public FitnessArchive getFitnessArchive()
+	{
+		return fitnessArchive;
+	}
+	
+	/**
+	 * Release the level once it is finished: the pool of threads of its store is stopped and its table of fitness is emptied
+	 */
+	public void release()
+	{
+		modelStore.shutdown();
+		tableFitness.clear();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "until generation " + until + ", fraction " + fraction + ", learner " + modelStore.getBaseLearner().getFormat();
+	}
+	
+	/**
+	 * Obtain a stratified subsample of a dataset, keeping the original order of the instances
+	 *
+	 * @param mlData Multi-label dataset
+	 * @param denseData Same dataset, stored in primitive arrays
+	 * @param fraction Fraction of the instances in the subsample
+	 * @param randGen Random numbers generator
+	 *
+	 * @return Subsample of the dataset
+	 *
+	 * @throws InvalidDataFormatException if the subsample can not be created
+	 */
+	public static MultiLabelInstances subsample(MultiLabelInstances mlData, DenseDataset denseData, double fraction, IRandGen randGen) throws InvalidDataFormatException
+	{
+		int[] order = denseData.stratifiedOrder(randGen);
+		int size = Math.max(1, (int) Math.round(fraction * order.length));
+		int[] selected = Arrays.copyOf(order, size);
+		Arrays.sort(selected);
+		
+		Instances data = mlData.getDataSet();
+		Instances sub = new Instances(data, size);
+		for(int i=0; i<size; i++)
+		{
+			sub.add(data.instance(selected[i]));
+		}
+		
+		return new MultiLabelInstances(sub, mlData.getLabelsMetaData());
+	}
+}
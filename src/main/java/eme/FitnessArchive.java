@@ -0,0 +1,271 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Map;
+
+import mulan.data.MultiLabelInstances;
+
+/**
+ * Class storing on disk the fitness of the evaluated ensembles, so it can be reused in later executions.
+ *
+ * The fitness of an ensemble only depends on the training and validation data, the prediction threshold, the use of the coverage,
+ *  and the ensemble itself. Therefore, the archive is a file named with the SHA-256 hash of all of them except the ensemble,
+ *  and each record stores the ordered bitmasks of the subsets of the ensemble and its fitness, in binary format.
+ * The new records are appended at the end of each generation, locking the file, so several processes can share the same archive.
+ */
+public class FitnessArchive
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Version of the archive, to be changed if the fitness function or the format change */
+	protected static final String FORMAT = "ExF-coverage-v2";
+
+	/**
+	 *  File of the archive */
+	protected File file;
+
+	/**
+	 *  Number of labels of the dataset */
+	protected int numLabels;
+
+	/**
+	 *  Records not written yet */
+	protected ArrayList<Map.Entry<EnsembleKey, Double>> pending;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param directory Directory of the archives, shared by all the datasets
+	 * @param datasetTrain Dataset to build the ensembles
+	 * @param datasetValidation Dataset to evaluate the ensembles
+	 * @param predictionThreshold Threshold for voting process prediction
+	 * @param useCoverage Indicates if the coverage ratio is used in fitness
+	 */
+	public FitnessArchive(String directory, MultiLabelInstances datasetTrain, MultiLabelInstances datasetValidation, double predictionThreshold, boolean useCoverage)
+	{
+		this(directory, datasetTrain, datasetValidation, predictionThreshold, useCoverage, DiskModelStore.FORMAT);
+	}
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param directory Directory of the archives, shared by all the datasets
+	 * @param datasetTrain Dataset to build the ensembles
+	 * @param datasetValidation Dataset to evaluate the ensembles
+	 * @param predictionThreshold Threshold for voting process prediction
+	 * @param useCoverage Indicates if the coverage ratio is used in fitness
+	 * @param learnerFormat Format of the base classifiers, given by the base learner
+	 */
+	public FitnessArchive(String directory, MultiLabelInstances datasetTrain, MultiLabelInstances datasetValidation, double predictionThreshold, boolean useCoverage, String learnerFormat)
+	{
+		File dir = new File(directory);
+		dir.mkdirs();
+
+		String key = FORMAT + "|" + DiskModelStore.hashDataset(datasetTrain, learnerFormat) + "|" + DiskModelStore.hashDataset(datasetValidation) + "|" + Double.doubleToLongBits(predictionThreshold) + "|" + useCoverage;
+		file = new File(dir, sha256(key) + ".fit");
+		numLabels = datasetTrain.getNumLabels();
+		pending = new ArrayList<Map.Entry<EnsembleKey, Double>>();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Load all the records of the archive in a table
+	 *
+	 * @param tableFitness Table where the fitness of the ensembles is stored
+	 *
+	 * @return Number of loaded records
+	 */
+	public int load(Map<EnsembleKey, Double> tableFitness)
+	{
+		if(!file.exists())
+			return 0;
+
+		int numWords = LabelSubset.numWords(numLabels);
+		int loaded = 0;
+		DataInputStream dis = null;
+		try {
+			dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			while(true)
+			{
+				int numSubsets = dis.readInt();
+				if(numSubsets <= 0 || numSubsets > (1 << 20))
+				{
+					System.out.println("Fitness archive " + file + " is damaged, only " + loaded + " records are loaded");
+					break;
+				}
+
+				LabelSubset[] subsets = new LabelSubset[numSubsets];
+				for(int s=0; s<numSubsets; s++)
+				{
+					long[] mask = new long[numWords];
+					for(int w=0; w<numWords; w++)
+					{
+						mask[w] = dis.readLong();
+					}
+					subsets[s] = new LabelSubset(mask, numLabels);
+				}
+				double fitness = dis.readDouble();
+
+				tableFitness.put(new EnsembleKey(subsets), fitness);
+				loaded++;
+			}
+		} catch (EOFException e) {
+			//End of the archive, a truncated last record is ignored
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if(dis != null)
+			{
+				try {
+					dis.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		return loaded;
+	}
+
+	/**
+	 * Add a new record, that is written in the next flush
+	 *
+	 * @param key Key identifying the ensemble
+	 * @param fitness Fitness of the ensemble
+	 */
+	public synchronized void add(EnsembleKey key, double fitness)
+	{
+		pending.add(new AbstractMap.SimpleImmutableEntry<EnsembleKey, Double>(key, fitness));
+	}
+
+	/**
+	 * Append all the new records to the archive, locking the file while they are written
+	 */
+	public synchronized void flush()
+	{
+		if(pending.isEmpty())
+			return;
+
+		int numWords = LabelSubset.numWords(numLabels);
+		int bytes = 0;
+		for(int i=0; i<pending.size(); i++)
+		{
+			bytes += 4 + pending.get(i).getKey().getNumSubsets()*numWords*8 + 8;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(bytes);
+		for(int i=0; i<pending.size(); i++)
+		{
+			LabelSubset[] subsets = pending.get(i).getKey().getOrderedSubsets();
+			buffer.putInt(subsets.length);
+			for(int s=0; s<subsets.length; s++)
+			{
+				long[] mask = subsets[s].getMask();
+				for(int w=0; w<numWords; w++)
+				{
+					buffer.putLong(mask[w]);
+				}
+			}
+			buffer.putDouble(pending.get(i).getValue());
+		}
+		buffer.flip();
+
+		FileOutputStream fos = null;
+		try {
+			fos = new FileOutputStream(file, true);
+			FileChannel channel = fos.getChannel();
+			FileLock lock = channel.lock();
+			try {
+				while(buffer.hasRemaining())
+				{
+					channel.write(buffer);
+				}
+			} finally {
+				lock.release();
+			}
+			pending.clear();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if(fos != null)
+			{
+				try {
+					fos.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the file of the archive
+	 *
+	 * @return File of the archive
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Calculate the SHA-256 hash of a string
+	 *
+	 * @param s String
+	 *
+	 * @return Hexadecimal hash
+	 */
+	private static String sha256(String s)
+	{
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for(int i=0; i<digest.length; i++)
+			{
+				sb.append(String.format("%02x", digest[i]));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
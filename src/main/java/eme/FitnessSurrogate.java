@@ -0,0 +1,388 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Surrogate model predicting the fitness of an ensemble only from its genotype, by means of a ridge regression over these features:
+ *  the coverage term of the fitness, the average, minimum and maximum historical contribution of its subsets of labels
+ *  (the average fitness of the evaluated ensembles including each subset), the fraction of subsets never evaluated,
+ *  and the average absolute phi correlation between the pairs of labels of each subset.
+ *
+ * The model is fitted again from the table of fitness of the evaluator. The historical contribution of a subset in the features
+ *  of an evaluated ensemble excludes the fitness of the ensemble itself, so the training features are not biased by the target.
+ */
+public class FitnessSurrogate
+{
+	/**
+	 *  Number of features, including the intercept */
+	protected static final int NUM_FEATURES = 7;
+
+	/**
+	 *  Regularization of the ridge regression */
+	protected static final double LAMBDA = 1e-3;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Number of labels */
+	protected int numLabels;
+
+	/**
+	 *  Phi correlation between each pair of labels, or null if it is not used */
+	protected double[][] phi;
+
+	/**
+	 *  Sum of the fitness and number of the evaluated ensembles including each subset of labels */
+	protected HashMap<LabelSubset, double[]> contributions;
+
+	/**
+	 *  Average fitness of all the evaluated ensembles */
+	protected double meanFitness;
+
+	/**
+	 *  Mean of each feature over the ensembles used to fit the model */
+	protected double[] featureMeans;
+
+	/**
+	 *  Standard deviation of each feature over the ensembles used to fit the model, or 1 if it is constant */
+	protected double[] featureScales;
+
+	/**
+	 *  Coefficients of the regression over the standardized features, or null if it has not been fitted */
+	protected double[] weights;
+
+	/**
+	 *  Number of ensembles used to fit the model */
+	protected int numSamples;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param numLabels Number of labels
+	 * @param phi Phi correlation between each pair of labels, or null if it is not used
+	 */
+	public FitnessSurrogate(int numLabels, double[][] phi)
+	{
+		this.numLabels = numLabels;
+		this.phi = phi;
+		contributions = new HashMap<LabelSubset, double[]>();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Fit the model with all the evaluated ensembles
+	 *
+	 * @param table Table with the fitness of the evaluated ensembles
+	 */
+	public void fit(Map<EnsembleKey, Double> table)
+	{
+		ArrayList<EnsembleKey> keys = new ArrayList<EnsembleKey>();
+		ArrayList<Double> values = new ArrayList<Double>();
+		synchronized(table)
+		{
+			Iterator<Map.Entry<EnsembleKey, Double>> it = table.entrySet().iterator();
+			while(it.hasNext())
+			{
+				Map.Entry<EnsembleKey, Double> e = it.next();
+				keys.add(e.getKey());
+				values.add(e.getValue());
+			}
+		}
+
+		//Historical contribution of each subset
+		contributions.clear();
+		meanFitness = 0;
+		for(int s=0; s<keys.size(); s++)
+		{
+			double fitness = values.get(s);
+			meanFitness += fitness;
+			for(int model=0; model<keys.get(s).getNumSubsets(); model++)
+			{
+				double[] c = contributions.get(keys.get(s).getSubset(model));
+				if(c == null)
+				{
+					c = new double[2];
+					contributions.put(keys.get(s).getSubset(model), c);
+				}
+				c[0] += fitness;
+				c[1]++;
+			}
+		}
+		numSamples = keys.size();
+		if(numSamples == 0)
+			return;
+		meanFitness /= numSamples;
+
+		//Features standardized, so the regularization is the same for all of them
+		double[][] x = new double[numSamples][];
+		featureMeans = new double[NUM_FEATURES];
+		featureScales = new double[NUM_FEATURES];
+		for(int s=0; s<numSamples; s++)
+		{
+			x[s] = features(keys.get(s), values.get(s));
+			for(int f=1; f<NUM_FEATURES; f++)
+			{
+				featureMeans[f] += x[s][f];
+				featureScales[f] += x[s][f] * x[s][f];
+			}
+		}
+		for(int f=1; f<NUM_FEATURES; f++)
+		{
+			featureMeans[f] /= numSamples;
+			double variance = featureScales[f] / numSamples - featureMeans[f] * featureMeans[f];
+			featureScales[f] = (variance > 1e-12) ? Math.sqrt(variance) : 1;
+		}
+		featureScales[0] = 1;
+
+		//Normal equations of the ridge regression, without penalizing the intercept
+		double[][] a = new double[NUM_FEATURES][NUM_FEATURES];
+		double[] b = new double[NUM_FEATURES];
+		for(int s=0; s<numSamples; s++)
+		{
+			standardize(x[s]);
+			double y = values.get(s);
+			for(int f=0; f<NUM_FEATURES; f++)
+			{
+				for(int g=0; g<NUM_FEATURES; g++)
+				{
+					a[f][g] += x[s][f] * x[s][g];
+				}
+				b[f] += x[s][f] * y;
+			}
+		}
+		for(int f=1; f<NUM_FEATURES; f++)
+		{
+			a[f][f] += LAMBDA * numSamples;
+		}
+
+		weights = solve(a, b);
+	}
+
+	/**
+	 * Predict the fitness of an ensemble.
+	 * The output of the regression is clamped to [0,1], the range of the fitness, so a predicted fitness never beats a perfect one.
+	 *
+	 * @param key Key identifying the ensemble
+	 *
+	 * @return Predicted fitness, or NaN if the model has not been fitted
+	 */
+	public double predict(EnsembleKey key)
+	{
+		if(weights == null)
+			return Double.NaN;
+
+		double[] x = features(key, Double.NaN);
+		standardize(x);
+		double y = 0;
+		for(int f=0; f<NUM_FEATURES; f++)
+		{
+			y += weights[f] * x[f];
+		}
+		return Math.max(0, Math.min(1, y));
+	}
+
+	/**
+	 * Get the number of ensembles used to fit the model
+	 *
+	 * @return Number of ensembles
+	 */
+	public int getNumSamples()
+	{
+		return numSamples;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Obtain the features of an ensemble
+	 *
+	 * @param key Key identifying the ensemble
+	 * @param ownFitness Fitness of the ensemble to exclude from the contributions of its subsets, or NaN if it has not been evaluated
+	 *
+	 * @return Features of the ensemble, starting with the intercept
+	 */
+	protected double[] features(EnsembleKey key, double ownFitness)
+	{
+		int numSubsets = key.getNumSubsets();
+		int[] votesPerLabel = new int[numLabels];
+		double sumContribution = 0, minContribution = Double.POSITIVE_INFINITY, maxContribution = Double.NEGATIVE_INFINITY;
+		double unseen = 0, sumPhi = 0;
+
+		for(int model=0; model<numSubsets; model++)
+		{
+			LabelSubset subset = key.getSubset(model);
+			int[] activeLabels = subset.getActiveLabels();
+			for(int k=0; k<activeLabels.length; k++)
+			{
+				votesPerLabel[activeLabels[k]]++;
+			}
+
+			double[] c = contributions.get(subset);
+			double sum = 0, count = 0;
+			if(c != null)
+			{
+				sum = c[0];
+				count = c[1];
+			}
+			if(!Double.isNaN(ownFitness))
+			{
+				sum -= ownFitness;
+				count--;
+			}
+			double contribution = meanFitness;
+			if(count > 0)
+				contribution = sum / count;
+			else
+				unseen++;
+			sumContribution += contribution;
+			minContribution = Math.min(minContribution, contribution);
+			maxContribution = Math.max(maxContribution, contribution);
+
+			sumPhi += meanAbsPhi(activeLabels);
+		}
+
+		//Coverage term of the fitness
+		double expectedVotes = 0;
+		for(int j=0; j<numLabels; j++)
+		{
+			expectedVotes += votesPerLabel[j];
+		}
+		expectedVotes /= numLabels;
+		double distance = 0;
+		for(int j=0; j<numLabels; j++)
+		{
+			distance += (expectedVotes - votesPerLabel[j]) * (expectedVotes - votesPerLabel[j]);
+		}
+		distance = Math.sqrt(distance) / numLabels;
+
+		double[] x = new double[NUM_FEATURES];
+		x[0] = 1;
+		x[1] = 1 - distance;
+		x[2] = sumContribution / numSubsets;
+		x[3] = minContribution;
+		x[4] = maxContribution;
+		x[5] = unseen / numSubsets;
+		x[6] = sumPhi / numSubsets;
+		return x;
+	}
+
+	/**
+	 * Standardize the features of an ensemble with the means and deviations of the ensembles used to fit the model
+	 *
+	 * @param x Features of the ensemble, modified by the method
+	 */
+	protected void standardize(double[] x)
+	{
+		for(int f=1; f<NUM_FEATURES; f++)
+		{
+			x[f] = (x[f] - featureMeans[f]) / featureScales[f];
+		}
+	}
+
+	/**
+	 * Get the average absolute phi correlation between the pairs of labels of a subset
+	 *
+	 * @param activeLabels Labels of the subset
+	 *
+	 * @return Average absolute phi, or 0 if it is not used
+	 */
+	protected double meanAbsPhi(int[] activeLabels)
+	{
+		if(phi == null || activeLabels.length < 2)
+			return 0;
+
+		double sum = 0;
+		int pairs = 0;
+		for(int k=0; k<activeLabels.length; k++)
+		{
+			for(int l=k+1; l<activeLabels.length; l++)
+			{
+				double p = phi[activeLabels[k]][activeLabels[l]];
+				if(!Double.isNaN(p))
+					sum += Math.abs(p);
+				pairs++;
+			}
+		}
+		return sum / pairs;
+	}
+
+	/**
+	 * Solve a linear system by Gaussian elimination with partial pivoting
+	 *
+	 * @param a Matrix of coefficients, modified by the method
+	 * @param b Vector of independent terms, modified by the method
+	 *
+	 * @return Solution
+	 */
+	protected static double[] solve(double[][] a, double[] b)
+	{
+		int n = b.length;
+		for(int col=0; col<n; col++)
+		{
+			int pivot = col;
+			for(int row=col+1; row<n; row++)
+			{
+				if(Math.abs(a[row][col]) > Math.abs(a[pivot][col]))
+					pivot = row;
+			}
+			double[] tmpRow = a[col];
+			a[col] = a[pivot];
+			a[pivot] = tmpRow;
+			double tmp = b[col];
+			b[col] = b[pivot];
+			b[pivot] = tmp;
+
+			if(Math.abs(a[col][col]) < 1e-12)
+				continue;
+
+			for(int row=col+1; row<n; row++)
+			{
+				double factor = a[row][col] / a[col][col];
+				for(int k=col; k<n; k++)
+				{
+					a[row][k] -= factor * a[col][k];
+				}
+				b[row] -= factor * b[col];
+			}
+		}
+
+		double[] x = new double[n];
+		for(int row=n-1; row>=0; row--)
+		{
+			if(Math.abs(a[row][row]) < 1e-12)
+				continue;
+			double sum = b[row];
+			for(int k=row+1; k<n; k++)
+			{
+				sum -= a[row][k] * x[k];
+			}
+			x[row] = sum / a[row][row];
+		}
+		return x;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import net.sf.jclec.IIndividual;
+
+/**
+ * Interface for the individuals of EME, independently of how their genotype is stored
+ */
+public interface IEnsembleIndividual extends IIndividual
+{
+	/**
+	 * Get the key identifying the ensemble
+	 *
+	 * @param numLabels Number of labels
+	 *
+	 * @return Key identifying the ensemble
+	 */
+	public EnsembleKey getEnsembleKey(int numLabels);
+
+	/**
+	 * Get the genotype as a binary array, with one byte for each label of each base classifier
+	 *
+	 * @param numLabels Number of labels
+	 *
+	 * @return Binary genotype
+	 */
+	public byte[] toByteGenotype(int numLabels);
+
+	/**
+	 * Get the key of the evaluated ensemble this individual was derived from by the genetic operators
+	 *
+	 * @return Key of the parent, or null if it is unknown
+	 */
+	public EnsembleKey getParentKey();
+}
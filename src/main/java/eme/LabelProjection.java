@@ -0,0 +1,162 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+import mulan.data.InvalidDataFormatException;
+import mulan.data.MultiLabelInstances;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Class implementing the projection of a multi-label dataset over the labels of a subset.
+ *
+ * It replaces the Remove filter of the non-active labels. The projected instances are views of the original ones,
+ *  so all the base classifiers share the storage of the features, and no dataset is copied to build or to use them.
+ * A projection only depends on the subset of labels and on the format of the dataset, so it can be used from any thread.
+ */
+public class LabelProjection implements Serializable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 2956101387520674402L;
+
+	/**
+	 *  Estimated bytes of each attribute of the format */
+	protected static final long ATTRIBUTE_BYTES = 128;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Index in the original dataset of each attribute of the projected dataset */
+	protected int[] attributeIndices;
+
+	/**
+	 *  Format of the projected dataset, without instances */
+	protected Instances header;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param subset Subset of labels
+	 * @param labelIndices Indices of the label attributes in the dataset
+	 * @param data Dataset with the format of the instances to project
+	 */
+	public LabelProjection(LabelSubset subset, int[] labelIndices, Instances data)
+	{
+		//Non-active labels are excluded
+		boolean[] excluded = new boolean[data.numAttributes()];
+		for(int label=0; label<labelIndices.length; label++)
+		{
+			if(!subset.contains(label))
+				excluded[labelIndices[label]] = true;
+		}
+
+		attributeIndices = new int[data.numAttributes() - (labelIndices.length - subset.size())];
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>(attributeIndices.length);
+		for(int att=0, k=0; att<data.numAttributes(); att++)
+		{
+			if(!excluded[att])
+			{
+				attributeIndices[k] = att;
+				attributes.add((Attribute) data.attribute(att).copy());
+				k++;
+			}
+		}
+
+		header = new Instances(data.relationName(), attributes, 0);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Project an instance
+	 *
+	 * @param instance Instance with the format of the original dataset
+	 *
+	 * @return View of the instance with only the active labels
+	 */
+	public Instance project(Instance instance)
+	{
+		ProjectedInstance projected = new ProjectedInstance(instance, attributeIndices);
+		projected.setDataset(header);
+		return projected;
+	}
+
+	/**
+	 * Project a dataset
+	 *
+	 * @param data Dataset
+	 *
+	 * @return Dataset of views of the instances, with only the active labels
+	 */
+	public Instances project(Instances data)
+	{
+		Instances projected = new Instances(header, data.numInstances());
+		for(int i=0; i<data.numInstances(); i++)
+		{
+			projected.add(new ProjectedInstance(data.instance(i), attributeIndices));
+		}
+		return projected;
+	}
+
+	/**
+	 * Project a multi-label dataset
+	 *
+	 * @param mlData Multi-label dataset
+	 *
+	 * @return Multi-label dataset of views of the instances, with only the active labels
+	 *
+	 * @throws InvalidDataFormatException exception
+	 */
+	public MultiLabelInstances project(MultiLabelInstances mlData) throws InvalidDataFormatException
+	{
+		//Only the labels meta-data is updated, the instances are not copied
+		return mlData.reintegrateModifiedDataSet(project(mlData.getDataSet()));
+	}
+
+	/**
+	 * Estimate the size in memory of the projection, with the copies of the attributes of its format
+	 *
+	 * @return Size in bytes
+	 */
+	public long estimateSize()
+	{
+		return 4L * attributeIndices.length + ATTRIBUTE_BYTES * header.numAttributes() + 64;
+	}
+
+	/**
+	 * Get the format of the projected dataset
+	 *
+	 * @return Dataset without instances
+	 */
+	public Instances getHeader()
+	{
+		return header;
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Class representing the subset of active labels of a base classifier as a bitmask.
+ * Label j is stored in the bit (j % 64) of the word (j / 64).
+ * It is immutable, and its hash code is computed only once, so it is used as key of the tables of EME.
+ * 
+ * The hash is Zobrist-like: each label has a pseudo-random 64-bit code, and the hash of the subset mixes the XOR of the codes of its active labels.
+ */
+public final class LabelSubset implements Comparable<LabelSubset>, Serializable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -4172563803851627305L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Bitmask with the active labels */
+	private final long[] mask;
+
+	/**
+	 *  Number of labels of the problem */
+	private final int numLabels;
+
+	/**
+	 *  64-bit hash of the subset */
+	private final long hash;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param mask Bitmask with the active labels. It is not copied, so it must not be modified later.
+	 * @param numLabels Number of labels of the problem
+	 */
+	public LabelSubset(long[] mask, int numLabels)
+	{
+		this.mask = mask;
+		this.numLabels = numLabels;
+		this.hash = zobristHash(mask);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of words needed to store a subset of labels
+	 *
+	 * @param numLabels Number of labels
+	 *
+	 * @return Number of long words
+	 */
+	public static int numWords(int numLabels)
+	{
+		return (numLabels + 63) >>> 6;
+	}
+
+	/**
+	 * Create the subset of labels of a given model in a genotype
+	 *
+	 * @param genotype Genotype of the individual
+	 * @param model Number identifying the model in the individual
+	 * @param numLabels Number of labels
+	 *
+	 * @return Subset of active labels of the model
+	 */
+	public static LabelSubset fromGenotype(byte[] genotype, int model, int numLabels)
+	{
+		long[] mask = new long[numWords(numLabels)];
+		int offset = model*numLabels;
+		for(int label=0; label<numLabels; label++)
+		{
+			if(genotype[offset + label] == 1)
+				mask[label >>> 6] |= 1L << label;
+		}
+
+		return new LabelSubset(mask, numLabels);
+	}
+
+	/**
+	 * Create the subset of labels of a given model in a packed genotype, where each model uses numWords(numLabels) words
+	 *
+	 * @param genotype Packed genotype of the individual
+	 * @param model Number identifying the model in the individual
+	 * @param numLabels Number of labels
+	 *
+	 * @return Subset of active labels of the model
+	 */
+	public static LabelSubset fromPackedGenotype(long[] genotype, int model, int numLabels)
+	{
+		int numWords = numWords(numLabels);
+		return new LabelSubset(Arrays.copyOfRange(genotype, model*numWords, (model+1)*numWords), numLabels);
+	}
+
+	/**
+	 * Create the subset of labels of a binary row
+	 *
+	 * @param row Binary array with one position per label
+	 *
+	 * @return Subset of active labels
+	 */
+	public static LabelSubset fromRow(byte[] row)
+	{
+		return fromGenotype(row, 0, row.length);
+	}
+
+	/**
+	 * Get the 64-bit hash of the subset.
+	 * It is used to combine the subsets of an ensemble in an order-independent hash.
+	 *
+	 * @return 64-bit hash
+	 */
+	public long longHashCode()
+	{
+		return hash;
+	}
+
+	/**
+	 * Get the bitmask of the subset. It must not be modified.
+	 *
+	 * @return Bitmask with the active labels
+	 */
+	public long[] getMask()
+	{
+		return mask;
+	}
+
+	/**
+	 * Get the number of labels of the problem
+	 *
+	 * @return Number of labels
+	 */
+	public int getNumLabels()
+	{
+		return numLabels;
+	}
+
+	/**
+	 * Indicates if a label is active in the subset
+	 *
+	 * @param label Index of the label
+	 *
+	 * @return TRUE if the label is active and FALSE otherwise
+	 */
+	public boolean contains(int label)
+	{
+		return (mask[label >>> 6] & (1L << label)) != 0;
+	}
+
+	/**
+	 * Get the number of active labels
+	 *
+	 * @return Number of active labels
+	 */
+	public int size()
+	{
+		int size = 0;
+		for(int w=0; w<mask.length; w++)
+		{
+			size += Long.bitCount(mask[w]);
+		}
+		return size;
+	}
+
+	/**
+	 * Get the indices of the active labels, in increasing order
+	 *
+	 * @return Array with the indices of the active labels
+	 */
+	public int[] getActiveLabels()
+	{
+		int[] activeLabels = new int[size()];
+		int k = 0;
+		for(int w=0; w<mask.length; w++)
+		{
+			long word = mask[w];
+			while(word != 0)
+			{
+				activeLabels[k] = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				k++;
+			}
+		}
+		return activeLabels;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if(this == other) {
+			return true;
+		}
+		if(other instanceof LabelSubset) {
+			LabelSubset o = (LabelSubset) other;
+			return (hash == o.hash) && Arrays.equals(mask, o.mask);
+		}
+		else {
+			return false;
+		}
+	}
+
+	@Override
+	public int compareTo(LabelSubset other)
+	{
+		for(int w=0; w<mask.length; w++)
+		{
+			if(mask[w] != other.mask[w])
+				return Long.compare(mask[w], other.mask[w]);
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder(numLabels);
+		for(int label=0; label<numLabels; label++)
+		{
+			sb.append(contains(label) ? '1' : '0');
+		}
+		return sb.toString();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Calculate the hash of a bitmask, combining the codes of its active labels
+	 *
+	 * @param mask Bitmask with the active labels
+	 *
+	 * @return 64-bit hash
+	 */
+	private static long zobristHash(long[] mask)
+	{
+		long h = 0;
+		for(int w=0; w<mask.length; w++)
+		{
+			long word = mask[w];
+			while(word != 0)
+			{
+				h ^= mix((w << 6) + Long.numberOfTrailingZeros(word) + 1);
+				word &= word - 1;
+			}
+		}
+		return mix(h);
+	}
+
+	/**
+	 * SplitMix64 finalizer, used as pseudo-random code of each label and to spread the bits of the hash
+	 *
+	 * @param z Value to mix
+	 *
+	 * @return Mixed value
+	 */
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
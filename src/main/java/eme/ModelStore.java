@@ -0,0 +1,525 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eme.learner.IBaseLearner;
+import eme.learner.J48LabelPowerset;
+
+/**
+ * Class storing all the base classifiers built, shared by all the evaluator threads.
+ *
+ * Each subset of labels is associated with the future of its training, which is stored before the training starts.
+ * In this way, if several ensembles need the same base classifier at the same time, it is built only once and all of them wait for it.
+ * The base classifiers are trained in a pool of threads, so the missing base classifiers of an ensemble are built in parallel.
+ *
+ * Optionally, the store has a memory budget. The size of each base classifier is estimated from the size hint of its learner when it is built,
+ *  and it is charged again when its predictions are attached later. When the budget is exceeded the base classifiers are evicted following the GreedyDual-Size policy:
+ *  the priority of a base classifier is its training time per byte plus an inflation value, which is raised to the priority of each evicted one.
+ *  Therefore, base classifiers that are cheap to build again and have not been used recently are evicted first.
+ */
+public class ModelStore
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Table with the (maybe still in progress) training of each subset of labels */
+	protected final ConcurrentHashMap<LabelSubset, Future<BaseModel>> models;
+
+	/**
+	 *  Number of threads used to train the base classifiers */
+	protected int numThreads;
+
+	/**
+	 *  Pool of threads training the base classifiers, only created when needed */
+	protected ExecutorService executor;
+
+	/**
+	 *  Store on disk shared with other executions, or null if it is not used */
+	protected DiskModelStore diskStore;
+
+	/**
+	 *  Learner of the base classifiers */
+	protected IBaseLearner baseLearner;
+
+	/**
+	 *  Memory budget in bytes. If it is not positive, the store is unbounded */
+	protected long maxBytes;
+
+	/**
+	 *  Estimated size of the stored base classifiers in bytes */
+	protected long usedBytes;
+
+	/**
+	 *  Eviction priority of each built base classifier */
+	protected final HashMap<LabelSubset, CacheEntry> entries;
+
+	/**
+	 *  Inflation value of the GreedyDual-Size policy */
+	protected double inflation;
+
+	/**
+	 *  Number of requests of base classifiers already stored */
+	protected final AtomicLong hits;
+
+	/**
+	 *  Number of requests of base classifiers not stored, so they were built */
+	protected final AtomicLong misses;
+
+	/**
+	 *  Number of base classifiers evicted */
+	protected final AtomicLong evictions;
+
+	/**
+	 *  Subsets of labels whose base classifier has been built at least once, even if it was evicted later */
+	protected final ConcurrentHashMap<LabelSubset, Boolean> built;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor. One thread per available processor is used, and the store is unbounded.
+	 */
+	public ModelStore()
+	{
+		this(0);
+	}
+
+	/**
+	 * Constructor with parameters. The store is unbounded.
+	 *
+	 * @param numThreads Number of threads used to train the base classifiers. If it is not positive, one thread per available processor is used.
+	 */
+	public ModelStore(int numThreads)
+	{
+		models = new ConcurrentHashMap<LabelSubset, Future<BaseModel>>();
+		entries = new HashMap<LabelSubset, CacheEntry>();
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		evictions = new AtomicLong();
+		built = new ConcurrentHashMap<LabelSubset, Boolean>();
+		baseLearner = new J48LabelPowerset();
+		setNumThreads(numThreads);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Set the number of threads used to train the base classifiers.
+	 * It has only effect before the first base classifier is trained.
+	 *
+	 * @param numThreads Number of threads. If it is not positive, one thread per available processor is used.
+	 */
+	public synchronized void setNumThreads(int numThreads)
+	{
+		if(numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Get the number of threads used to train the base classifiers
+	 *
+	 * @return Number of threads
+	 */
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+
+	/**
+	 * Set the memory budget of the store
+	 *
+	 * @param maxMB Memory budget in megabytes. If it is not positive, the store is unbounded.
+	 */
+	public synchronized void setMaxMB(double maxMB)
+	{
+		this.maxBytes = (long) (maxMB * 1024 * 1024);
+		evict();
+	}
+
+	/**
+	 * Set the store on disk where the built base classifiers are saved and loaded
+	 *
+	 * @param diskStore Store on disk, or null if it is not used
+	 */
+	public void setDiskStore(DiskModelStore diskStore)
+	{
+		this.diskStore = diskStore;
+	}
+
+	/**
+	 * Get the store on disk where the built base classifiers are saved and loaded
+	 *
+	 * @return Store on disk, or null if it is not used
+	 */
+	public DiskModelStore getDiskStore()
+	{
+		return diskStore;
+	}
+
+	/**
+	 * Set the learner of the base classifiers.
+	 * It must be set before any base classifier is requested, since the stored ones are not built again.
+	 *
+	 * @param baseLearner Learner of the base classifiers
+	 */
+	public void setBaseLearner(IBaseLearner baseLearner)
+	{
+		this.baseLearner = baseLearner;
+	}
+
+	/**
+	 * Get the learner of the base classifiers
+	 *
+	 * @return Learner of the base classifiers
+	 */
+	public IBaseLearner getBaseLearner()
+	{
+		return baseLearner;
+	}
+
+	/**
+	 * Request the base classifier of a subset of labels.
+	 * If it has not been requested before, its training is started in the pool of threads. Otherwise, the existing training is returned.
+	 *
+	 * @param subset Subset of labels
+	 * @param training Task building the base classifier, only used if it has not been requested before
+	 *
+	 * @return Future of the base classifier
+	 */
+	public Future<BaseModel> request(final LabelSubset subset, final Callable<BaseModel> training)
+	{
+		Future<BaseModel> future = models.get(subset);
+		if(future == null)
+		{
+			FutureTask<BaseModel> task = new FutureTask<BaseModel>(new Callable<BaseModel>() {
+				@Override
+				public BaseModel call() throws Exception {
+					long initTime = System.currentTimeMillis();
+					BaseModel model = training.call();
+					built.put(subset, Boolean.TRUE);
+					model.setTrainingTime(System.currentTimeMillis() - initTime);
+					if(maxBytes > 0)
+						model.setSize(estimateSize(subset, model));
+					admit(subset, model);
+					return model;
+				}
+			});
+			future = models.putIfAbsent(subset, task);
+			if(future == null)
+			{
+				//This thread is the first to request it, so it is trained
+				misses.incrementAndGet();
+				getExecutor().execute(task);
+				return task;
+			}
+		}
+
+		hits.incrementAndGet();
+		touch(subset);
+		return future;
+	}
+
+	/**
+	 * Attach to a stored base classifier its predictions over the validation set, charging them against the memory budget.
+	 * If the predictions were already attached by another thread, they are kept and the new ones are discarded.
+	 *
+	 * @param subset Subset of labels
+	 * @param model Base classifier, obtained with get
+	 * @param predictions Predictions of the base classifier
+	 *
+	 * @return Predictions attached to the base classifier
+	 */
+	public synchronized BaseModelPredictions attachPredictions(LabelSubset subset, BaseModel model, BaseModelPredictions predictions)
+	{
+		if(model.getPredictions() != null)
+			return model.getPredictions();
+
+		model.setPredictions(predictions);
+		if(maxBytes <= 0)
+			return predictions;
+
+		long size = predictions.estimateSize();
+		model.setSize(model.getSize() + size);
+
+		//Only charged if it has not been evicted yet
+		CacheEntry entry = entries.get(subset);
+		if(entry != null && entry.model == model)
+		{
+			usedBytes += size;
+			entry.updateCost();
+			evict();
+		}
+		return predictions;
+	}
+
+	/**
+	 * Wait for the base classifier of a subset of labels.
+	 * If its training failed, it is removed from the store so it can be requested again.
+	 *
+	 * @param subset Subset of labels
+	 * @param future Future of the base classifier, obtained with request
+	 *
+	 * @return Base classifier
+	 *
+	 * @throws Exception If the training failed
+	 */
+	public BaseModel get(LabelSubset subset, Future<BaseModel> future) throws Exception
+	{
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			models.remove(subset, future);
+			if(e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			else
+				throw e;
+		}
+	}
+
+	/**
+	 * Indicates if the base classifier of a subset of labels has been requested
+	 *
+	 * @param subset Subset of labels
+	 *
+	 * @return TRUE if it is built or being built, and FALSE otherwise
+	 */
+	public boolean contains(LabelSubset subset)
+	{
+		return models.containsKey(subset);
+	}
+
+	/**
+	 * Get the number of base classifiers stored, including the ones being built
+	 *
+	 * @return Number of base classifiers
+	 */
+	public int size()
+	{
+		return models.size();
+	}
+
+	/**
+	 * Get the number of different base classifiers built, including the ones evicted later
+	 *
+	 * @return Number of base classifiers
+	 */
+	public int getNumBuilt()
+	{
+		return built.size();
+	}
+
+	/**
+	 * Get the number of requests of base classifiers that were already stored
+	 *
+	 * @return Number of hits
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of requests of base classifiers that were not stored and had to be built
+	 *
+	 * @return Number of misses
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Get the number of base classifiers evicted due to the memory budget
+	 *
+	 * @return Number of evictions
+	 */
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	/**
+	 * Get the estimated size of the stored base classifiers.
+	 * It is only estimated if the store has a memory budget.
+	 *
+	 * @return Size in bytes
+	 */
+	public synchronized long getUsedBytes()
+	{
+		return usedBytes;
+	}
+
+	/**
+	 * Stop the pool of threads. The stored base classifiers are kept.
+	 */
+	public synchronized void shutdown()
+	{
+		if(executor != null)
+		{
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the pool of threads, creating it if necessary
+	 *
+	 * @return Pool of threads
+	 */
+	protected synchronized ExecutorService getExecutor()
+	{
+		if(executor == null)
+		{
+			executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					//Daemon threads, so they do not prevent the end of the execution
+					Thread t = new Thread(r, "eme-training");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Add a built base classifier to the eviction policy, evicting other ones if the budget is exceeded
+	 *
+	 * @param subset Subset of labels
+	 * @param model Built base classifier
+	 */
+	protected synchronized void admit(LabelSubset subset, BaseModel model)
+	{
+		if(maxBytes <= 0)
+			return;
+
+		CacheEntry entry = new CacheEntry(model);
+		entry.priority = inflation + entry.cost;
+		entries.put(subset, entry);
+		usedBytes += model.getSize();
+
+		evict();
+	}
+
+	/**
+	 * Update the priority of a base classifier that has been used again
+	 *
+	 * @param subset Subset of labels
+	 */
+	protected synchronized void touch(LabelSubset subset)
+	{
+		CacheEntry entry = entries.get(subset);
+		if(entry != null)
+			entry.priority = inflation + entry.cost;
+	}
+
+	/**
+	 * Evict the base classifiers with lowest priority until the budget is not exceeded.
+	 * The last built base classifier is always kept.
+	 */
+	protected synchronized void evict()
+	{
+		if(maxBytes <= 0)
+			return;
+
+		while(usedBytes > maxBytes && entries.size() > 1)
+		{
+			//Base classifier with lowest priority
+			Map.Entry<LabelSubset, CacheEntry> min = null;
+			Iterator<Map.Entry<LabelSubset, CacheEntry>> it = entries.entrySet().iterator();
+			while(it.hasNext())
+			{
+				Map.Entry<LabelSubset, CacheEntry> e = it.next();
+				if(min == null || e.getValue().priority < min.getValue().priority)
+					min = e;
+			}
+
+			inflation = min.getValue().priority;
+			usedBytes -= min.getValue().model.getSize();
+			entries.remove(min.getKey());
+			models.remove(min.getKey());
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Estimate the size in memory of a base classifier, its projection and its predictions.
+	 * The size of the classifier is the size hint of its learner, so it is not serialized.
+	 *
+	 * @param subset Subset of labels
+	 * @param model Base classifier
+	 *
+	 * @return Size in bytes
+	 */
+	protected long estimateSize(LabelSubset subset, BaseModel model)
+	{
+		long size = baseLearner.estimateSize(subset, model.getLearner()) + model.getProjection().estimateSize();
+		if(model.getPredictions() != null)
+			size += model.getPredictions().estimateSize();
+		return size;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Eviction information of a built base classifier
+	 */
+	private static class CacheEntry
+	{
+		/** Base classifier */
+		final BaseModel model;
+
+		/** Training time per byte */
+		double cost;
+
+		/** Current priority, the lowest one is evicted first */
+		double priority;
+
+		CacheEntry(BaseModel model)
+		{
+			this.model = model;
+			updateCost();
+		}
+
+		/** Update the cost with the current size of the base classifier */
+		void updateCost()
+		{
+			this.cost = (double) (model.getTrainingTime() + 1) / Math.max(1, model.getSize());
+		}
+	}
+}
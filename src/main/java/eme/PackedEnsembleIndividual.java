@@ -0,0 +1,288 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.Arrays;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.IIndividual;
+import net.sf.jclec.base.AbstractIndividual;
+
+/**
+ * Class implementing the individuals of EME with a packed genotype.
+ * Each base classifier is stored as a bitmask of LabelSubset.numWords(numLabels) long words, where label j is the bit (j % 64) of the word (j / 64).
+ * Therefore, the genetic operators work with whole words instead of one byte per label.
+ */
+public class PackedEnsembleIndividual extends AbstractIndividual<long[]> implements IEnsembleIndividual
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 3497108286519434016L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Key identifying the ensemble, only obtained when needed */
+	protected transient EnsembleKey ensembleKey;
+
+	/**
+	 *  Key of the evaluated ensemble this individual was derived from, or null if it is unknown */
+	protected transient EnsembleKey parentKey;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedEnsembleIndividual()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that sets the genotype
+	 *
+	 * @param genotype Packed genotype of the individual
+	 */
+	public PackedEnsembleIndividual(long[] genotype)
+	{
+		super(genotype);
+	}
+
+	/**
+	 * Constructor that sets the genotype and the fitness
+	 *
+	 * @param genotype Packed genotype of the individual
+	 * @param fitness Fitness of the individual
+	 */
+	public PackedEnsembleIndividual(long[] genotype, IFitness fitness)
+	{
+		super(genotype, fitness);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EnsembleKey getEnsembleKey(int numLabels)
+	{
+		if(ensembleKey == null)
+		{
+			ensembleKey = EnsembleKey.fromPackedGenotype(genotype, genotype.length/LabelSubset.numWords(numLabels), numLabels);
+		}
+		return ensembleKey;
+	}
+
+	/**
+	 * Set the key identifying the ensemble
+	 *
+	 * @param ensembleKey Key identifying the ensemble
+	 */
+	public void setEnsembleKey(EnsembleKey ensembleKey)
+	{
+		this.ensembleKey = ensembleKey;
+	}
+
+	/**
+	 * Obtain the key of this individual from the key of its parent, only updating the base classifiers changed by the genetic operator
+	 *
+	 * @param parent Parent of the individual
+	 * @param donor Other parent that gave base classifiers in the same positions, or null if there is not
+	 * @param models Positions of the changed base classifiers
+	 * @param count Number of changed base classifiers
+	 * @param numLabels Number of labels
+	 */
+	public void inheritEnsembleKey(PackedEnsembleIndividual parent, PackedEnsembleIndividual donor, int[] models, int count, int numLabels)
+	{
+		EnsembleKey donorKey = null;
+		if(donor != null)
+			donorKey = donor.getEnsembleKey(numLabels);
+
+		ensembleKey = parent.getEnsembleKey(numLabels).derive(models, count, genotype, donorKey);
+
+		//If the parent has not been evaluated, it is not the origin of this individual but its own parent
+		if(parent.getFitness() == null && parent.parentKey != null)
+			parentKey = parent.parentKey;
+		else
+			parentKey = parent.ensembleKey;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EnsembleKey getParentKey()
+	{
+		return parentKey;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] toByteGenotype(int numLabels)
+	{
+		int numWords = LabelSubset.numWords(numLabels);
+		int numClassifiers = genotype.length / numWords;
+
+		byte[] bytes = new byte[numClassifiers * numLabels];
+		for(int model=0; model<numClassifiers; model++)
+		{
+			for(int w=0; w<numWords; w++)
+			{
+				long word = genotype[model*numWords + w];
+				while(word != 0)
+				{
+					bytes[model*numLabels + (w << 6) + Long.numberOfTrailingZeros(word)] = 1;
+					word &= word - 1;
+				}
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IIndividual copy()
+	{
+		PackedEnsembleIndividual copy;
+		if(fitness != null)
+			copy = new PackedEnsembleIndividual(genotype.clone(), fitness.copy());
+		else
+			copy = new PackedEnsembleIndividual(genotype.clone());
+
+		copy.ensembleKey = ensembleKey;
+		copy.parentKey = parentKey;
+		return copy;
+	}
+
+	/**
+	 * Hamming distance between the genotypes of two individuals
+	 *
+	 * @param other Other individual
+	 *
+	 * @return Number of different bits
+	 */
+	public int hammingDistance(PackedEnsembleIndividual other)
+	{
+		long[] otherGenotype = other.getGenotype();
+		int distance = 0;
+		for(int i=0; i<genotype.length; i++)
+		{
+			distance += Long.bitCount(genotype[i] ^ otherGenotype[i]);
+		}
+		return distance;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @deprecated It is only implemented because IIndividual declares it. Use hammingDistance instead.
+	 */
+	@Deprecated
+	@Override
+	public double distance(IIndividual other)
+	{
+		return hammingDistance((PackedEnsembleIndividual) other);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof PackedEnsembleIndividual) {
+			PackedEnsembleIndividual iother = (PackedEnsembleIndividual) other;
+			if(!Arrays.equals(genotype, iother.genotype))
+				return false;
+			if(fitness == null)
+				return iother.fitness == null;
+			return fitness.equals(iother.fitness);
+		}
+		else {
+			return false;
+		}
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(genotype);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------- Static methods for genotypes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Indicates if a label is active in a base classifier of a packed genotype
+	 *
+	 * @param genotype Packed genotype
+	 * @param numWords Number of words of each base classifier
+	 * @param model Number identifying the base classifier
+	 * @param label Index of the label
+	 *
+	 * @return TRUE if the label is active and FALSE otherwise
+	 */
+	public static boolean getBit(long[] genotype, int numWords, int model, int label)
+	{
+		return (genotype[model*numWords + (label >>> 6)] & (1L << label)) != 0;
+	}
+
+	/**
+	 * Flip a label in a base classifier of a packed genotype
+	 *
+	 * @param genotype Packed genotype
+	 * @param numWords Number of words of each base classifier
+	 * @param model Number identifying the base classifier
+	 * @param label Index of the label
+	 */
+	public static void flipBit(long[] genotype, int numWords, int model, int label)
+	{
+		genotype[model*numWords + (label >>> 6)] ^= 1L << label;
+	}
+
+	/**
+	 * Get the number of active labels of a base classifier of a packed genotype
+	 *
+	 * @param genotype Packed genotype
+	 * @param numWords Number of words of each base classifier
+	 * @param model Number identifying the base classifier
+	 *
+	 * @return Number of active labels
+	 */
+	public static int countBits(long[] genotype, int numWords, int model)
+	{
+		int count = 0;
+		for(int w=model*numWords; w<(model+1)*numWords; w++)
+		{
+			count += Long.bitCount(genotype[w]);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import net.sf.jclec.ISpecies;
+
+/**
+ * Class implementing the species of the individuals of EME with a packed genotype
+ */
+public class PackedEnsembleIndividualSpecies implements ISpecies
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -1820632287465230917L;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedEnsembleIndividualSpecies()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create an individual with the given genotype
+	 *
+	 * @param genotype Packed genotype
+	 *
+	 * @return New individual
+	 */
+	public PackedEnsembleIndividual createIndividual(long[] genotype)
+	{
+		return new PackedEnsembleIndividual(genotype);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof PackedEnsembleIndividualSpecies) {
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * All the objects of this type are equal, so all of them have the same hash code.
+	 */
+	@Override
+	public int hashCode()
+	{
+		return PackedEnsembleIndividualSpecies.class.getName().hashCode();
+	}
+}
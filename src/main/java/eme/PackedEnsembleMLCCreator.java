@@ -0,0 +1,138 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.HashSet;
+
+/**
+ * Class implementing an individual generator for EME with packed genotypes.
+ * The individuals are generated in the same way than in EnsembleMLCCreator, but the labels are directly set as bits of the words.
+ */
+public class PackedEnsembleMLCCreator extends EnsembleMLCCreator
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 6402385710287301548L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Species of the individuals */
+	protected transient PackedEnsembleIndividualSpecies packedSpecies;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedEnsembleMLCCreator()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void prepareCreation()
+	{
+		packedSpecies = (PackedEnsembleIndividualSpecies) context.getSpecies();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void createNext()
+	{
+		createdBuffer.add(packedSpecies.createIndividual(createPackedGenotype()));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Create a packed genotype
+	 *
+	 * @return Packed genotype
+	 */
+	private final long [] createPackedGenotype()
+	{
+		int numWords = LabelSubset.numWords(numberLabels);
+		long [] result = new long[numberClassifiers * numWords];
+		HashSet<LabelSubset> Combinations = new HashSet<LabelSubset>();
+
+		int numLabelsClassifier;
+
+		//For each classifier in the ensemble
+		for (int model=0; model<numberClassifiers; )
+		{
+			if (variable)
+				numLabelsClassifier = randgen.choose(2, maxNumberLabelsClassifier+1); //At least 2 labels
+			else
+				numLabelsClassifier = maxNumberLabelsClassifier;
+
+			//Inicializations
+			for(int w=0; w<numWords; w++)
+			{
+				result[model*numWords+w] = 0;
+			}
+
+			for(int label=0; label<numLabelsClassifier; )
+			{
+				//Random selection of one label, the bit of the word itself indicates if it was visited
+				int randomLabel= randgen.choose(0, numberLabels);
+				if(!PackedEnsembleIndividual.getBit(result, numWords, model, randomLabel))
+				{
+					PackedEnsembleIndividual.flipBit(result, numWords, model, randomLabel);
+					label++;
+				}
+			}
+
+			if((checkPackedModel(model, result)==true) && (Combinations.add(LabelSubset.fromPackedGenotype(result, model, numberLabels))==true))
+			{   //Checks if the model is already in the ensemble
+				model++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check if the model has been correctly created
+	 *
+	 * @param model Number identifying the model in the individual
+	 * @param genotype Packed genotype
+	 *
+	 * @return TRUE if it has been correctly created and FALSE otherwise
+	 */
+	protected boolean checkPackedModel(int model, long genotype[])
+	{
+		//Check if the model has 0, 1 or all labels selected
+		int count1s = PackedEnsembleIndividual.countBits(genotype, LabelSubset.numWords(numberLabels), model);
+		return (count1s != 0) && (count1s != 1) && (count1s != numberLabels);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+/**
+ * Class computing evaluation measures over bipartitions stored as bit matrices by instances, with the layout of the labels of a DenseDataset.
+ * The counts of each instance are obtained with popcounts of the words of its labels, so no object is created.
+ * The values are the same than the ones of the corresponding measures of Mulan.
+ */
+public final class PackedMeasures
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Private constructor, only static methods are provided
+	 */
+	private PackedMeasures()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Calculate the Example-based F-measure, as ExampleBasedFMeasure of Mulan.
+	 * The F-measure of an instance is 2tp / (2tp + fn + fp), and 1 if both the predicted and true sets of labels are empty.
+	 *
+	 * @param predicted Bit matrix of the predicted labels
+	 * @param truth Bit matrix of the true labels
+	 * @param numInstances Number of instances
+	 * @param numLabelWords Number of words of the labels of each instance
+	 *
+	 * @return Example-based F-measure, averaged over all the instances
+	 */
+	public static double exampleBasedFMeasure(long[] predicted, long[] truth, int numInstances, int numLabelWords)
+	{
+		double sum = 0;
+
+		for(int i=0; i<numInstances; i++)
+		{
+			int tp = 0, union = 0;
+			int offset = i*numLabelWords;
+			for(int w=0; w<numLabelWords; w++)
+			{
+				long p = predicted[offset + w];
+				long t = truth[offset + w];
+				tp += Long.bitCount(p & t);
+				union += Long.bitCount(p | t);
+			}
+
+			//fp + fn are the labels in the union but not in the intersection
+			if(union == 0)
+				sum += 1;
+			else
+				sum += (2.0 * tp) / (2.0 * tp + (union - tp));
+		}
+
+		return sum / numInstances;
+	}
+
+	/**
+	 * Calculate the sum of the Example-based F-measure of a range of a list of instances
+	 *
+	 * @param predicted Bit matrix of the predicted labels of the instances in the range, in the order of the list
+	 * @param truth Bit matrix of the true labels of all the instances
+	 * @param instances Indices of the instances
+	 * @param first Position of the first instance of the range in the list
+	 * @param last Position after the last instance of the range in the list
+	 * @param numLabelWords Number of words of the labels of each instance
+	 *
+	 * @return Sum of the Example-based F-measure of the instances in the range
+	 */
+	public static double exampleBasedFMeasureSum(long[] predicted, long[] truth, int[] instances, int first, int last, int numLabelWords)
+	{
+		double sum = 0;
+
+		for(int i=first; i<last; i++)
+		{
+			int tp = 0, union = 0;
+			int pOffset = (i - first)*numLabelWords;
+			int tOffset = instances[i]*numLabelWords;
+			for(int w=0; w<numLabelWords; w++)
+			{
+				long p = predicted[pOffset + w];
+				long t = truth[tOffset + w];
+				tp += Long.bitCount(p & t);
+				union += Long.bitCount(p | t);
+			}
+
+			if(union == 0)
+				sum += 1;
+			else
+				sum += (2.0 * tp) / (2.0 * tp + (union - tp));
+		}
+
+		return sum;
+	}
+}
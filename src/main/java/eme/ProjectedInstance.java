@@ -0,0 +1,190 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+
+/**
+ * Class implementing a view of an instance that only includes some of its attributes.
+ * The values are read from the original instance, so no values are copied unless the projected instance is modified.
+ * Any method that modifies the instance first copies its values, so the inherited methods of DenseInstance work on the copy.
+ */
+public class ProjectedInstance extends DenseInstance
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -4187264092547181693L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Original instance */
+	protected Instance source;
+
+	/**
+	 *  Index in the original instance of each attribute of the projected instance */
+	protected int[] attributeIndices;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param source Original instance
+	 * @param attributeIndices Index in the original instance of each attribute of the projected instance. It is not copied.
+	 */
+	public ProjectedInstance(Instance source, int[] attributeIndices)
+	{
+		//The values are only stored when the instance is modified
+		super(source.weight(), null);
+		this.source = source;
+		this.attributeIndices = attributeIndices;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the original instance
+	 *
+	 * @return Original instance
+	 */
+	public Instance getSource()
+	{
+		return source;
+	}
+
+	@Override
+	public double value(int attIndex)
+	{
+		if(m_AttValues != null)
+			return m_AttValues[attIndex];
+		return source.value(attributeIndices[attIndex]);
+	}
+
+	@Override
+	public double valueSparse(int indexOfIndex)
+	{
+		return value(indexOfIndex);
+	}
+
+	@Override
+	public int index(int position)
+	{
+		return position;
+	}
+
+	@Override
+	public int numAttributes()
+	{
+		//Attributes may have been inserted or deleted after the values were copied
+		if(m_AttValues != null)
+			return m_AttValues.length;
+		return attributeIndices.length;
+	}
+
+	@Override
+	public int numValues()
+	{
+		return numAttributes();
+	}
+
+	@Override
+	public double[] toDoubleArray()
+	{
+		if(m_AttValues != null)
+			return m_AttValues.clone();
+
+		double[] values = new double[attributeIndices.length];
+		for(int i=0; i<attributeIndices.length; i++)
+		{
+			values[i] = source.value(attributeIndices[i]);
+		}
+		return values;
+	}
+
+	@Override
+	public void setValue(int attIndex, double value)
+	{
+		materialize();
+		m_AttValues[attIndex] = value;
+	}
+
+	@Override
+	public void setValueSparse(int indexOfIndex, double value)
+	{
+		setValue(indexOfIndex, value);
+	}
+
+	@Override
+	public void replaceMissingValues(double[] array)
+	{
+		materialize();
+		super.replaceMissingValues(array);
+	}
+
+	/**
+	 * Copy the instance.
+	 * If it has not been modified, the copy is also a view of the original instance.
+	 *
+	 * @return Copy of the instance
+	 */
+	@Override
+	public Object copy()
+	{
+		ProjectedInstance copy = new ProjectedInstance(source, attributeIndices);
+		if(m_AttValues != null)
+			copy.m_AttValues = m_AttValues.clone();
+		copy.m_Weight = m_Weight;
+		copy.m_Dataset = m_Dataset;
+		return copy;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Copy the values of the original instance into the projected instance, if they have not been copied yet.
+	 * The values are copied before the first modification, so the original instance is never modified.
+	 */
+	protected void materialize()
+	{
+		if(m_AttValues == null)
+			m_AttValues = toDoubleArray();
+	}
+
+	@Override
+	protected void forceDeleteAttributeAt(int position)
+	{
+		materialize();
+		super.forceDeleteAttributeAt(position);
+	}
+
+	@Override
+	protected void forceInsertAttributeAt(int position)
+	{
+		materialize();
+		super.forceInsertAttributeAt(position);
+	}
+}
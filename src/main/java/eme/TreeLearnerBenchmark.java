@@ -0,0 +1,194 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.Random;
+
+import eme.learner.AbstractTreeLearner;
+import eme.learner.HistogramTreeLearner;
+import eme.learner.LabelPowersetTree;
+import eme.learner.PresortedTreeLearner;
+import mulan.data.MultiLabelInstances;
+
+/**
+ * Class comparing the time to build the LP trees of random subsets of labels, and their Example-based F-measure over the test set,
+ *  of PresortedTreeLearner and HistogramTreeLearner over a given dataset.
+ * Each learner builds the same subsets several times, and the fastest round is reported, so the JIT compiler has warmed up.
+ */
+public class TreeLearnerBenchmark
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Usage message */
+	private static final String USAGE_MES = "\teme.TreeLearnerBenchmark <train arff> <test arff> <xml> [labels per subset = 3] [subsets = 50] [rounds = 3] [seed = 10]";
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Private constructor, it is only run from the main method
+	 */
+	private TreeLearnerBenchmark()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Main method
+	 *
+	 * @param args Train and test arff files, xml file of the labels, and optionally the number of labels per subset,
+	 *  the number of subsets, the number of rounds and the seed
+	 *
+	 * @throws Exception exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if(args.length < 3) {
+			System.out.println("Usage:" + USAGE_MES);
+			System.exit(1);
+		}
+
+		MultiLabelInstances train = new MultiLabelInstances(args[0], args[2]);
+		MultiLabelInstances test = new MultiLabelInstances(args[1], args[2]);
+		int subsetSize = (args.length > 3) ? Integer.parseInt(args[3]) : 3;
+		int numSubsets = (args.length > 4) ? Integer.parseInt(args[4]) : 50;
+		int rounds = (args.length > 5) ? Integer.parseInt(args[5]) : 3;
+		long seed = (args.length > 6) ? Long.parseLong(args[6]) : 10;
+
+		DenseDataset denseTrain = new DenseDataset(train);
+		DenseDataset denseTest = new DenseDataset(test);
+		LabelSubset[] subsets = randomSubsets(train.getNumLabels(), Math.min(subsetSize, train.getNumLabels()), numSubsets, seed);
+
+		System.out.println(train.getNumInstances() + " training instances, " + denseTrain.getNumFeatures() + " features, "
+				+ numSubsets + " subsets of " + subsetSize + " labels");
+		run("Presorted", new PresortedTreeLearner(), train, denseTrain, denseTest, subsets, rounds);
+		run("Histogram", new HistogramTreeLearner(), train, denseTrain, denseTest, subsets, rounds);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Build the trees of all the subsets with a learner, and print the time of the fastest round and the average F-measure
+	 *
+	 * @param name Name of the learner
+	 * @param learner Learner
+	 * @param train Training dataset
+	 * @param denseTrain Training dataset in primitive arrays
+	 * @param denseTest Test dataset in primitive arrays
+	 * @param subsets Subsets of labels
+	 * @param rounds Number of rounds
+	 *
+	 * @throws Exception exception
+	 */
+	private static void run(String name, AbstractTreeLearner learner, MultiLabelInstances train, DenseDataset denseTrain, DenseDataset denseTest,
+			LabelSubset[] subsets, int rounds) throws Exception
+	{
+		learner.setDatasetTrain(train, denseTrain);
+
+		long bestTime = Long.MAX_VALUE;
+		LabelPowersetTree[] trees = new LabelPowersetTree[subsets.length];
+		for(int r=0; r<rounds; r++)
+		{
+			long start = System.nanoTime();
+			for(int s=0; s<subsets.length; s++)
+			{
+				LabelProjection projection = new LabelProjection(subsets[s], train.getLabelIndices(), train.getDataSet());
+				trees[s] = (LabelPowersetTree) learner.createLearner(subsets[s]);
+				trees[s].build(projection.project(train));
+			}
+			bestTime = Math.min(bestTime, System.nanoTime() - start);
+		}
+
+		double fMeasure = 0;
+		for(int s=0; s<subsets.length; s++)
+		{
+			fMeasure += fMeasure(trees[s], subsets[s], denseTest);
+		}
+
+		System.out.println(name + ": " + (bestTime / 1000000) + " ms, test Example-based F-measure " + (fMeasure / subsets.length));
+	}
+
+	/**
+	 * Get the Example-based F-measure of a tree over the labels of its subset
+	 *
+	 * @param tree LP tree
+	 * @param subset Subset of labels of the tree
+	 * @param denseTest Test dataset in primitive arrays
+	 *
+	 * @return Example-based F-measure
+	 */
+	private static double fMeasure(LabelPowersetTree tree, LabelSubset subset, DenseDataset denseTest)
+	{
+		int[] activeLabels = subset.getActiveLabels();
+		BaseModelPredictions predictions = new BaseModelPredictions(activeLabels, denseTest.getNumInstances());
+		tree.makePredictions(denseTest, predictions);
+
+		//Only the labels of the subset are compared
+		int numLabelWords = denseTest.getNumLabelWords();
+		long[] predicted = new long[denseTest.getNumInstances() * numLabelWords];
+		long[] truth = new long[denseTest.getNumInstances() * numLabelWords];
+		for(int i=0; i<denseTest.getNumInstances(); i++)
+		{
+			for(int k=0; k<activeLabels.length; k++)
+			{
+				int j = activeLabels[k];
+				if(predictions.getBipartitions()[k][i])
+					predicted[i*numLabelWords + (j >>> 6)] |= 1L << j;
+				if(denseTest.getLabel(i, j))
+					truth[i*numLabelWords + (j >>> 6)] |= 1L << j;
+			}
+		}
+		return PackedMeasures.exampleBasedFMeasure(predicted, truth, denseTest.getNumInstances(), numLabelWords);
+	}
+
+	/**
+	 * Generate random subsets of labels
+	 *
+	 * @param numLabels Number of labels
+	 * @param subsetSize Number of labels of each subset
+	 * @param numSubsets Number of subsets
+	 * @param seed Seed
+	 *
+	 * @return Subsets of labels
+	 */
+	private static LabelSubset[] randomSubsets(int numLabels, int subsetSize, int numSubsets, long seed)
+	{
+		Random random = new Random(seed);
+		LabelSubset[] subsets = new LabelSubset[numSubsets];
+		for(int s=0; s<numSubsets; s++)
+		{
+			long[] mask = new long[LabelSubset.numWords(numLabels)];
+			int size = 0;
+			while(size < subsetSize)
+			{
+				int j = random.nextInt(numLabels);
+				if((mask[j >>> 6] & (1L << j)) == 0)
+				{
+					mask[j >>> 6] |= 1L << j;
+					size++;
+				}
+			}
+			subsets[s] = new LabelSubset(mask, numLabels);
+		}
+		return subsets;
+	}
+}
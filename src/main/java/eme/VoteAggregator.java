@@ -0,0 +1,305 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme;
+
+import java.util.Arrays;
+
+/**
+ * Class combining the stored predictions of the base classifiers of an ensemble.
+ * The confidence of each label is the average of the confidences of the base classifiers including it.
+ *
+ * The instances are processed by blocks. For each block, the confidences of every base classifier are added label by label
+ *  into a label-major buffer small enough to stay in cache, and then the buffer is scaled by the inverse of the number of votes of each label,
+ *  which is computed only once per ensemble. All the loops run over contiguous primitive arrays, so the JIT compiler can vectorize them.
+ * The bipartitions are obtained from sums of fixed-point confidences, as in EnsembleAccumulator, so they are the same than the ones
+ *  of the evaluation by differences.
+ */
+public class VoteAggregator
+{
+	/**
+	 *  Number of instances of each block */
+	public static final int BLOCK_SIZE = 1024;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Predictions of each base classifier */
+	protected BaseModelPredictions[] predictions;
+
+	/**
+	 *  Number of labels */
+	protected int numLabels;
+
+	/**
+	 *  Number of instances */
+	protected int numInstances;
+
+	/**
+	 *  Number of base classifiers including each label */
+	protected int[] lengthVotes;
+
+	/**
+	 *  Inverse of the number of base classifiers including each label, or 0 if no one includes it */
+	protected double[] invLengthVotes;
+
+	/**
+	 *  Sum of the confidences of each label (row) and instance (column) of the current block, only created for the confidences */
+	protected double[] block;
+
+	/**
+	 *  Sum of the fixed-point confidences of each label (row) and instance (column) of the current block, only created for the bipartitions */
+	protected long[] fixedBlock;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param predictions Predictions of each base classifier over the same dataset
+	 * @param numLabels Number of labels
+	 * @param numInstances Number of instances of the dataset
+	 */
+	public VoteAggregator(BaseModelPredictions[] predictions, int numLabels, int numInstances)
+	{
+		this.predictions = predictions;
+		this.numLabels = numLabels;
+		this.numInstances = numInstances;
+
+		lengthVotes = new int[numLabels];
+		for(int model=0; model<predictions.length; model++)
+		{
+			int[] activeLabels = predictions[model].getActiveLabels();
+			for(int k=0; k<activeLabels.length; k++)
+			{
+				lengthVotes[activeLabels[k]]++;
+			}
+		}
+
+		invLengthVotes = new double[numLabels];
+		for(int j=0; j<numLabels; j++)
+		{
+			if(lengthVotes[j] != 0)
+				invLengthVotes[j] = 1.0 / lengthVotes[j];
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the inverse of the number of base classifiers including each label
+	 *
+	 * @return Inverse of the number of votes of each label, or 0 if no base classifier includes it
+	 */
+	public double[] getInvLengthVotes()
+	{
+		return invLengthVotes;
+	}
+
+	/**
+	 * Obtain the confidences of the ensemble for all the instances
+	 *
+	 * @return Matrix with the confidence of each instance (row) and label (column)
+	 */
+	public double[][] confidences()
+	{
+		double[][] confidences = new double[numInstances][numLabels];
+		if(block == null)
+			block = new double[blockLength()];
+
+		for(int from=0; from<numInstances; from+=BLOCK_SIZE)
+		{
+			int size = Math.min(BLOCK_SIZE, numInstances - from);
+			aggregateBlock(null, from, size);
+
+			for(int j=0; j<numLabels; j++)
+			{
+				int offset = j*size;
+				for(int i=0; i<size; i++)
+				{
+					confidences[from + i][j] = block[offset + i];
+				}
+			}
+		}
+
+		return confidences;
+	}
+
+	/**
+	 * Obtain the bipartitions of the ensemble for all the instances.
+	 * They are stored as bit matrix by instances, with the same layout than the labels of a DenseDataset.
+	 *
+	 * @param threshold Prediction threshold
+	 *
+	 * @return Bit matrix of the predicted labels
+	 */
+	public long[] bipartitions(double threshold)
+	{
+		return bipartitions(threshold, null, 0, numInstances);
+	}
+
+	/**
+	 * Obtain the bipartitions of the ensemble for a range of a list of instances.
+	 * They are stored as bit matrix by instances, in the order of the list.
+	 *
+	 * @param threshold Prediction threshold
+	 * @param instances Indices of the instances, or null to use the instances in the order of the dataset
+	 * @param first Position of the first instance of the range in the list
+	 * @param last Position after the last instance of the range in the list
+	 *
+	 * @return Bit matrix of the predicted labels for the instances in the range
+	 */
+	public long[] bipartitions(double threshold, int[] instances, int first, int last)
+	{
+		int numLabelWords = (numLabels + 63) >>> 6;
+		long[] bipartitions = new long[(last - first) * numLabelWords];
+		if(fixedBlock == null)
+			fixedBlock = new long[blockLength()];
+
+		//The sums are compared with the limits of EnsembleAccumulator, without dividing them
+		double[] limits = new double[numLabels];
+		for(int j=0; j<numLabels; j++)
+		{
+			limits[j] = EnsembleAccumulator.fixedLimit(threshold, lengthVotes[j]);
+		}
+
+		for(int from=first; from<last; from+=BLOCK_SIZE)
+		{
+			int size = Math.min(BLOCK_SIZE, last - from);
+			aggregateFixedBlock(instances, from, size);
+
+			for(int j=0; j<numLabels; j++)
+			{
+				int offset = j*size;
+				int word = (from - first)*numLabelWords + (j >>> 6);
+				long bit = 1L << j;
+				double limit = limits[j];
+				for(int i=0; i<size; i++)
+				{
+					if(fixedBlock[offset + i] >= limit)
+						bipartitions[word + i*numLabelWords] |= bit;
+				}
+			}
+		}
+
+		return bipartitions;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Calculate the sums of the fixed-point confidences of the ensemble for a block of instances, stored by labels in the buffer
+	 *
+	 * @param instances Indices of the instances, or null to use the instances in the order of the dataset
+	 * @param from Position of the first instance of the block
+	 * @param size Number of instances of the block
+	 */
+	protected void aggregateFixedBlock(int[] instances, int from, int size)
+	{
+		Arrays.fill(fixedBlock, 0, numLabels*size, 0);
+
+		for(int model=0; model<predictions.length; model++)
+		{
+			int[] activeLabels = predictions[model].getActiveLabels();
+			double[][] modelConfidences = predictions[model].getConfidences();
+			for(int k=0; k<activeLabels.length; k++)
+			{
+				double[] conf = modelConfidences[k];
+				int offset = activeLabels[k]*size;
+				if(instances == null)
+				{
+					for(int i=0; i<size; i++)
+					{
+						fixedBlock[offset + i] += EnsembleAccumulator.toFixed(conf[from + i]);
+					}
+				}
+				else
+				{
+					for(int i=0; i<size; i++)
+					{
+						fixedBlock[offset + i] += EnsembleAccumulator.toFixed(conf[instances[from + i]]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculate the confidences of the ensemble for a block of instances, stored by labels in the buffer
+	 *
+	 * @param instances Indices of the instances, or null to use the instances in the order of the dataset
+	 * @param from Position of the first instance of the block
+	 * @param size Number of instances of the block
+	 */
+	protected void aggregateBlock(int[] instances, int from, int size)
+	{
+		Arrays.fill(block, 0, numLabels*size, 0);
+
+		//Sum label by label of each base classifier
+		for(int model=0; model<predictions.length; model++)
+		{
+			int[] activeLabels = predictions[model].getActiveLabels();
+			double[][] modelConfidences = predictions[model].getConfidences();
+			for(int k=0; k<activeLabels.length; k++)
+			{
+				double[] conf = modelConfidences[k];
+				int offset = activeLabels[k]*size;
+				if(instances == null)
+				{
+					for(int i=0; i<size; i++)
+					{
+						block[offset + i] += conf[from + i];
+					}
+				}
+				else
+				{
+					for(int i=0; i<size; i++)
+					{
+						block[offset + i] += conf[instances[from + i]];
+					}
+				}
+			}
+		}
+
+		//Average of the votes of each label
+		for(int j=0; j<numLabels; j++)
+		{
+			double inv = invLengthVotes[j];
+			int offset = j*size;
+			for(int i=0; i<size; i++)
+			{
+				block[offset + i] *= inv;
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the length of the buffers of a block
+	 *
+	 * @return Number of labels multiplied by the number of instances of a block
+	 */
+	private int blockLength()
+	{
+		return numLabels * Math.min(BLOCK_SIZE, Math.max(numInstances, 1));
+	}
+}
@@ -0,0 +1,436 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import eme.DenseDataset;
+import eme.LabelSubset;
+import mulan.classifier.MultiLabelLearner;
+import mulan.data.MultiLabelInstances;
+import net.sf.jclec.IConfigure;
+
+import org.apache.commons.configuration.Configuration;
+
+/**
+ * Base class of the learners of LP decision trees of EME.
+ * All the trees are built over the same training dataset, stored in primitive arrays, and only differ in the class of each instance,
+ *  that is the combination of its relevant labels in the subset. The splits follow the criteria of C4.5, as in J48.
+ */
+public abstract class AbstractTreeLearner implements IBaseLearner, IConfigure
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 3380762935092716517L;
+
+	/**
+	 *  Tolerance of the comparisons of weights, as in Weka */
+	protected static final double SMALL = 1e-6;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Dataset used to build all the trees */
+	protected transient DenseDataset denseTrain;
+
+	/**
+	 *  Minimum number of instances in at least two branches of each split */
+	protected int minNumObj = 2;
+
+	/**
+	 *  Confidence factor used for pruning */
+	protected float confidence = 0.25f;
+
+	/**
+	 *  Indicates if the trees are pruned */
+	protected boolean pruning = true;
+
+	/**
+	 *  Minimum number of instances of a combination of labels to be a class of LP. The rare combinations are merged into frequent ones. */
+	protected int minSupport = 1;
+
+	/**
+	 *  Maximum number of classes of LP, or 0 if it is not limited */
+	protected int maxClasses = 0;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public AbstractTreeLearner()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public void setDatasetTrain(MultiLabelInstances datasetTrain, DenseDataset denseTrain)
+	{
+		if(denseTrain == null)
+			denseTrain = new DenseDataset(datasetTrain);
+		this.denseTrain = denseTrain;
+	}
+
+	/**
+	 * Get the dataset used to build all the trees
+	 *
+	 * @return Dataset in primitive arrays
+	 */
+	public DenseDataset getDatasetTrain()
+	{
+		return denseTrain;
+	}
+
+	@Override
+	public MultiLabelLearner createLearner(LabelSubset subset)
+	{
+		return new LabelPowersetTree(this, subset);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The size is obtained from the nodes of the tree and the combinations of labels of its classes.
+	 */
+	@Override
+	public long estimateSize(LabelSubset subset, MultiLabelLearner learner)
+	{
+		if(learner instanceof LabelPowersetTree)
+			return ((LabelPowersetTree) learner).estimateSize();
+		return 0;
+	}
+
+	/**
+	 * Build a tree, collapse it and prune it as J48 does
+	 *
+	 * @param data Dataset
+	 * @param classes Class of each instance
+	 * @param numClasses Number of classes
+	 *
+	 * @return Decision tree
+	 */
+	public DecisionTree buildTree(DenseDataset data, int[] classes, int numClasses)
+	{
+		DecisionTree tree = growTree(data, classes, numClasses);
+		tree.collapse();
+		if(pruning)
+			tree.prune(confidence);
+		return tree;
+	}
+
+	/**
+	 * Set the minimum number of instances in at least two branches of each split
+	 *
+	 * @param minNumObj Minimum number of instances
+	 */
+	public void setMinNumObj(int minNumObj)
+	{
+		this.minNumObj = minNumObj;
+	}
+
+	/**
+	 * Get the minimum number of instances in at least two branches of each split
+	 *
+	 * @return Minimum number of instances
+	 */
+	public int getMinNumObj()
+	{
+		return minNumObj;
+	}
+
+	/**
+	 * Set the confidence factor used for pruning
+	 *
+	 * @param confidence Confidence factor
+	 */
+	public void setConfidence(float confidence)
+	{
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Get the confidence factor used for pruning
+	 *
+	 * @return Confidence factor
+	 */
+	public float getConfidence()
+	{
+		return confidence;
+	}
+
+	/**
+	 * Set if the trees are pruned
+	 *
+	 * @param pruning TRUE if the trees are pruned and FALSE otherwise
+	 */
+	public void setPruning(boolean pruning)
+	{
+		this.pruning = pruning;
+	}
+
+	/**
+	 * Indicates if the trees are pruned
+	 *
+	 * @return TRUE if the trees are pruned and FALSE otherwise
+	 */
+	public boolean getPruning()
+	{
+		return pruning;
+	}
+
+	/**
+	 * Set the minimum number of instances of a combination of labels to be a class of LP
+	 *
+	 * @param minSupport Minimum number of instances. If it is 1, all the combinations are classes.
+	 */
+	public void setMinSupport(int minSupport)
+	{
+		this.minSupport = minSupport;
+	}
+
+	/**
+	 * Get the minimum number of instances of a combination of labels to be a class of LP
+	 *
+	 * @return Minimum number of instances
+	 */
+	public int getMinSupport()
+	{
+		return minSupport;
+	}
+
+	/**
+	 * Set the maximum number of classes of LP
+	 *
+	 * @param maxClasses Maximum number of classes, or 0 if it is not limited
+	 */
+	public void setMaxClasses(int maxClasses)
+	{
+		this.maxClasses = maxClasses;
+	}
+
+	/**
+	 * Get the maximum number of classes of LP
+	 *
+	 * @return Maximum number of classes, or 0 if it is not limited
+	 */
+	public int getMaxClasses()
+	{
+		return maxClasses;
+	}
+
+	// IConfigure interface
+
+	@Override
+	public void configure(Configuration configuration)
+	{
+		setMinNumObj(configuration.getInt("[@min-instances]", 2));
+		setConfidence(configuration.getFloat("[@confidence]", 0.25f));
+		setPruning(configuration.getBoolean("[@pruning]", true));
+		setMinSupport(configuration.getInt("[@min-support]", 1));
+		setMaxClasses(configuration.getInt("[@max-classes]", 0));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Grow a tree, without collapsing nor pruning it
+	 *
+	 * @param data Dataset
+	 * @param classes Class of each instance
+	 * @param numClasses Number of classes
+	 *
+	 * @return Decision tree
+	 */
+	protected abstract DecisionTree growTree(DenseDataset data, int[] classes, int numClasses);
+
+	/**
+	 * Get the settings of the trees, to be included in the format
+	 *
+	 * @return Settings of the trees
+	 */
+	protected String getSettings()
+	{
+		return "M" + minNumObj + "-C" + confidence + (pruning ? "" : "-U") + (minSupport > 1 ? "-S" + minSupport : "") + (maxClasses > 0 ? "-K" + maxClasses : "");
+	}
+
+	/**
+	 * Get the minimum weight of each branch of a numeric split, as J48 does
+	 *
+	 * @param knownTotal Weight of the instances of the node with known value
+	 * @param numClasses Number of classes
+	 *
+	 * @return Minimum weight of each branch
+	 */
+	protected double minSplit(double knownTotal, int numClasses)
+	{
+		double minSplit = 0.1 * knownTotal / numClasses;
+		if(minSplit <= minNumObj)
+			return minNumObj;
+		else if(minSplit > 25)
+			return 25;
+		return minSplit;
+	}
+
+	/**
+	 * Indicates if a node can not be split, because it is too small or pure
+	 *
+	 * @param distribution Weight of each class in the node
+	 *
+	 * @return TRUE if the node is a leaf and FALSE otherwise
+	 */
+	protected boolean isLeaf(double[] distribution)
+	{
+		double total = 0, max = 0;
+		for(int c=0; c<distribution.length; c++)
+		{
+			total += distribution[c];
+			if(distribution[c] > max)
+				max = distribution[c];
+		}
+		return (total < 2 * minNumObj - SMALL) || (Math.abs(total - max) < SMALL);
+	}
+
+	/**
+	 * Select the feature of a split as C4.5 does: the best gain ratio among the features with at least the average information gain
+	 *
+	 * @param valid Indicates for each feature if it has a valid split
+	 * @param inAverage Indicates for each feature if it is used to compute the average information gain
+	 * @param infoGain Information gain of the split of each feature
+	 * @param gainRatio Gain ratio of the split of each feature
+	 *
+	 * @return Index of the selected feature, or -1 if the node is not split
+	 */
+	protected static int selectFeature(boolean[] valid, boolean[] inAverage, double[] infoGain, double[] gainRatio)
+	{
+		double averageInfoGain = 0;
+		int validModels = 0;
+		for(int f=0; f<valid.length; f++)
+		{
+			if(valid[f] && inAverage[f])
+			{
+				averageInfoGain += infoGain[f];
+				validModels++;
+			}
+		}
+		if(validModels == 0)
+			return -1;
+		averageInfoGain /= validModels;
+
+		int best = -1;
+		double minResult = 0;
+		for(int f=0; f<valid.length; f++)
+		{
+			if(valid[f] && infoGain[f] >= averageInfoGain - 1e-3 && gainRatio[f] - minResult > SMALL)
+			{
+				best = f;
+				minResult = gainRatio[f];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Entropy function of C4.5
+	 *
+	 * @param num Weight
+	 *
+	 * @return num * ln(num), or 0 if it is too small
+	 */
+	protected static double lnFunc(double num)
+	{
+		if(num < SMALL)
+			return 0;
+		return num * Math.log(num);
+	}
+
+	/**
+	 * Get the entropy of a distribution, multiplied by its total weight
+	 *
+	 * @param counts Weight of each class, starting at the offset
+	 * @param offset Offset of the first class
+	 * @param numClasses Number of classes
+	 * @param total Total weight
+	 *
+	 * @return Entropy multiplied by the total weight, in bits
+	 */
+	protected static double entropy(double[] counts, int offset, int numClasses, double total)
+	{
+		double sum = 0;
+		for(int c=0; c<numClasses; c++)
+		{
+			sum += lnFunc(counts[offset + c]);
+		}
+		return (lnFunc(total) - sum) / Math.log(2);
+	}
+
+	/**
+	 * Get the information gain of a split, as J48 does
+	 *
+	 * @param oldEnt Entropy of the node, multiplied by the weight with known value
+	 * @param newEnt Sum of the entropies of the branches, multiplied by their weights
+	 * @param knownTotal Weight of the instances of the node with known value
+	 * @param total Weight of all the instances of the node
+	 *
+	 * @return Information gain
+	 */
+	protected static double infoGain(double oldEnt, double newEnt, double knownTotal, double total)
+	{
+		double numerator = oldEnt - newEnt;
+		if(Math.abs(numerator) < SMALL)
+			return 0;
+		//The gain is reduced in proportion to the instances with unknown value
+		return (knownTotal / total) * numerator / knownTotal;
+	}
+
+	/**
+	 * Get the gain ratio of a split, as J48 does
+	 *
+	 * @param infoGain Information gain of the split
+	 * @param branchTotals Weight of each branch
+	 * @param knownTotal Weight of the instances of the node with known value
+	 * @param total Weight of all the instances of the node
+	 *
+	 * @return Gain ratio
+	 */
+	protected static double gainRatio(double infoGain, double[] branchTotals, double knownTotal, double total)
+	{
+		//The instances with unknown value are an additional branch
+		double splitEnt = 0;
+		if(knownTotal > SMALL)
+		{
+			for(int b=0; b<branchTotals.length; b++)
+			{
+				splitEnt -= lnFunc(branchTotals[b]);
+			}
+			splitEnt -= lnFunc(total - knownTotal);
+			splitEnt += lnFunc(total);
+		}
+		splitEnt /= Math.log(2);
+
+		if(Math.abs(splitEnt) < SMALL)
+			return 0;
+		return infoGain / (splitEnt / total);
+	}
+}
@@ -0,0 +1,560 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import eme.DenseDataset;
+import weka.classifiers.trees.j48.Stats;
+import weka.core.Instance;
+
+/**
+ * Class implementing a decision tree over the features of a dataset, as built by the tree learners of EME.
+ * Numeric features are split in two branches (value <= threshold, and value > threshold), and nominal features in one branch for each value.
+ * As in J48, an instance with a missing value is sent to all the branches, weighted by the training weight of each branch.
+ */
+public class DecisionTree implements Serializable
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 7312065329184617482L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Number of classes */
+	protected int numClasses;
+
+	/**
+	 *  Root node */
+	protected Node root;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param numClasses Number of classes
+	 * @param root Root node
+	 */
+	public DecisionTree(int numClasses, Node root)
+	{
+		this.numClasses = numClasses;
+		this.root = root;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of classes
+	 *
+	 * @return Number of classes
+	 */
+	public int getNumClasses()
+	{
+		return numClasses;
+	}
+
+	/**
+	 * Get the root node
+	 *
+	 * @return Root node
+	 */
+	public Node getRoot()
+	{
+		return root;
+	}
+
+	/**
+	 * Obtain the probability of each class for an instance
+	 *
+	 * @param instance Instance
+	 * @param featureIndices Index in the instance of each feature of the tree
+	 *
+	 * @return Probability of each class
+	 */
+	public double[] distributionForInstance(Instance instance, int[] featureIndices)
+	{
+		double[] probabilities = new double[numClasses];
+		addProbabilities(root, instance, featureIndices, 1.0, probabilities);
+		return probabilities;
+	}
+
+	/**
+	 * Obtain the probability of each class for an instance of a dataset stored in primitive arrays.
+	 * The features of the dataset must be the ones of the tree, in the same order.
+	 *
+	 * @param data Dataset
+	 * @param instance Index of the instance
+	 * @param probabilities Probability of each class, overwritten with the ones of the instance so the array is reused across instances
+	 */
+	public void distributionForInstance(DenseDataset data, int instance, double[] probabilities)
+	{
+		Arrays.fill(probabilities, 0);
+		addProbabilities(root, data, instance, 1.0, probabilities);
+	}
+
+	/**
+	 * Replace by a leaf each subtree that does not reduce the training errors of its root, as J48 does before pruning
+	 */
+	public void collapse()
+	{
+		collapse(root);
+	}
+
+	/**
+	 * Prune the tree by subtree replacement, using the pessimistic estimate of the errors of C4.5
+	 *
+	 * @param confidence Confidence factor used for pruning
+	 */
+	public void prune(float confidence)
+	{
+		prune(root, confidence);
+	}
+
+	/**
+	 * Get the number of nodes of the tree
+	 *
+	 * @return Number of nodes
+	 */
+	public int numNodes()
+	{
+		return numNodes(root);
+	}
+
+	/**
+	 * Estimate the size in memory of the tree, from its nodes and the classes of their distributions
+	 *
+	 * @return Size in bytes
+	 */
+	public long estimateSize()
+	{
+		//Each node has its fields, its distribution and the array of its children
+		return numNodes(root) * (48L + 16 + 8L * numClasses) + 16;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Add the probabilities of the leaves reached by an instance from a node
+	 *
+	 * @param node Node
+	 * @param instance Instance
+	 * @param featureIndices Index in the instance of each feature of the tree
+	 * @param weight Weight of the instance in the node
+	 * @param probabilities Probability of each class, to be updated
+	 */
+	private void addProbabilities(Node node, Instance instance, int[] featureIndices, double weight, double[] probabilities)
+	{
+		while(!node.isLeaf())
+		{
+			double value = instance.value(featureIndices[node.feature]);
+			if(Double.isNaN(value))
+			{
+				//The instance follows all the branches
+				for(int b=0; b<node.children.length; b++)
+				{
+					double branchWeight = node.children[b].getTrainingWeight();
+					if(branchWeight > 0)
+						addProbabilities(node.children[b], instance, featureIndices, weight * branchWeight / node.getTotal(), probabilities);
+				}
+				return;
+			}
+			node = node.children[node.getBranch(value)];
+		}
+
+		addLeafProbabilities(node, weight, probabilities);
+	}
+
+	/**
+	 * Add the probabilities of the leaves reached by an instance of a dataset stored in primitive arrays from a node
+	 *
+	 * @param node Node
+	 * @param data Dataset
+	 * @param instance Index of the instance
+	 * @param weight Weight of the instance in the node
+	 * @param probabilities Probability of each class, to be updated
+	 */
+	private void addProbabilities(Node node, DenseDataset data, int instance, double weight, double[] probabilities)
+	{
+		double[] features = data.getFeatures();
+		int numInstances = data.getNumInstances();
+
+		while(!node.isLeaf())
+		{
+			double value = features[node.feature*numInstances + instance];
+			if(Double.isNaN(value))
+			{
+				//The instance follows all the branches
+				for(int b=0; b<node.children.length; b++)
+				{
+					double branchWeight = node.children[b].getTrainingWeight();
+					if(branchWeight > 0)
+						addProbabilities(node.children[b], data, instance, weight * branchWeight / node.getTotal(), probabilities);
+				}
+				return;
+			}
+			node = node.children[node.getBranch(value)];
+		}
+
+		addLeafProbabilities(node, weight, probabilities);
+	}
+
+	/**
+	 * Add the probabilities of a leaf reached by an instance
+	 *
+	 * @param node Leaf
+	 * @param weight Weight of the instance in the leaf
+	 * @param probabilities Probability of each class, to be updated
+	 */
+	private void addLeafProbabilities(Node node, double weight, double[] probabilities)
+	{
+		//Empty leaves have the distribution of their parent
+		double[] distribution = node.distribution;
+		double total = node.getTotal();
+		if(total <= 0)
+			return;
+		for(int c=0; c<numClasses; c++)
+		{
+			probabilities[c] += weight * distribution[c] / total;
+		}
+	}
+
+	/**
+	 * Collapse the subtrees of a node
+	 *
+	 * @param node Node
+	 */
+	private void collapse(Node node)
+	{
+		if(node.isLeaf())
+			return;
+
+		if(trainingErrors(node) >= node.numIncorrect() - 1e-3)
+			node.makeLeaf();
+		else
+		{
+			for(int b=0; b<node.children.length; b++)
+			{
+				collapse(node.children[b]);
+			}
+		}
+	}
+
+	/**
+	 * Prune the subtrees of a node, from the leaves to the node
+	 *
+	 * @param node Node
+	 * @param confidence Confidence factor
+	 */
+	private void prune(Node node, float confidence)
+	{
+		if(node.isLeaf())
+			return;
+
+		for(int b=0; b<node.children.length; b++)
+		{
+			prune(node.children[b], confidence);
+		}
+
+		if(estimatedErrorsForLeaf(node, confidence) <= estimatedErrors(node, confidence) + 0.1)
+			node.makeLeaf();
+	}
+
+	/**
+	 * Get the errors over the training data of the leaves of a subtree
+	 *
+	 * @param node Root of the subtree
+	 *
+	 * @return Training errors
+	 */
+	private double trainingErrors(Node node)
+	{
+		if(node.isLeaf())
+			return node.numIncorrect();
+
+		double errors = 0;
+		for(int b=0; b<node.children.length; b++)
+		{
+			errors += trainingErrors(node.children[b]);
+		}
+		return errors;
+	}
+
+	/**
+	 * Get the estimated errors of the leaves of a subtree
+	 *
+	 * @param node Root of the subtree
+	 * @param confidence Confidence factor
+	 *
+	 * @return Estimated errors
+	 */
+	private double estimatedErrors(Node node, float confidence)
+	{
+		if(node.isLeaf())
+			return estimatedErrorsForLeaf(node, confidence);
+
+		double errors = 0;
+		for(int b=0; b<node.children.length; b++)
+		{
+			errors += estimatedErrors(node.children[b], confidence);
+		}
+		return errors;
+	}
+
+	/**
+	 * Get the estimated errors of a node if it was a leaf
+	 *
+	 * @param node Node
+	 * @param confidence Confidence factor
+	 *
+	 * @return Estimated errors
+	 */
+	private double estimatedErrorsForLeaf(Node node, float confidence)
+	{
+		//Empty leaves only take the distribution of their parent
+		double total = node.getTrainingWeight();
+		if(total <= 0)
+			return 0;
+
+		double incorrect = node.numIncorrect();
+		return incorrect + Stats.addErrs(total, incorrect, confidence);
+	}
+
+	/**
+	 * Get the number of nodes of a subtree
+	 *
+	 * @param node Root of the subtree
+	 *
+	 * @return Number of nodes
+	 */
+	private int numNodes(Node node)
+	{
+		int n = 1;
+		if(!node.isLeaf())
+		{
+			for(int b=0; b<node.children.length; b++)
+			{
+				n += numNodes(node.children[b]);
+			}
+		}
+		return n;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Node class
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Node of a decision tree
+	 */
+	public static class Node implements Serializable
+	{
+		/**
+		 * Serialization constant
+		 */
+		private static final long serialVersionUID = -1953201745318863690L;
+
+		/**
+		 *  Index of the feature of the split, or -1 if the node is a leaf */
+		protected int feature;
+
+		/**
+		 *  Threshold of the split of a numeric feature */
+		protected double threshold;
+
+		/**
+		 *  Child nodes, or null if the node is a leaf */
+		protected Node[] children;
+
+		/**
+		 *  Weight of the training instances of each class in the node */
+		protected double[] distribution;
+
+		/**
+		 *  TRUE if no training instance reached the node, so it has the distribution of its parent */
+		protected boolean empty;
+
+		/**
+		 * Constructor of a leaf
+		 *
+		 * @param distribution Weight of the training instances of each class in the node
+		 * @param empty TRUE if no training instance reached the node, so the distribution is the one of its parent
+		 */
+		public Node(double[] distribution, boolean empty)
+		{
+			this.feature = -1;
+			this.distribution = distribution;
+			this.empty = empty;
+		}
+
+		/**
+		 * Split the node by a numeric feature
+		 *
+		 * @param feature Index of the feature
+		 * @param threshold Greatest value of the first branch
+		 * @param children Child nodes
+		 */
+		public void setNumericSplit(int feature, double threshold, Node[] children)
+		{
+			this.feature = feature;
+			this.threshold = threshold;
+			this.children = children;
+		}
+
+		/**
+		 * Split the node by a nominal feature, with one branch for each value
+		 *
+		 * @param feature Index of the feature
+		 * @param children Child nodes
+		 */
+		public void setNominalSplit(int feature, Node[] children)
+		{
+			this.feature = feature;
+			this.threshold = Double.NaN;
+			this.children = children;
+		}
+
+		/**
+		 * Remove the split of the node
+		 */
+		public void makeLeaf()
+		{
+			feature = -1;
+			children = null;
+		}
+
+		/**
+		 * Indicates if the node is a leaf
+		 *
+		 * @return TRUE if it is a leaf and FALSE otherwise
+		 */
+		public boolean isLeaf()
+		{
+			return children == null;
+		}
+
+		/**
+		 * Indicates if no training instance reached the node
+		 *
+		 * @return TRUE if it is empty and FALSE otherwise
+		 */
+		public boolean isEmpty()
+		{
+			return empty;
+		}
+
+		/**
+		 * Get the branch followed by a known value of the feature of the split
+		 *
+		 * @param value Value of the feature
+		 *
+		 * @return Index of the branch
+		 */
+		public int getBranch(double value)
+		{
+			if(Double.isNaN(threshold))
+				return (int) value;
+			return value <= threshold ? 0 : 1;
+		}
+
+		/**
+		 * Get the total weight of the training instances in the node
+		 *
+		 * @return Total weight
+		 */
+		public double getTotal()
+		{
+			double total = 0;
+			for(int c=0; c<distribution.length; c++)
+			{
+				total += distribution[c];
+			}
+			return total;
+		}
+
+		/**
+		 * Get the total weight of the training instances that reached the node
+		 *
+		 * @return Total weight, 0 if the node is empty
+		 */
+		public double getTrainingWeight()
+		{
+			if(empty)
+				return 0;
+			return getTotal();
+		}
+
+		/**
+		 * Get the weight of the training instances not belonging to the majority class of the node
+		 *
+		 * @return Weight of the incorrectly classified instances, 0 if the node is empty
+		 */
+		public double numIncorrect()
+		{
+			if(empty)
+				return 0;
+
+			double max = 0;
+			for(int c=0; c<distribution.length; c++)
+			{
+				if(distribution[c] > max)
+					max = distribution[c];
+			}
+			return getTotal() - max;
+		}
+
+		/**
+		 * Get the index of the feature of the split
+		 *
+		 * @return Index of the feature, or -1 if the node is a leaf
+		 */
+		public int getFeature()
+		{
+			return feature;
+		}
+
+		/**
+		 * Get the child nodes
+		 *
+		 * @return Child nodes, or null if the node is a leaf
+		 */
+		public Node[] getChildren()
+		{
+			return children;
+		}
+
+		/**
+		 * Get the weight of the training instances of each class in the node
+		 *
+		 * @return Weight of each class
+		 */
+		public double[] getDistribution()
+		{
+			return distribution;
+		}
+	}
+}
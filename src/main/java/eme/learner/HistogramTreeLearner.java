@@ -0,0 +1,825 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import java.util.Arrays;
+
+import eme.DenseDataset;
+import mulan.data.MultiLabelInstances;
+
+import org.apache.commons.configuration.Configuration;
+
+/**
+ * Class implementing a learner of LP decision trees over features quantized in bins, for large datasets.
+ *
+ * Each numeric feature of the training dataset is quantized only once in at most 255 bins of (approximately) the same number of instances,
+ *  and each value is replaced by the byte code of its bin. The split of each node is searched in histograms with the weight of each class
+ *  in each bin, and the histogram of the largest child of a node is obtained by subtracting the other children from its parent.
+ * The histogram of a node only has columns for the classes present in it, so the nodes deep in the tree, with few classes,
+ *  have small histograms even if the LP has many classes.
+ * The splits follow the criteria of C4.5, but the thresholds are restricted to the limits of the bins, and the minimum size of the
+ *  branches is checked with the weight of the instances instead of their number.
+ * An instance with a missing value of the feature of a split is only sent to the largest branch, and nominal features with more values
+ *  than bins are not used.
+ */
+public class HistogramTreeLearner extends AbstractTreeLearner
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 4817203519683327640L;
+
+	/**
+	 *  Maximum number of bins of each feature, so the code of the missing values also fits in a byte */
+	public static final int MAX_BINS = 255;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Number of bins of each numeric feature */
+	protected int numBins = MAX_BINS;
+
+	/**
+	 *  Quantized training dataset */
+	protected transient Binning binning;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public HistogramTreeLearner()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public synchronized void setDatasetTrain(MultiLabelInstances datasetTrain, DenseDataset denseTrain)
+	{
+		super.setDatasetTrain(datasetTrain, denseTrain);
+		binning = null;
+	}
+
+	@Override
+	public String getFormat()
+	{
+		return "LP-HistogramTree-v1-B" + numBins + "-" + getSettings();
+	}
+
+	/**
+	 * Set the number of bins of each numeric feature
+	 *
+	 * @param numBins Number of bins, between 2 and 255
+	 */
+	public void setNumBins(int numBins)
+	{
+		this.numBins = Math.max(2, Math.min(numBins, MAX_BINS));
+	}
+
+	/**
+	 * Get the number of bins of each numeric feature
+	 *
+	 * @return Number of bins
+	 */
+	public int getNumBins()
+	{
+		return numBins;
+	}
+
+	// IConfigure interface
+
+	@Override
+	public void configure(Configuration configuration)
+	{
+		super.configure(configuration);
+		setNumBins(configuration.getInt("[@bins]", MAX_BINS));
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Quantize the training dataset, only the first time that it is needed
+	 *
+	 * @return Quantized training dataset
+	 */
+	protected synchronized Binning getBinning()
+	{
+		if(binning == null)
+			binning = new Binning(denseTrain, numBins);
+		return binning;
+	}
+
+	@Override
+	protected DecisionTree growTree(DenseDataset data, int[] classes, int numClasses)
+	{
+		Binning b;
+		if(data == denseTrain)
+			b = getBinning();
+		else
+			b = new Binning(data, numBins);
+
+		return new Growth(data, b, classes, numClasses).grow();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Binning class
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Dataset with the features quantized in bins
+	 */
+	protected static class Binning
+	{
+		/**
+		 *  Code of the bin of each value, stored by columns. The missing values have the code numBins[f]. */
+		protected byte[] codes;
+
+		/**
+		 *  Greatest value of each bin of each numeric feature */
+		protected double[][] limits;
+
+		/**
+		 *  Number of bins of each feature (values for nominal features), or 0 if the feature is not used */
+		protected int[] numBins;
+
+		/**
+		 *  Position of the first bin of each feature in the histograms */
+		protected int[] offsets;
+
+		/**
+		 *  Number of bins of all the features in the histograms, including a bin of missing values for each feature */
+		protected int numSlots;
+
+		/**
+		 * Constructor with parameters
+		 *
+		 * @param data Dataset
+		 * @param maxBins Maximum number of bins of each numeric feature
+		 */
+		public Binning(DenseDataset data, int maxBins)
+		{
+			int numInstances = data.getNumInstances();
+			int numFeatures = data.getNumFeatures();
+			double[] features = data.getFeatures();
+
+			codes = new byte[numFeatures * numInstances];
+			limits = new double[numFeatures][];
+			numBins = new int[numFeatures];
+			offsets = new int[numFeatures];
+
+			for(int f=0; f<numFeatures; f++)
+			{
+				int offset = f * numInstances;
+				if(data.getNumFeatureValues(f) > 0)
+				{
+					if(data.getNumFeatureValues(f) <= maxBins)
+						numBins[f] = data.getNumFeatureValues(f);
+				}
+				else
+				{
+					limits[f] = computeLimits(features, offset, numInstances, maxBins);
+					numBins[f] = limits[f].length;
+				}
+
+				for(int i=0; i<numInstances; i++)
+				{
+					double value = features[offset + i];
+					int code;
+					if(numBins[f] == 0 || Double.isNaN(value))
+						code = numBins[f];
+					else if(limits[f] == null)
+						code = (int) value;
+					else
+						code = findBin(limits[f], value);
+					codes[offset + i] = (byte) code;
+				}
+
+				offsets[f] = numSlots;
+				numSlots += numBins[f] + 1;
+			}
+		}
+
+		/**
+		 * Get the code of the bin of a value
+		 *
+		 * @param f Index of the feature
+		 * @param i Index of the instance
+		 * @param numInstances Number of instances
+		 *
+		 * @return Code of the bin
+		 */
+		public int getCode(int f, int i, int numInstances)
+		{
+			return codes[f*numInstances + i] & 0xFF;
+		}
+
+		/**
+		 * Compute the limits of the bins of a numeric feature, with approximately the same number of instances in each bin
+		 *
+		 * @param features Values of the features, stored by columns
+		 * @param offset Offset of the first value of the feature
+		 * @param numInstances Number of instances
+		 * @param maxBins Maximum number of bins
+		 *
+		 * @return Greatest value of each bin
+		 */
+		private static double[] computeLimits(double[] features, int offset, int numInstances, int maxBins)
+		{
+			double[] values = new double[numInstances];
+			int numKnown = 0;
+			for(int i=0; i<numInstances; i++)
+			{
+				if(!Double.isNaN(features[offset + i]))
+					values[numKnown++] = features[offset + i];
+			}
+			Arrays.sort(values, 0, numKnown);
+
+			int numDistinct = 0;
+			for(int k=0; k<numKnown; k++)
+			{
+				if(k == 0 || values[k] > values[k-1])
+					numDistinct++;
+			}
+
+			//Each distinct value has its own bin if there are enough bins
+			double target = (numDistinct <= maxBins) ? 0 : (double) numKnown / maxBins;
+			double[] limits = new double[maxBins];
+			int n = 0, inBin = 0;
+			for(int k=0; k<numKnown; k++)
+			{
+				inBin++;
+				if(k < numKnown-1 && values[k+1] == values[k])
+					continue;
+
+				//A bin is closed at the end of a value, and the last bin takes all the remaining values
+				if(k == numKnown-1 || (inBin >= target && n < maxBins-1))
+				{
+					limits[n++] = values[k];
+					inBin = 0;
+				}
+			}
+			return Arrays.copyOf(limits, n);
+		}
+
+		/**
+		 * Find the bin of a known value
+		 *
+		 * @param limits Greatest value of each bin
+		 * @param value Value
+		 *
+		 * @return Index of the first bin whose limit is not smaller than the value
+		 */
+		private static int findBin(double[] limits, double value)
+		{
+			int low = 0, high = limits.length - 1;
+			while(low < high)
+			{
+				int middle = (low + high) >>> 1;
+				if(limits[middle] < value)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			return low;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Growth class
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Growth of a tree, depth first
+	 */
+	private class Growth
+	{
+		/**
+		 *  Dataset */
+		private DenseDataset data;
+
+		/**
+		 *  Quantized dataset */
+		private Binning binning;
+
+		/**
+		 *  Class of each instance */
+		private int[] classes;
+
+		/**
+		 *  Number of classes */
+		private int numClasses;
+
+		/**
+		 *  Number of instances of the dataset */
+		private int numInstances;
+
+		/**
+		 *  Indices of the instances, grouped by node */
+		private int[] order;
+
+		/**
+		 *  Auxiliary array to partition the instances of a node */
+		private int[] buffer;
+
+		/**
+		 *  Branch of each instance in the split of its node */
+		private int[] branchOf;
+
+		/**
+		 *  Indicates if the nominal features with many values are used in the average information gain */
+		private boolean multiVal;
+
+		/**
+		 *  Column of each class in the histogram being computed or updated, or -1 if it is not present */
+		private int[] column;
+
+		/**
+		 * Constructor with parameters
+		 *
+		 * @param data Dataset
+		 * @param binning Quantized dataset
+		 * @param classes Class of each instance
+		 * @param numClasses Number of classes
+		 */
+		public Growth(DenseDataset data, Binning binning, int[] classes, int numClasses)
+		{
+			this.data = data;
+			this.binning = binning;
+			this.classes = classes;
+			this.numClasses = numClasses;
+			this.numInstances = data.getNumInstances();
+
+			order = new int[numInstances];
+			for(int i=0; i<numInstances; i++)
+			{
+				order[i] = i;
+			}
+			buffer = new int[numInstances];
+			branchOf = new int[numInstances];
+			column = new int[numClasses];
+			Arrays.fill(column, -1);
+
+			//As in J48, only if all the features are nominal with many values
+			multiVal = true;
+			for(int f=0; f<data.getNumFeatures(); f++)
+			{
+				if(data.getNumFeatureValues(f) == 0 || data.getNumFeatureValues(f) < 0.3 * numInstances)
+				{
+					multiVal = false;
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Grow the tree
+		 *
+		 * @return Decision tree
+		 */
+		public DecisionTree grow()
+		{
+			double[] distribution = new double[numClasses];
+			for(int i=0; i<numInstances; i++)
+			{
+				distribution[classes[i]] += data.getWeight(i);
+			}
+			return new DecisionTree(numClasses, grow(0, numInstances, null, null, distribution));
+		}
+
+		/**
+		 * Grow the subtree of a node
+		 *
+		 * @param from First position of the instances of the node in the order
+		 * @param to Position after the last instance of the node in the order
+		 * @param histogram Histogram of the node, or null if it is not computed yet
+		 * @param present Class of each column of the histogram, or null if it is not computed yet
+		 * @param distribution Weight of each class in the node
+		 *
+		 * @return Root of the subtree
+		 */
+		private DecisionTree.Node grow(int from, int to, double[] histogram, int[] present, double[] distribution)
+		{
+			DecisionTree.Node node = new DecisionTree.Node(distribution, false);
+			if(isLeaf(distribution))
+				return node;
+
+			if(histogram == null)
+			{
+				present = presentClasses(from, to);
+				histogram = computeHistogram(from, to, present);
+			}
+			int width = present.length;
+
+			double total = 0;
+			for(int c=0; c<numClasses; c++)
+			{
+				total += distribution[c];
+			}
+
+			//Best split of each feature
+			int numFeatures = data.getNumFeatures();
+			boolean[] valid = new boolean[numFeatures];
+			boolean[] inAverage = new boolean[numFeatures];
+			double[] infoGains = new double[numFeatures];
+			double[] gainRatios = new double[numFeatures];
+			int[] lastBins = new int[numFeatures];
+			for(int f=0; f<numFeatures; f++)
+			{
+				if(binning.numBins[f] > 0)
+				{
+					if(binning.limits[f] == null)
+						evaluateNominal(f, histogram, width, total, valid, inAverage, infoGains, gainRatios);
+					else
+						evaluateNumeric(f, histogram, present, distribution, total, valid, inAverage, infoGains, gainRatios, lastBins);
+				}
+			}
+
+			int f = selectFeature(valid, inAverage, infoGains, gainRatios);
+			if(f < 0)
+				return node;
+
+			//Weight of each branch, and largest branch, that also receives the missing values
+			int numBranches = (binning.limits[f] == null) ? binning.numBins[f] : 2;
+			double[] branchWeights = new double[numBranches];
+			int slot = binning.offsets[f];
+			for(int bin=0; bin<binning.numBins[f]; bin++)
+			{
+				int b = branchOfBin(f, bin, lastBins[f]);
+				for(int c=0; c<width; c++)
+				{
+					branchWeights[b] += histogram[(slot + bin)*width + c];
+				}
+			}
+			int largest = 0;
+			for(int b=1; b<numBranches; b++)
+			{
+				if(branchWeights[b] > branchWeights[largest])
+					largest = b;
+			}
+
+			//Partition the instances of the node by branch
+			int[] starts = new int[numBranches + 1];
+			double[] childDistributions = new double[numBranches * numClasses];
+			for(int k=from; k<to; k++)
+			{
+				int i = order[k];
+				int bin = binning.getCode(f, i, numInstances);
+				int b = (bin == binning.numBins[f]) ? largest : branchOfBin(f, bin, lastBins[f]);
+				branchOf[i] = b;
+				starts[b+1]++;
+				childDistributions[b*numClasses + classes[i]] += data.getWeight(i);
+			}
+			for(int b=0; b<numBranches; b++)
+			{
+				starts[b+1] += starts[b];
+			}
+			int[] positions = Arrays.copyOf(starts, numBranches);
+			for(int k=from; k<to; k++)
+			{
+				int i = order[k];
+				buffer[from + positions[branchOf[i]]++] = i;
+			}
+			System.arraycopy(buffer, from, order, from, to - from);
+
+			//The histogram of the largest child is obtained by subtraction, with the columns of the node
+			double[][] childHistograms = new double[numBranches][];
+			int[][] childPresent = new int[numBranches][];
+			for(int b=0; b<numBranches; b++)
+			{
+				if(b != largest && starts[b+1] > starts[b])
+				{
+					childPresent[b] = presentClasses(from + starts[b], from + starts[b+1]);
+					childHistograms[b] = computeHistogram(from + starts[b], from + starts[b+1], childPresent[b]);
+					subtractHistogram(histogram, present, childHistograms[b], childPresent[b], from + starts[b], from + starts[b+1]);
+				}
+			}
+			childHistograms[largest] = histogram;
+			childPresent[largest] = present;
+
+			DecisionTree.Node[] children = new DecisionTree.Node[numBranches];
+			for(int b=0; b<numBranches; b++)
+			{
+				if(starts[b+1] > starts[b])
+				{
+					double[] childDistribution = Arrays.copyOfRange(childDistributions, b*numClasses, (b+1)*numClasses);
+					children[b] = grow(from + starts[b], from + starts[b+1], childHistograms[b], childPresent[b], childDistribution);
+				}
+				else
+					children[b] = new DecisionTree.Node(distribution, true);
+				childHistograms[b] = null;
+				childPresent[b] = null;
+			}
+
+			if(binning.limits[f] == null)
+				node.setNominalSplit(f, children);
+			else
+				node.setNumericSplit(f, binning.limits[f][lastBins[f]], children);
+			return node;
+		}
+
+		/**
+		 * Evaluate the split of a numeric feature in a node, at the limits of its bins
+		 *
+		 * @param f Index of the feature
+		 * @param histogram Histogram of the node
+		 * @param present Class of each column of the histogram
+		 * @param distribution Weight of each class in the node
+		 * @param total Weight of the node
+		 * @param valid Indicates if each feature has a valid split, to be updated
+		 * @param inAverage Indicates if each feature is used in the average gain, to be updated
+		 * @param infoGains Information gain of each feature, to be updated
+		 * @param gainRatios Gain ratio of each feature, to be updated
+		 * @param lastBins Last bin of the first branch of each feature, to be updated
+		 */
+		private void evaluateNumeric(int f, double[] histogram, int[] present, double[] distribution, double total,
+				boolean[] valid, boolean[] inAverage, double[] infoGains, double[] gainRatios, int[] lastBins)
+		{
+			int slot = binning.offsets[f];
+			int numBins = binning.numBins[f];
+			int width = present.length;
+
+			//Distribution of the instances with known value, only for the classes present in the node
+			double[] known = new double[width];
+			double knownTotal = 0;
+			int missing = (slot + numBins) * width;
+			for(int c=0; c<width; c++)
+			{
+				known[c] = distribution[present[c]] - histogram[missing + c];
+				knownTotal += known[c];
+			}
+
+			double minSplit = minSplit(knownTotal, numClasses);
+			if(knownTotal < 2 * minSplit - SMALL)
+				return;
+			double oldEnt = entropy(known, 0, width, knownTotal);
+
+			double[] left = new double[width];
+			double[] right = new double[width];
+			double leftTotal = 0, bestGain = 0, bestLeftTotal = 0;
+			int lastBin = -1, bestBin = -1, numCandidates = 0;
+			for(int bin=0; bin<numBins; bin++)
+			{
+				int position = (slot + bin) * width;
+				double binTotal = 0;
+				for(int c=0; c<width; c++)
+				{
+					binTotal += histogram[position + c];
+				}
+				if(binTotal < SMALL)
+					continue;
+
+				//Candidate threshold between the previous non-empty bin and this one
+				double rightTotal = knownTotal - leftTotal;
+				if(lastBin >= 0 && leftTotal > minSplit - SMALL && rightTotal > minSplit - SMALL)
+				{
+					for(int c=0; c<width; c++)
+					{
+						right[c] = known[c] - left[c];
+					}
+					double newEnt = entropy(left, 0, width, leftTotal) + entropy(right, 0, width, rightTotal);
+					double gain = infoGain(oldEnt, newEnt, knownTotal, total);
+					if(gain - bestGain > SMALL)
+					{
+						bestGain = gain;
+						bestBin = lastBin;
+						bestLeftTotal = leftTotal;
+					}
+					numCandidates++;
+				}
+
+				for(int c=0; c<width; c++)
+				{
+					left[c] += histogram[position + c];
+				}
+				leftTotal += binTotal;
+				lastBin = bin;
+			}
+
+			if(numCandidates == 0)
+				return;
+
+			//Correction for the number of candidate thresholds
+			double gain = bestGain - Math.log(numCandidates) / Math.log(2) / total;
+			if(gain < SMALL)
+				return;
+
+			valid[f] = true;
+			inAverage[f] = true;
+			infoGains[f] = gain;
+			gainRatios[f] = gainRatio(gain, new double[]{bestLeftTotal, knownTotal - bestLeftTotal}, knownTotal, total);
+			lastBins[f] = bestBin;
+		}
+
+		/**
+		 * Evaluate the split of a nominal feature in a node, with one branch for each value
+		 *
+		 * @param f Index of the feature
+		 * @param histogram Histogram of the node
+		 * @param width Number of columns of the histogram
+		 * @param total Weight of the node
+		 * @param valid Indicates if each feature has a valid split, to be updated
+		 * @param inAverage Indicates if each feature is used in the average gain, to be updated
+		 * @param infoGains Information gain of each feature, to be updated
+		 * @param gainRatios Gain ratio of each feature, to be updated
+		 */
+		private void evaluateNominal(int f, double[] histogram, int width, double total,
+				boolean[] valid, boolean[] inAverage, double[] infoGains, double[] gainRatios)
+		{
+			int slot = binning.offsets[f];
+			int numValues = binning.numBins[f];
+
+			double[] known = new double[width];
+			double[] branchTotals = new double[numValues];
+			double knownTotal = 0, newEnt = 0;
+			int numLarge = 0;
+			for(int v=0; v<numValues; v++)
+			{
+				int position = (slot + v) * width;
+				for(int c=0; c<width; c++)
+				{
+					branchTotals[v] += histogram[position + c];
+					known[c] += histogram[position + c];
+				}
+				knownTotal += branchTotals[v];
+				newEnt += entropy(histogram, position, width, branchTotals[v]);
+				if(branchTotals[v] > minNumObj - SMALL)
+					numLarge++;
+			}
+
+			//At least two branches must have the minimum number of instances
+			if(numLarge < 2)
+				return;
+
+			valid[f] = true;
+			inAverage[f] = multiVal || numValues < 0.3 * numInstances;
+			infoGains[f] = infoGain(entropy(known, 0, width, knownTotal), newEnt, knownTotal, total);
+			gainRatios[f] = gainRatio(infoGains[f], branchTotals, knownTotal, total);
+		}
+
+		/**
+		 * Get the classes of the instances of a node
+		 *
+		 * @param from First position of the instances of the node in the order
+		 * @param to Position after the last instance of the node in the order
+		 *
+		 * @return Classes present in the node, in increasing order
+		 */
+		private int[] presentClasses(int from, int to)
+		{
+			int[] present = new int[Math.min(numClasses, to - from)];
+			int width = 0;
+			for(int k=from; k<to; k++)
+			{
+				int c = classes[order[k]];
+				if(column[c] < 0)
+				{
+					column[c] = width;
+					present[width++] = c;
+				}
+			}
+			for(int c=0; c<width; c++)
+			{
+				column[present[c]] = -1;
+			}
+
+			//The classes are kept in increasing order, so the entropies are added in the same order than with all the classes
+			present = Arrays.copyOf(present, width);
+			Arrays.sort(present);
+			return present;
+		}
+
+		/**
+		 * Compute the histogram of the instances of a node
+		 *
+		 * @param from First position of the instances of the node in the order
+		 * @param to Position after the last instance of the node in the order
+		 * @param present Classes present in the node, one for each column of the histogram
+		 *
+		 * @return Weight of each class present in each bin of each feature
+		 */
+		private double[] computeHistogram(int from, int to, int[] present)
+		{
+			int width = present.length;
+			for(int c=0; c<width; c++)
+			{
+				column[present[c]] = c;
+			}
+
+			double[] histogram = new double[binning.numSlots * width];
+			for(int f=0; f<data.getNumFeatures(); f++)
+			{
+				int slot = binning.offsets[f];
+				int offset = f * numInstances;
+				for(int k=from; k<to; k++)
+				{
+					int i = order[k];
+					int bin = binning.codes[offset + i] & 0xFF;
+					histogram[(slot + bin)*width + column[classes[i]]] += data.getWeight(i);
+				}
+			}
+
+			for(int c=0; c<width; c++)
+			{
+				column[present[c]] = -1;
+			}
+			return histogram;
+		}
+
+		/**
+		 * Subtract the histogram of a child from the histogram of its parent.
+		 * The classes of the child are a subset of the ones of the parent. If the child has less instances than bins, its instances are
+		 *  subtracted one by one, and otherwise its histogram is subtracted bin by bin.
+		 *
+		 * @param histogram Histogram of the parent, to be updated
+		 * @param present Classes present in the parent
+		 * @param childHistogram Histogram of the child
+		 * @param childPresent Classes present in the child
+		 * @param from First position of the instances of the child in the order
+		 * @param to Position after the last instance of the child in the order
+		 */
+		private void subtractHistogram(double[] histogram, int[] present, double[] childHistogram, int[] childPresent, int from, int to)
+		{
+			int width = present.length;
+			int childWidth = childPresent.length;
+			for(int c=0; c<width; c++)
+			{
+				column[present[c]] = c;
+			}
+
+			int numFeatures = data.getNumFeatures();
+			if((long) (to - from) * numFeatures < (long) binning.numSlots * childWidth)
+			{
+				for(int f=0; f<numFeatures; f++)
+				{
+					int slot = binning.offsets[f];
+					int offset = f * numInstances;
+					for(int k=from; k<to; k++)
+					{
+						int i = order[k];
+						int bin = binning.codes[offset + i] & 0xFF;
+						histogram[(slot + bin)*width + column[classes[i]]] -= data.getWeight(i);
+					}
+				}
+			}
+			else
+			{
+				int[] toParent = new int[childWidth];
+				for(int c=0; c<childWidth; c++)
+				{
+					toParent[c] = column[childPresent[c]];
+				}
+				for(int s=0; s<binning.numSlots; s++)
+				{
+					for(int c=0; c<childWidth; c++)
+					{
+						histogram[s*width + toParent[c]] -= childHistogram[s*childWidth + c];
+					}
+				}
+			}
+
+			for(int c=0; c<width; c++)
+			{
+				column[present[c]] = -1;
+			}
+		}
+
+		/**
+		 * Get the branch of a known bin in a split
+		 *
+		 * @param f Index of the feature
+		 * @param bin Bin
+		 * @param lastBin Last bin of the first branch, for numeric features
+		 *
+		 * @return Index of the branch
+		 */
+		private int branchOfBin(int f, int bin, int lastBin)
+		{
+			if(binning.limits[f] == null)
+				return bin;
+			return bin <= lastBin ? 0 : 1;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import java.io.Serializable;
+
+import eme.DenseDataset;
+import eme.LabelSubset;
+import mulan.classifier.MultiLabelLearner;
+import mulan.data.MultiLabelInstances;
+
+/**
+ * Interface for the factories of the base classifiers of EME.
+ * A factory is created once for each training dataset, so it may precompute any structure shared by all the base classifiers.
+ */
+public interface IBaseLearner extends Serializable
+{
+	/**
+	 * Set the dataset used to build all the base classifiers
+	 *
+	 * @param datasetTrain Dataset to build the base classifiers
+	 * @param denseTrain The same dataset stored in primitive arrays
+	 */
+	public void setDatasetTrain(MultiLabelInstances datasetTrain, DenseDataset denseTrain);
+
+	/**
+	 * Create a new base classifier, not built yet.
+	 * It is built with the training dataset projected over the labels of the subset.
+	 *
+	 * @param subset Subset of labels of the base classifier, or null if it uses all the labels
+	 *
+	 * @return Base classifier
+	 */
+	public MultiLabelLearner createLearner(LabelSubset subset);
+
+	/**
+	 * Estimate the size in memory of a built base classifier, from the size of its model instead of serializing it.
+	 * It is used to charge the base classifier against the memory budget of the store.
+	 *
+	 * @param subset Subset of labels of the base classifier
+	 * @param learner Base classifier created and built by this learner
+	 *
+	 * @return Estimated size in bytes
+	 */
+	public long estimateSize(LabelSubset subset, MultiLabelLearner learner);
+
+	/**
+	 * Get the name of the format of the base classifiers, to be changed if the learner or any of its settings change.
+	 * The stored base classifiers are only reused with the same format.
+	 *
+	 * @return Name of the format
+	 */
+	public String getFormat();
+}
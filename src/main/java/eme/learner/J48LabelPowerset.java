@@ -0,0 +1,102 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import eme.DenseDataset;
+import eme.LabelSubset;
+import mulan.classifier.MultiLabelLearner;
+import mulan.classifier.transformation.LabelPowerset;
+import mulan.data.MultiLabelInstances;
+import weka.classifiers.trees.J48;
+
+/**
+ * Class implementing the default base learner of EME, LP with J48 from Mulan and Weka
+ */
+public class J48LabelPowerset implements IBaseLearner
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -2279508093165238710L;
+
+	/**
+	 *  Estimated bytes of each node of J48, without its class distribution */
+	protected static final long NODE_BYTES = 160;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Number of instances of the training dataset, which bounds the number of LP classes */
+	protected int numInstances;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public J48LabelPowerset()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public void setDatasetTrain(MultiLabelInstances datasetTrain, DenseDataset denseTrain)
+	{
+		//Each classifier is built from the Weka instances, so nothing is precomputed
+		numInstances = datasetTrain.getNumInstances();
+	}
+
+	@Override
+	public MultiLabelLearner createLearner(LabelSubset subset)
+	{
+		return new LabelPowerset(new J48());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Each node of J48 stores the weight of each class in each branch, and the number of LP classes is bounded
+	 *  by the number of combinations of the labels of the subset and by the number of instances.
+	 */
+	@Override
+	public long estimateSize(LabelSubset subset, MultiLabelLearner learner)
+	{
+		double numNodes = 1;
+		if(learner instanceof LabelPowerset && ((LabelPowerset) learner).getBaseClassifier() instanceof J48)
+			numNodes = ((J48) ((LabelPowerset) learner).getBaseClassifier()).measureTreeSize();
+
+		long numClasses = (subset.size() < 62) ? (1L << subset.size()) : Long.MAX_VALUE;
+		if(numInstances > 0)
+			numClasses = Math.min(numClasses, numInstances);
+
+		//Weight of each class in each of the two branches and in the node
+		return (long) (numNodes * (NODE_BYTES + 3 * 8 * numClasses));
+	}
+
+	@Override
+	public String getFormat()
+	{
+		return "LP-J48-v1";
+	}
+}
@@ -0,0 +1,435 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import java.util.Arrays;
+
+import eme.DenseDataset;
+import eme.LabelSubset;
+
+/**
+ * Class implementing the LP transformation of a subset of labels over the bit matrix of labels of a dataset.
+ *
+ * The combination of labels of each instance is obtained by extracting the bits of the subset from its label words,
+ *  and compacting them in a single word with a fixed sequence of shifts that only depends on the subset.
+ * Then, the combinations are mapped to consecutive classes in order of appearance, with a table if the subset has at most
+ *  16 labels, or with an open addressing hash table otherwise. No string or object is created for each instance.
+ */
+public class LabelPowersetEncoder
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Maximum number of labels of a subset using a table to map the combinations */
+	protected static final int MAX_TABLE_LABELS = 16;
+
+	/**
+	 *  Indices of the labels of the subset, in ascending order */
+	protected int[] labels;
+
+	/**
+	 *  Class of each instance */
+	protected int[] classes;
+
+	/**
+	 *  Combination of labels of each class, where the bit j is the label labels[j] */
+	protected long[] combinations;
+
+	/**
+	 *  Number of classes */
+	protected int numClasses;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters. The classes of all the instances are computed.
+	 *
+	 * @param data Dataset
+	 * @param subset Subset of labels
+	 */
+	public LabelPowersetEncoder(DenseDataset data, LabelSubset subset)
+	{
+		this(data, subset.getActiveLabels());
+	}
+
+	/**
+	 * Constructor with parameters. The classes of all the instances are computed.
+	 *
+	 * @param data Dataset
+	 * @param labels Indices of the labels of the subset, in ascending order. At most 64 labels.
+	 */
+	public LabelPowersetEncoder(DenseDataset data, int[] labels)
+	{
+		if(labels.length > 64)
+			throw new IllegalArgumentException("The LP transformation is limited to subsets of 64 labels");
+		this.labels = labels;
+		encode(data);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the class of each instance
+	 *
+	 * @return Class of each instance
+	 */
+	public int[] getClasses()
+	{
+		return classes;
+	}
+
+	/**
+	 * Get the number of classes, that is, the number of distinct combinations of labels in the dataset
+	 *
+	 * @return Number of classes
+	 */
+	public int getNumClasses()
+	{
+		return numClasses;
+	}
+
+	/**
+	 * Get the combination of labels of a class
+	 *
+	 * @param c Class
+	 *
+	 * @return Combination of labels, where the bit j is the j-th label of the subset
+	 */
+	public long getCombination(int c)
+	{
+		return combinations[c];
+	}
+
+	/**
+	 * Get the relevant labels of each class
+	 *
+	 * @return For each class, TRUE for the relevant labels of the subset and FALSE otherwise
+	 */
+	public boolean[][] getClassLabels()
+	{
+		boolean[][] classLabels = new boolean[numClasses][labels.length];
+		for(int c=0; c<numClasses; c++)
+		{
+			for(int j=0; j<labels.length; j++)
+			{
+				classLabels[c][j] = (combinations[c] & (1L << j)) != 0;
+			}
+		}
+		return classLabels;
+	}
+
+	/**
+	 * Merge the rare combinations of labels into frequent ones, as in the pruned sets method.
+	 * The combinations with less instances than the support threshold, and the least frequent ones over the maximum number of classes,
+	 *  are replaced by the largest frequent combination included in them, or by the nearest one (Hamming distance) if there is none.
+	 *
+	 * @param minSupport Minimum number of instances of a combination to be kept
+	 * @param maxClasses Maximum number of classes, or 0 if it is not limited
+	 */
+	public void mergeRareClasses(int minSupport, int maxClasses)
+	{
+		int[] counts = new int[numClasses];
+		for(int i=0; i<classes.length; i++)
+		{
+			counts[classes[i]]++;
+		}
+
+		//Classes sorted by decreasing frequency, and by order of appearance in case of tie
+		long[] order = new long[numClasses];
+		for(int c=0; c<numClasses; c++)
+		{
+			order[c] = ((long) counts[c] << 32) | (Integer.MAX_VALUE - c);
+		}
+		Arrays.sort(order);
+
+		//At least the most frequent class is kept
+		boolean[] kept = new boolean[numClasses];
+		int numKept = 0;
+		for(int k=numClasses-1; k>=0; k--)
+		{
+			int c = Integer.MAX_VALUE - (int) (order[k] & 0xFFFFFFFFL);
+			if(numKept > 0 && (counts[c] < minSupport || (maxClasses > 0 && numKept >= maxClasses)))
+				break;
+			kept[c] = true;
+			numKept++;
+		}
+		if(numKept == numClasses)
+			return;
+
+		//New index of each kept class, in order of appearance
+		int[] newIndex = new int[numClasses];
+		long[] newCombinations = new long[numKept];
+		for(int c=0, k=0; c<numClasses; c++)
+		{
+			if(kept[c])
+			{
+				newIndex[c] = k;
+				newCombinations[k] = combinations[c];
+				k++;
+			}
+		}
+
+		//Each rare class is merged into a kept one
+		for(int c=0; c<numClasses; c++)
+		{
+			if(kept[c])
+				continue;
+
+			int best = -1;
+			for(int k=0; k<numClasses; k++)
+			{
+				if(kept[k] && (best < 0 || isCloser(combinations[c], k, best, counts)))
+					best = k;
+			}
+			newIndex[c] = newIndex[best];
+		}
+
+		for(int i=0; i<classes.length; i++)
+		{
+			classes[i] = newIndex[classes[i]];
+		}
+		combinations = newCombinations;
+		numClasses = numKept;
+	}
+
+	/**
+	 * Count the number of distinct combinations of labels of a subset in a dataset, that is, the number of classes of its LP transformation
+	 *
+	 * @param data Dataset
+	 * @param subset Subset of labels
+	 *
+	 * @return Number of classes
+	 */
+	public static int countClasses(DenseDataset data, LabelSubset subset)
+	{
+		return new LabelPowersetEncoder(data, subset).getNumClasses();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compute the class of each instance
+	 *
+	 * @param data Dataset
+	 */
+	protected void encode(DenseDataset data)
+	{
+		int numInstances = data.getNumInstances();
+		int numWords = data.getNumLabelWords();
+		long[] matrix = data.getLabels();
+
+		//Words of the matrix with labels of the subset, and the plan to compact each of them
+		long[] masks = new long[numWords];
+		for(int j=0; j<labels.length; j++)
+		{
+			masks[labels[j] >>> 6] |= 1L << labels[j];
+		}
+		int numUsed = 0;
+		for(int w=0; w<numWords; w++)
+		{
+			if(masks[w] != 0)
+				numUsed++;
+		}
+		int[] words = new int[numUsed];
+		int[] shifts = new int[numUsed];
+		long[][] plans = new long[numUsed][];
+		for(int w=0, u=0, shift=0; w<numWords; w++)
+		{
+			if(masks[w] != 0)
+			{
+				words[u] = w;
+				shifts[u] = shift;
+				plans[u] = compressPlan(masks[w]);
+				shift += Long.bitCount(masks[w]);
+				u++;
+			}
+		}
+
+		classes = new int[numInstances];
+		combinations = new long[Math.min(numInstances, 16)];
+		numClasses = 0;
+
+		if(labels.length <= MAX_TABLE_LABELS)
+		{
+			int[] table = new int[1 << labels.length];
+			Arrays.fill(table, -1);
+			for(int i=0; i<numInstances; i++)
+			{
+				int combination = (int) combination(matrix, i*numWords, words, shifts, masks, plans);
+				int c = table[combination];
+				if(c < 0)
+				{
+					c = addClass(combination);
+					table[combination] = c;
+				}
+				classes[i] = c;
+			}
+		}
+		else
+		{
+			//Open addressing with linear probing, with at most half of the slots used
+			int capacity = Integer.highestOneBit(Math.max(numInstances, 1)) << 2;
+			long[] keys = new long[capacity];
+			int[] values = new int[capacity];
+			Arrays.fill(values, -1);
+			for(int i=0; i<numInstances; i++)
+			{
+				long combination = combination(matrix, i*numWords, words, shifts, masks, plans);
+				int slot = (int) (mix(combination) & (capacity - 1));
+				while(values[slot] >= 0 && keys[slot] != combination)
+				{
+					slot = (slot + 1) & (capacity - 1);
+				}
+				if(values[slot] < 0)
+				{
+					keys[slot] = combination;
+					values[slot] = addClass(combination);
+				}
+				classes[i] = values[slot];
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the combination of labels of the subset of an instance
+	 *
+	 * @param matrix Bit matrix of labels
+	 * @param row Position of the first word of the instance
+	 * @param words Words with labels of the subset
+	 * @param shifts Position in the combination of the first label of each word
+	 * @param masks Labels of the subset in each word of the matrix
+	 * @param plans Plan to compact each word
+	 *
+	 * @return Combination of labels, where the bit j is the j-th label of the subset
+	 */
+	private static long combination(long[] matrix, int row, int[] words, int[] shifts, long[] masks, long[][] plans)
+	{
+		long combination = 0;
+		for(int u=0; u<words.length; u++)
+		{
+			combination |= compress(matrix[row + words[u]] & masks[words[u]], plans[u]) << shifts[u];
+		}
+		return combination;
+	}
+
+	/**
+	 * Indicates if a class is a better replacement than another one for a rare combination:
+	 *  first the combinations included in it, then the nearest ones, and then the most frequent ones
+	 *
+	 * @param rare Rare combination
+	 * @param c Class
+	 * @param other Other class
+	 * @param counts Number of instances of each class
+	 *
+	 * @return TRUE if the class is better than the other one and FALSE otherwise
+	 */
+	private boolean isCloser(long rare, int c, int other, int[] counts)
+	{
+		boolean included = (combinations[c] & ~rare) == 0;
+		boolean otherIncluded = (combinations[other] & ~rare) == 0;
+		if(included != otherIncluded)
+			return included;
+
+		int distance = Long.bitCount(combinations[c] ^ rare);
+		int otherDistance = Long.bitCount(combinations[other] ^ rare);
+		if(distance != otherDistance)
+			return distance < otherDistance;
+
+		return counts[c] > counts[other];
+	}
+
+	/**
+	 * Add a new class
+	 *
+	 * @param combination Combination of labels of the class
+	 *
+	 * @return Index of the class
+	 */
+	private int addClass(long combination)
+	{
+		if(numClasses == combinations.length)
+			combinations = Arrays.copyOf(combinations, 2 * combinations.length);
+		combinations[numClasses] = combination;
+		return numClasses++;
+	}
+
+	/**
+	 * Compute the masks of the bits moved in each step of the compaction of the bits of a mask (Hacker's Delight, 7-4)
+	 *
+	 * @param mask Mask of the bits to extract
+	 *
+	 * @return Mask of the bits moved in each of the 6 steps
+	 */
+	private static long[] compressPlan(long mask)
+	{
+		long[] plan = new long[6];
+		long mk = ~mask << 1;
+		for(int i=0; i<6; i++)
+		{
+			long mp = mk ^ (mk << 1);
+			mp = mp ^ (mp << 2);
+			mp = mp ^ (mp << 4);
+			mp = mp ^ (mp << 8);
+			mp = mp ^ (mp << 16);
+			mp = mp ^ (mp << 32);
+			long mv = mp & mask;
+			plan[i] = mv;
+			mask = (mask ^ mv) | (mv >>> (1 << i));
+			mk = mk & ~mp;
+		}
+		return plan;
+	}
+
+	/**
+	 * Compact the bits of a word selected by a mask into its lowest bits, keeping their order
+	 *
+	 * @param x Word, with only the bits of the mask
+	 * @param plan Plan of the mask
+	 *
+	 * @return Compacted bits
+	 */
+	private static long compress(long x, long[] plan)
+	{
+		for(int i=0; i<6; i++)
+		{
+			long t = x & plan[i];
+			x = (x ^ t) | (t >>> (1 << i));
+		}
+		return x;
+	}
+
+	/**
+	 * Mix the bits of a combination for the hash table
+	 *
+	 * @param x Combination
+	 *
+	 * @return Mixed bits
+	 */
+	private static long mix(long x)
+	{
+		x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+		x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return x ^ (x >>> 33);
+	}
+}
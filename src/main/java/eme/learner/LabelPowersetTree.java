@@ -0,0 +1,245 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import java.util.Arrays;
+
+import eme.BaseModelPredictions;
+import eme.DenseDataset;
+import eme.LabelSubset;
+import mulan.classifier.MultiLabelLearnerBase;
+import mulan.classifier.MultiLabelOutput;
+import mulan.data.MultiLabelInstances;
+import weka.core.Instance;
+import weka.core.TechnicalInformation;
+
+/**
+ * Class implementing LP with a decision tree of the tree learners of EME.
+ *
+ * If it is built with the training dataset of its learner projected over its subset of labels, the tree is built
+ *  over the primitive arrays shared by all the base classifiers, and only the classes of the instances are computed.
+ * As in the LP of Mulan, the confidence of each label is the sum of the probabilities of the combinations including it.
+ * Optionally, the rare combinations are merged into frequent ones, so the number of classes of the tree is bounded.
+ */
+public class LabelPowersetTree extends MultiLabelLearnerBase
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -725040963218839452L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Learner of the tree, only kept until the tree is built */
+	protected transient AbstractTreeLearner learner;
+
+	/**
+	 *  Index in the training dataset of the learner of each label, or null if all the labels are used */
+	protected int[] activeLabels;
+
+	/**
+	 *  Relevant labels of each combination (class of the tree) */
+	protected boolean[][] classLabels;
+
+	/**
+	 *  Decision tree */
+	protected DecisionTree tree;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor with parameters
+	 *
+	 * @param learner Learner of the tree
+	 * @param subset Subset of labels, or null if all the labels are used
+	 */
+	public LabelPowersetTree(AbstractTreeLearner learner, LabelSubset subset)
+	{
+		this.learner = learner;
+		if(subset != null)
+			activeLabels = subset.getActiveLabels();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the decision tree
+	 *
+	 * @return Decision tree, or null if it is not built
+	 */
+	public DecisionTree getTree()
+	{
+		return tree;
+	}
+
+	/**
+	 * Get the number of combinations of labels (classes of the tree)
+	 *
+	 * @return Number of combinations
+	 */
+	public int getNumClasses()
+	{
+		return classLabels.length;
+	}
+
+	/**
+	 * Estimate the size in memory of the built classifier
+	 *
+	 * @return Size in bytes, or 0 if it is not built
+	 */
+	public long estimateSize()
+	{
+		if(tree == null)
+			return 0;
+
+		long size = tree.estimateSize();
+		for(int c=0; c<classLabels.length; c++)
+		{
+			size += 16 + classLabels[c].length;
+		}
+		return size;
+	}
+
+	/**
+	 * Obtain the predictions over all the instances of a dataset stored in primitive arrays, with the features of the training dataset.
+	 * The tree is run over the columns of the dataset, so no instance nor output is created for each instance.
+	 *
+	 * @param data Dataset
+	 * @param predictions Predictions of the classifier for its labels, to be filled
+	 */
+	public void makePredictions(DenseDataset data, BaseModelPredictions predictions)
+	{
+		double[] probabilities = new double[tree.getNumClasses()];
+		double[] confidences = new double[numLabels];
+		boolean[] bipartition = new boolean[numLabels];
+
+		for(int i=0; i<data.getNumInstances(); i++)
+		{
+			tree.distributionForInstance(data, i, probabilities);
+			combineClasses(probabilities, confidences, bipartition);
+			predictions.setPrediction(i, bipartition, confidences);
+		}
+	}
+
+	@Override
+	public String globalInfo()
+	{
+		return "Label Powerset with a C4.5 decision tree built over the feature matrix shared by all the base classifiers of EME.";
+	}
+
+	@Override
+	public TechnicalInformation getTechnicalInformation()
+	{
+		TechnicalInformation result = new TechnicalInformation(TechnicalInformation.Type.BOOK);
+		result.setValue(TechnicalInformation.Field.AUTHOR, "Ross Quinlan");
+		result.setValue(TechnicalInformation.Field.YEAR, "1993");
+		result.setValue(TechnicalInformation.Field.TITLE, "C4.5: Programs for Machine Learning");
+		result.setValue(TechnicalInformation.Field.PUBLISHER, "Morgan Kaufmann Publishers");
+		result.setValue(TechnicalInformation.Field.ADDRESS, "San Mateo, CA");
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	protected void buildInternal(MultiLabelInstances trainingSet) throws Exception
+	{
+		if(learner == null)
+			learner = new PresortedTreeLearner();
+
+		//The shared dataset is only used if the instances of the training set are projections of its instances
+		DenseDataset data = learner.getDatasetTrain();
+		int[] labels = activeLabels;
+		if(data == null || !(data.isBuiltFrom(trainingSet.getDataSet()) || data.isProjectedBy(trainingSet.getDataSet()))
+				|| (labels == null && data.getNumLabels() != numLabels) || (labels != null && labels.length != numLabels))
+		{
+			data = new DenseDataset(trainingSet);
+			labels = null;
+		}
+		if(labels == null)
+		{
+			labels = new int[numLabels];
+			for(int j=0; j<numLabels; j++)
+			{
+				labels[j] = j;
+			}
+		}
+
+		//Class of each instance, given by its combination of labels
+		LabelPowersetEncoder encoder = new LabelPowersetEncoder(data, labels);
+		if(learner.getMinSupport() > 1 || learner.getMaxClasses() > 0)
+			encoder.mergeRareClasses(learner.getMinSupport(), learner.getMaxClasses());
+		classLabels = encoder.getClassLabels();
+		debug("Number of LP classes: " + encoder.getNumClasses());
+		tree = learner.buildTree(data, encoder.getClasses(), Math.max(encoder.getNumClasses(), 1));
+
+		//The built classifier does not keep any reference to the dataset
+		learner = null;
+	}
+
+	@Override
+	protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception
+	{
+		double[] probabilities = tree.distributionForInstance(instance, featureIndices);
+
+		double[] confidences = new double[numLabels];
+		boolean[] bipartition = new boolean[numLabels];
+		combineClasses(probabilities, confidences, bipartition);
+		return new MultiLabelOutput(bipartition, confidences);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Obtain the output for the labels from the probabilities of the combinations.
+	 * The bipartition is the most probable combination.
+	 *
+	 * @param probabilities Probability of each combination
+	 * @param confidences Confidence of each label, overwritten
+	 * @param bipartition Bipartition of the labels, overwritten
+	 */
+	private void combineClasses(double[] probabilities, double[] confidences, boolean[] bipartition)
+	{
+		Arrays.fill(confidences, 0);
+		int best = 0;
+		for(int c=0; c<classLabels.length; c++)
+		{
+			if(probabilities[c] > probabilities[best])
+				best = c;
+			for(int j=0; j<numLabels; j++)
+			{
+				if(classLabels[c][j])
+					confidences[j] += probabilities[c];
+			}
+		}
+
+		if(classLabels.length > 0)
+			System.arraycopy(classLabels[best], 0, bipartition, 0, numLabels);
+		else
+			Arrays.fill(bipartition, false);
+	}
+}
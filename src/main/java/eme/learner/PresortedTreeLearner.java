@@ -0,0 +1,813 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.learner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import eme.DenseDataset;
+import mulan.data.MultiLabelInstances;
+
+/**
+ * Class implementing a learner of LP decision trees with the splits of C4.5, that sorts each numeric feature only once for all the trees.
+ *
+ * The trees are grown level by level. In each level, the instances are scanned in the order of each feature,
+ *  and the best split of every node of the level is searched at the same time, so the instances are never sorted again.
+ * Unlike J48, an instance with a missing value of the feature of a split is only sent to the largest branch,
+ *  and subtrees are not raised when pruning.
+ */
+public class PresortedTreeLearner extends AbstractTreeLearner
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -6408734512993851204L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  For each numeric feature, indices of the instances with known value sorted by value. Null for nominal features. */
+	protected transient int[][] sortedIndices;
+
+	/**
+	 *  For each numeric feature, indices of the instances with missing value. Null for nominal features. */
+	protected transient int[][] missingIndices;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PresortedTreeLearner()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public synchronized void setDatasetTrain(MultiLabelInstances datasetTrain, DenseDataset denseTrain)
+	{
+		super.setDatasetTrain(datasetTrain, denseTrain);
+		sortedIndices = null;
+		missingIndices = null;
+	}
+
+	@Override
+	public String getFormat()
+	{
+		return "LP-PresortedTree-v1-" + getSettings();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Sort the numeric features of the training dataset, only the first time that it is needed
+	 */
+	protected synchronized void sortFeatures()
+	{
+		if(sortedIndices == null)
+		{
+			int[][] missing = new int[denseTrain.getNumFeatures()][];
+			sortedIndices = sortFeatures(denseTrain, missing);
+			missingIndices = missing;
+		}
+	}
+
+	@Override
+	protected DecisionTree growTree(DenseDataset data, int[] classes, int numClasses)
+	{
+		int[][] sorted, missing;
+		if(data == denseTrain)
+		{
+			//The training dataset is sorted only once for all the trees
+			sortFeatures();
+			synchronized(this) {
+				sorted = sortedIndices;
+				missing = missingIndices;
+			}
+		}
+		else
+		{
+			missing = new int[data.getNumFeatures()][];
+			sorted = sortFeatures(data, missing);
+		}
+
+		return new Growth(data, classes, numClasses, sorted, missing).grow();
+	}
+
+	/**
+	 * Sort the numeric features of a dataset
+	 *
+	 * @param data Dataset
+	 * @param missing Array where the indices of the instances with missing value of each numeric feature are stored
+	 *
+	 * @return For each numeric feature, indices of the instances with known value sorted by value
+	 */
+	protected static int[][] sortFeatures(DenseDataset data, int[][] missing)
+	{
+		int numInstances = data.getNumInstances();
+		double[] features = data.getFeatures();
+		int[][] sorted = new int[data.getNumFeatures()][];
+		int[] buffer = new int[numInstances];
+
+		for(int f=0; f<data.getNumFeatures(); f++)
+		{
+			if(data.getNumFeatureValues(f) > 0)
+				continue;
+
+			int offset = f * numInstances;
+			int numKnown = 0;
+			for(int i=0; i<numInstances; i++)
+			{
+				if(!Double.isNaN(features[offset + i]))
+					numKnown++;
+			}
+
+			sorted[f] = new int[numKnown];
+			missing[f] = new int[numInstances - numKnown];
+			for(int i=0, k=0, m=0; i<numInstances; i++)
+			{
+				if(Double.isNaN(features[offset + i]))
+					missing[f][m++] = i;
+				else
+					sorted[f][k++] = i;
+			}
+			mergeSort(sorted[f], buffer, features, offset, 0, numKnown);
+		}
+
+		return sorted;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Stable sort of a range of indices by their values
+	 *
+	 * @param indices Indices to sort
+	 * @param buffer Auxiliary array, at least as long as the range
+	 * @param values Values
+	 * @param offset Offset of the value of the index 0
+	 * @param from First position of the range
+	 * @param to Position after the last one of the range
+	 */
+	private static void mergeSort(int[] indices, int[] buffer, double[] values, int offset, int from, int to)
+	{
+		if(to - from < 2)
+			return;
+
+		int middle = (from + to) >>> 1;
+		mergeSort(indices, buffer, values, offset, from, middle);
+		mergeSort(indices, buffer, values, offset, middle, to);
+		if(values[offset + indices[middle-1]] <= values[offset + indices[middle]])
+			return;
+
+		System.arraycopy(indices, from, buffer, from, to - from);
+		for(int k=from, i=from, j=middle; k<to; k++)
+		{
+			if(j >= to || (i < middle && values[offset + buffer[i]] <= values[offset + buffer[j]]))
+				indices[k] = buffer[i++];
+			else
+				indices[k] = buffer[j++];
+		}
+	}
+
+	/**
+	 * Logarithm in base 2
+	 *
+	 * @param x Value
+	 *
+	 * @return Logarithm in base 2
+	 */
+	private static double log2(double x)
+	{
+		return Math.log(x) / Math.log(2);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Growth class
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Growth of a tree, level by level
+	 */
+	private class Growth
+	{
+		/**
+		 *  Dataset */
+		private DenseDataset data;
+
+		/**
+		 *  Class of each instance */
+		private int[] classes;
+
+		/**
+		 *  Number of classes */
+		private int numClasses;
+
+		/**
+		 *  Number of instances of the dataset */
+		private int numInstances;
+
+		/**
+		 *  Values of the features, stored by columns */
+		private double[] features;
+
+		/**
+		 *  Sorted indices of the whole dataset, used to set the thresholds to actual values */
+		private int[][] allSorted;
+
+		/**
+		 *  Sorted indices of the instances that still may be split */
+		private int[][] sorted;
+
+		/**
+		 *  Indices with missing values of the instances that still may be split */
+		private int[][] missing;
+
+		/**
+		 *  Instances that still may be split */
+		private int[] active;
+
+		/**
+		 *  Number of instances in the sorted lists */
+		private int numSorted;
+
+		/**
+		 *  Index in the current level of the node of each instance, or -1 if it is in a leaf */
+		private int[] nodeOf;
+
+		/**
+		 *  Branch of each instance in the split of its node, or -1 if its value is missing */
+		private int[] branchOf;
+
+		/**
+		 *  Index in the next level of the child node of each instance, or -1 if its node is not split */
+		private int[] childOf;
+
+		/**
+		 *  Indicates if the nominal features with many values are used in the average information gain */
+		private boolean multiVal;
+
+		/**
+		 * Constructor with parameters
+		 *
+		 * @param data Dataset
+		 * @param classes Class of each instance
+		 * @param numClasses Number of classes
+		 * @param sorted Sorted indices of the numeric features
+		 * @param missing Indices with missing values of the numeric features
+		 */
+		public Growth(DenseDataset data, int[] classes, int numClasses, int[][] sorted, int[][] missing)
+		{
+			this.data = data;
+			this.classes = classes;
+			this.numClasses = numClasses;
+			this.numInstances = data.getNumInstances();
+			this.features = data.getFeatures();
+			this.allSorted = sorted;
+			this.sorted = sorted;
+			this.missing = missing;
+
+			active = new int[numInstances];
+			for(int i=0; i<numInstances; i++)
+			{
+				active[i] = i;
+			}
+			numSorted = numInstances;
+			nodeOf = new int[numInstances];
+			branchOf = new int[numInstances];
+			childOf = new int[numInstances];
+
+			//As in J48, only if all the features are nominal with many values
+			multiVal = true;
+			for(int f=0; f<data.getNumFeatures(); f++)
+			{
+				if(data.getNumFeatureValues(f) == 0 || data.getNumFeatureValues(f) < 0.3 * numInstances)
+				{
+					multiVal = false;
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Grow the tree
+		 *
+		 * @return Decision tree
+		 */
+		public DecisionTree grow()
+		{
+			double[] rootDistribution = new double[numClasses];
+			for(int i=0; i<numInstances; i++)
+			{
+				rootDistribution[classes[i]] += data.getWeight(i);
+			}
+			DecisionTree.Node root = new DecisionTree.Node(rootDistribution, false);
+
+			ArrayList<DecisionTree.Node> level = new ArrayList<DecisionTree.Node>();
+			level.add(root);
+			int numActive = numInstances;
+
+			while(level.size() > 0)
+			{
+				int numNodes = level.size();
+				double[] totals = new double[numNodes];
+				int[] counts = new int[numNodes];
+				for(int k=0; k<numActive; k++)
+				{
+					counts[nodeOf[active[k]]]++;
+				}
+
+				//Nodes that may be split, with their index among them
+				int[] splitIndex = new int[numNodes];
+				int numSplit = 0;
+				for(int n=0; n<numNodes; n++)
+				{
+					double[] distribution = level.get(n).getDistribution();
+					for(int c=0; c<numClasses; c++)
+					{
+						totals[n] += distribution[c];
+					}
+					if(isLeaf(distribution))
+						splitIndex[n] = -1;
+					else
+						splitIndex[n] = numSplit++;
+				}
+				if(numSplit == 0)
+					break;
+
+				//Best split of each feature for each node
+				int numFeatures = data.getNumFeatures();
+				boolean[][] valid = new boolean[numSplit][numFeatures];
+				boolean[][] inAverage = new boolean[numSplit][numFeatures];
+				double[][] infoGains = new double[numSplit][numFeatures];
+				double[][] gainRatios = new double[numSplit][numFeatures];
+				double[][] thresholds = new double[numSplit][numFeatures];
+
+				for(int f=0; f<numFeatures; f++)
+				{
+					if(data.getNumFeatureValues(f) > 0)
+						scanNominal(f, numActive, level, splitIndex, numSplit, totals, valid, inAverage, infoGains, gainRatios);
+					else
+						scanNumeric(f, level, splitIndex, numSplit, totals, counts, valid, inAverage, infoGains, gainRatios, thresholds);
+				}
+
+				//Split the nodes and distribute the instances to the next level
+				int[] splitFeature = new int[numNodes];
+				int[] firstChild = new int[numNodes];
+				int numChildren = 0;
+				for(int n=0; n<numNodes; n++)
+				{
+					splitFeature[n] = -1;
+					if(splitIndex[n] >= 0)
+					{
+						int s = splitIndex[n];
+						splitFeature[n] = selectFeature(valid[s], inAverage[s], infoGains[s], gainRatios[s]);
+						if(splitFeature[n] >= 0)
+						{
+							firstChild[n] = numChildren;
+							numChildren += numBranches(splitFeature[n]);
+						}
+					}
+				}
+
+				double[] childDistributions = new double[numChildren * numClasses];
+				double[] knownWeights = new double[numChildren];
+				for(int k=0; k<numActive; k++)
+				{
+					int i = active[k];
+					int n = nodeOf[i];
+					int f = splitFeature[n];
+					if(f >= 0)
+					{
+						double value = features[f*numInstances + i];
+						if(Double.isNaN(value))
+							branchOf[i] = -1;
+						else
+						{
+							branchOf[i] = (data.getNumFeatureValues(f) > 0) ? (int) value : (value <= thresholds[splitIndex[n]][f] ? 0 : 1);
+							knownWeights[firstChild[n] + branchOf[i]] += data.getWeight(i);
+						}
+					}
+				}
+
+				//The instances with missing value follow the largest branch
+				int[] largestBranch = new int[numNodes];
+				for(int n=0; n<numNodes; n++)
+				{
+					if(splitFeature[n] >= 0)
+					{
+						for(int b=1; b<numBranches(splitFeature[n]); b++)
+						{
+							if(knownWeights[firstChild[n] + b] > knownWeights[firstChild[n] + largestBranch[n]])
+								largestBranch[n] = b;
+						}
+					}
+				}
+
+				for(int k=0; k<numActive; k++)
+				{
+					int i = active[k];
+					int n = nodeOf[i];
+					if(splitFeature[n] >= 0)
+					{
+						int b = (branchOf[i] < 0) ? largestBranch[n] : branchOf[i];
+						childOf[i] = firstChild[n] + b;
+						childDistributions[childOf[i]*numClasses + classes[i]] += data.getWeight(i);
+					}
+					else
+						childOf[i] = -1;
+				}
+
+				//Create the children, and open the non-empty ones for the next level
+				ArrayList<DecisionTree.Node> nextLevel = new ArrayList<DecisionTree.Node>();
+				int[] nextIndex = new int[numChildren];
+				for(int n=0; n<numNodes; n++)
+				{
+					int f = splitFeature[n];
+					if(f < 0)
+						continue;
+
+					DecisionTree.Node parent = level.get(n);
+					DecisionTree.Node[] children = new DecisionTree.Node[numBranches(f)];
+					for(int b=0; b<children.length; b++)
+					{
+						int child = firstChild[n] + b;
+						double[] distribution = new double[numClasses];
+						System.arraycopy(childDistributions, child*numClasses, distribution, 0, numClasses);
+
+						double total = 0;
+						for(int c=0; c<numClasses; c++)
+						{
+							total += distribution[c];
+						}
+
+						if(total > 0)
+						{
+							children[b] = new DecisionTree.Node(distribution, false);
+							nextIndex[child] = nextLevel.size();
+							nextLevel.add(children[b]);
+						}
+						else
+						{
+							children[b] = new DecisionTree.Node(parent.getDistribution(), true);
+							nextIndex[child] = -1;
+						}
+					}
+
+					if(data.getNumFeatureValues(f) > 0)
+						parent.setNominalSplit(f, children);
+					else
+						parent.setNumericSplit(f, thresholds[splitIndex[n]][f], children);
+				}
+
+				int numNextActive = 0;
+				for(int k=0; k<numActive; k++)
+				{
+					int i = active[k];
+					nodeOf[i] = (childOf[i] < 0) ? -1 : nextIndex[childOf[i]];
+					if(nodeOf[i] >= 0)
+						active[numNextActive++] = i;
+				}
+
+				//The instances in leaves are removed from the sorted lists when they are the majority
+				if(2 * numNextActive < numSorted)
+					compact(numNextActive);
+				numActive = numNextActive;
+				level = nextLevel;
+			}
+
+			return new DecisionTree(numClasses, root);
+		}
+
+		/**
+		 * Search the best split of a numeric feature for all the nodes of a level, in a single scan of the sorted instances
+		 *
+		 * @param f Index of the feature
+		 * @param level Nodes of the level
+		 * @param splitIndex Index of each node among the nodes that may be split, or -1 if it can not be split
+		 * @param numSplit Number of nodes that may be split
+		 * @param totals Total weight of each node
+		 * @param counts Number of instances of each node
+		 * @param valid Indicates if the feature has a valid split for each node, to be updated
+		 * @param inAverage Indicates if the feature is used in the average gain of each node, to be updated
+		 * @param infoGains Information gain of the feature for each node, to be updated
+		 * @param gainRatios Gain ratio of the feature for each node, to be updated
+		 * @param thresholds Threshold of the split of the feature for each node, to be updated
+		 */
+		private void scanNumeric(int f, ArrayList<DecisionTree.Node> level, int[] splitIndex, int numSplit, double[] totals, int[] counts,
+				boolean[][] valid, boolean[][] inAverage, double[][] infoGains, double[][] gainRatios, double[][] thresholds)
+		{
+			int offset = f * numInstances;
+
+			//Distribution of the instances with known value
+			double[] known = new double[numSplit * numClasses];
+			int[] knownCounts = new int[numSplit];
+			for(int n=0; n<level.size(); n++)
+			{
+				int s = splitIndex[n];
+				if(s >= 0)
+				{
+					System.arraycopy(level.get(n).getDistribution(), 0, known, s*numClasses, numClasses);
+					knownCounts[s] = counts[n];
+				}
+			}
+			int[] missingF = missing[f];
+			for(int k=0; k<missingF.length; k++)
+			{
+				int i = missingF[k];
+				if(nodeOf[i] >= 0 && splitIndex[nodeOf[i]] >= 0)
+				{
+					int s = splitIndex[nodeOf[i]];
+					known[s*numClasses + classes[i]] -= data.getWeight(i);
+					knownCounts[s]--;
+				}
+			}
+
+			double[] knownTotals = new double[numSplit];
+			double[] minSplits = new double[numSplit];
+			double[] oldEnts = new double[numSplit];
+			boolean[] skip = new boolean[numSplit];
+			for(int s=0; s<numSplit; s++)
+			{
+				for(int c=0; c<numClasses; c++)
+				{
+					knownTotals[s] += known[s*numClasses + c];
+				}
+				minSplits[s] = minSplit(knownTotals[s], numClasses);
+				skip[s] = knownCounts[s] < 2 * minSplits[s] - SMALL;
+				oldEnts[s] = entropy(known, s*numClasses, numClasses, knownTotals[s]);
+			}
+
+			//Scan the instances in order, keeping the distribution of the first branch of each node
+			double[] left = new double[numSplit * numClasses];
+			double[] leftTotals = new double[numSplit];
+			double[] lastValues = new double[numSplit];
+			boolean[] started = new boolean[numSplit];
+			double[] bestGains = new double[numSplit];
+			double[] bestLeftTotals = new double[numSplit];
+			double[] bestLastValues = new double[numSplit];
+			double[] bestNextValues = new double[numSplit];
+			int[] numCandidates = new int[numSplit];
+
+			int[] sortedF = sorted[f];
+			for(int k=0; k<sortedF.length; k++)
+			{
+				int i = sortedF[k];
+				if(nodeOf[i] < 0)
+					continue;
+				int n = nodeOf[i];
+				int s = splitIndex[n];
+				if(s < 0 || skip[s])
+					continue;
+
+				double value = features[offset + i];
+				if(started[s] && lastValues[s] + 1e-5 < value)
+				{
+					double rightTotal = knownTotals[s] - leftTotals[s];
+					if(leftTotals[s] > minSplits[s] - SMALL && rightTotal > minSplits[s] - SMALL)
+					{
+						double newEnt = entropy(left, s*numClasses, numClasses, leftTotals[s]) + rightEntropy(known, left, s*numClasses, rightTotal);
+						double gain = infoGain(oldEnts[s], newEnt, knownTotals[s], totals[n]);
+						if(gain - bestGains[s] > SMALL)
+						{
+							bestGains[s] = gain;
+							bestLeftTotals[s] = leftTotals[s];
+							bestLastValues[s] = lastValues[s];
+							bestNextValues[s] = value;
+						}
+						numCandidates[s]++;
+					}
+				}
+
+				left[s*numClasses + classes[i]] += data.getWeight(i);
+				leftTotals[s] += data.getWeight(i);
+				lastValues[s] = value;
+				started[s] = true;
+			}
+
+			for(int n=0; n<level.size(); n++)
+			{
+				int s = splitIndex[n];
+				if(s < 0 || skip[s] || numCandidates[s] == 0)
+					continue;
+
+				//Correction for the number of candidate thresholds
+				double gain = bestGains[s] - log2(numCandidates[s]) / totals[n];
+				if(gain < SMALL)
+					continue;
+
+				valid[s][f] = true;
+				inAverage[s][f] = true;
+				infoGains[s][f] = gain;
+				gainRatios[s][f] = gainRatio(gain, new double[]{bestLeftTotals[s], knownTotals[s] - bestLeftTotals[s]}, knownTotals[s], totals[n]);
+				thresholds[s][f] = splitPoint(f, bestLastValues[s], bestNextValues[s]);
+			}
+		}
+
+		/**
+		 * Search the split of a nominal feature for all the nodes of a level, in a single scan of the instances
+		 *
+		 * @param f Index of the feature
+		 * @param numActive Number of instances that still may be split
+		 * @param level Nodes of the level
+		 * @param splitIndex Index of each node among the nodes that may be split, or -1 if it can not be split
+		 * @param numSplit Number of nodes that may be split
+		 * @param totals Total weight of each node
+		 * @param valid Indicates if the feature has a valid split for each node, to be updated
+		 * @param inAverage Indicates if the feature is used in the average gain of each node, to be updated
+		 * @param infoGains Information gain of the feature for each node, to be updated
+		 * @param gainRatios Gain ratio of the feature for each node, to be updated
+		 */
+		private void scanNominal(int f, int numActive, ArrayList<DecisionTree.Node> level, int[] splitIndex, int numSplit, double[] totals,
+				boolean[][] valid, boolean[][] inAverage, double[][] infoGains, double[][] gainRatios)
+		{
+			int offset = f * numInstances;
+			int numValues = data.getNumFeatureValues(f);
+
+			//Distribution of each branch of each node
+			double[] branches = new double[numSplit * numValues * numClasses];
+			for(int k=0; k<numActive; k++)
+			{
+				int i = active[k];
+				int s = splitIndex[nodeOf[i]];
+				double value = features[offset + i];
+				if(s >= 0 && !Double.isNaN(value))
+					branches[(s*numValues + (int) value)*numClasses + classes[i]] += data.getWeight(i);
+			}
+
+			double[] known = new double[numClasses];
+			double[] branchTotals = new double[numValues];
+			for(int n=0; n<level.size(); n++)
+			{
+				int s = splitIndex[n];
+				if(s < 0)
+					continue;
+
+				Arrays.fill(known, 0);
+				double knownTotal = 0, newEnt = 0;
+				int numLarge = 0;
+				for(int v=0; v<numValues; v++)
+				{
+					int branch = (s*numValues + v)*numClasses;
+					branchTotals[v] = 0;
+					for(int c=0; c<numClasses; c++)
+					{
+						branchTotals[v] += branches[branch + c];
+						known[c] += branches[branch + c];
+					}
+					knownTotal += branchTotals[v];
+					newEnt += entropy(branches, branch, numClasses, branchTotals[v]);
+					if(branchTotals[v] > minNumObj - SMALL)
+						numLarge++;
+				}
+
+				//At least two branches must have the minimum number of instances
+				if(numLarge < 2)
+					continue;
+
+				valid[s][f] = true;
+				inAverage[s][f] = multiVal || numValues < 0.3 * numInstances;
+				infoGains[s][f] = infoGain(entropy(known, 0, numClasses, knownTotal), newEnt, knownTotal, totals[n]);
+				gainRatios[s][f] = gainRatio(infoGains[s][f], branchTotals, knownTotal, totals[n]);
+			}
+		}
+
+		/**
+		 * Get the entropy of the second branch of a numeric split, multiplied by its weight
+		 *
+		 * @param known Distribution of the instances with known value
+		 * @param left Distribution of the first branch
+		 * @param offset Offset of the node in the distributions
+		 * @param rightTotal Weight of the second branch
+		 *
+		 * @return Entropy multiplied by the weight, in bits
+		 */
+		private double rightEntropy(double[] known, double[] left, int offset, double rightTotal)
+		{
+			double sum = 0;
+			for(int c=0; c<numClasses; c++)
+			{
+				sum += lnFunc(known[offset + c] - left[offset + c]);
+			}
+			return (lnFunc(rightTotal) - sum) / Math.log(2);
+		}
+
+		/**
+		 * Get the threshold of a numeric split, as J48 does: the greatest value in the dataset not greater than the midpoint
+		 *
+		 * @param f Index of the feature
+		 * @param lastValue Greatest value of the first branch in the node
+		 * @param nextValue Smallest value of the second branch in the node
+		 *
+		 * @return Threshold
+		 */
+		private double splitPoint(int f, double lastValue, double nextValue)
+		{
+			double splitPoint = (lastValue + nextValue) / 2;
+			if(splitPoint == nextValue)
+				return lastValue;
+
+			//Binary search in the whole dataset
+			int offset = f * numInstances;
+			int[] sortedF = allSorted[f];
+			int low = 0, high = sortedF.length - 1;
+			double threshold = lastValue;
+			while(low <= high)
+			{
+				int middle = (low + high) >>> 1;
+				double value = features[offset + sortedF[middle]];
+				if(value <= splitPoint)
+				{
+					threshold = value;
+					low = middle + 1;
+				}
+				else
+					high = middle - 1;
+			}
+			return threshold;
+		}
+
+		/**
+		 * Get the number of branches of a split
+		 *
+		 * @param f Index of the feature
+		 *
+		 * @return Number of branches
+		 */
+		private int numBranches(int f)
+		{
+			return (data.getNumFeatureValues(f) > 0) ? data.getNumFeatureValues(f) : 2;
+		}
+
+		/**
+		 * Remove the instances in leaves from the sorted lists scanned in each level
+		 *
+		 * @param numNextActive Number of instances that still may be split
+		 */
+		private void compact(int numNextActive)
+		{
+			numSorted = numNextActive;
+			int[][] nextSorted = new int[sorted.length][];
+			int[][] nextMissing = new int[missing.length][];
+			for(int f=0; f<sorted.length; f++)
+			{
+				if(sorted[f] != null)
+				{
+					nextSorted[f] = filter(sorted[f]);
+					nextMissing[f] = filter(missing[f]);
+				}
+			}
+			sorted = nextSorted;
+			missing = nextMissing;
+		}
+
+		/**
+		 * Keep the indices of the instances that still may be split, in the same order
+		 *
+		 * @param indices Indices of instances
+		 *
+		 * @return Filtered indices
+		 */
+		private int[] filter(int[] indices)
+		{
+			int n = 0;
+			for(int k=0; k<indices.length; k++)
+			{
+				if(nodeOf[indices[k]] >= 0)
+					n++;
+			}
+			int[] filtered = new int[n];
+			for(int k=0, m=0; k<indices.length; k++)
+			{
+				if(nodeOf[indices[k]] >= 0)
+					filtered[m++] = indices[k];
+			}
+			return filtered;
+		}
+	}
+}
@@ -11,6 +11,7 @@
 
 package eme.mut;
 
+import eme.EnsembleIndividual;
 import net.sf.jclec.binarray.BinArrayIndividual;
 import net.sf.jclec.binarray.BinArrayMutator;
 
@@ -78,6 +79,10 @@ public class IntraModelMutator extends BinArrayMutator
 		byte [] mgenome = new byte[gl];
 		System.arraycopy(mutant.getGenotype(), 0, mgenome, 0, gl);
 		
+		// Models whose labels change
+		int [] changed = new int[gl/numberLabels];
+		int nChanged = 0;
+		
 		int mp1, mp2;
 		for (int i = 0; i < (gl/numberLabels); i++) 
 		{
@@ -90,9 +95,21 @@ public class IntraModelMutator extends BinArrayMutator
 			byte aux = mgenome[mp1];
 			mgenome[mp1] = mgenome[mp2];
 			mgenome[mp2] = aux;
+			
+			if(mgenome[mp1] != mgenome[mp2])
+			{
+				changed[nChanged] = i;
+				nChanged++;
+			}
 		}
 		
-		sonsBuffer.add(species.createIndividual(mgenome));
+		BinArrayIndividual son = species.createIndividual(mgenome);
+		
+		// Obtain the key of the son only updating the mutated models
+		if((son instanceof EnsembleIndividual) && (mutant instanceof EnsembleIndividual))
+			((EnsembleIndividual) son).inheritEnsembleKey((EnsembleIndividual) mutant, null, changed, nChanged, numberLabels);
+		
+		sonsBuffer.add(son);
 	}
 	
 	/**
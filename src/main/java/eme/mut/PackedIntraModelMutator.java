@@ -0,0 +1,132 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.mut;
+
+import eme.LabelSubset;
+import eme.PackedEnsembleIndividual;
+import eme.PackedEnsembleIndividualSpecies;
+
+/**
+ * Class implementing the basic mutator for individuals with packed genotype.
+ * Swapping two labels of a base classifier is equivalent to flip both bits when they are different.
+ */
+public class PackedIntraModelMutator extends IntraModelMutator
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -3006917360618539254L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Species of the individuals */
+	protected transient PackedEnsembleIndividualSpecies packedSpecies;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedIntraModelMutator()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void prepareMutation()
+	{
+		packedSpecies = (PackedEnsembleIndividualSpecies) context.getSpecies();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void mutateNext()
+	{
+		// Individual to be mutated
+		PackedEnsembleIndividual mutant = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter);
+		// Number of words of each model
+		int numWords = LabelSubset.numWords(numberLabels);
+		// Creates mutant genotype
+		long [] mgenome = mutant.getGenotype().clone();
+
+		// Models whose labels change
+		int [] changed = new int[mgenome.length/numWords];
+		int nChanged = 0;
+
+		int mp1, mp2;
+		for (int i = 0; i < (mgenome.length/numWords); i++)
+		{
+			mp1 = randgen.choose(0, numberLabels);
+			do{
+				mp2 = randgen.choose(0, numberLabels);
+			}while(mp1==mp2);
+
+			// Swap
+			if(PackedEnsembleIndividual.getBit(mgenome, numWords, i, mp1) != PackedEnsembleIndividual.getBit(mgenome, numWords, i, mp2))
+			{
+				PackedEnsembleIndividual.flipBit(mgenome, numWords, i, mp1);
+				PackedEnsembleIndividual.flipBit(mgenome, numWords, i, mp2);
+				changed[nChanged] = i;
+				nChanged++;
+			}
+		}
+
+		PackedEnsembleIndividual son = packedSpecies.createIndividual(mgenome);
+
+		// Obtain the key of the son only updating the mutated models
+		son.inheritEnsembleKey(mutant, null, changed, nChanged, numberLabels);
+
+		sonsBuffer.add(son);
+	}
+
+	/**
+	 * Check if two mutators are of the same type
+	 */
+	public boolean equals(Object other)
+	{
+		if (other instanceof PackedIntraModelMutator) {
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * All the objects of this type are equal, so all of them have the same hash code.
+	 */
+	@Override
+	public int hashCode()
+	{
+		return PackedIntraModelMutator.class.getName().hashCode();
+	}
+}
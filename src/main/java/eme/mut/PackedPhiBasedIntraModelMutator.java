@@ -0,0 +1,157 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.mut;
+
+import eme.LabelSubset;
+import eme.PackedEnsembleIndividual;
+import eme.PackedEnsembleIndividualSpecies;
+
+/**
+ * Class implementing the phi-based mutator for individuals with packed genotype
+ */
+public class PackedPhiBasedIntraModelMutator extends PhiBasedIntraModelMutator
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 2231648617059927712L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Species of the individuals */
+	protected transient PackedEnsembleIndividualSpecies packedSpecies;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedPhiBasedIntraModelMutator()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void prepareMutation()
+	{
+		packedSpecies = (PackedEnsembleIndividualSpecies) context.getSpecies();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void mutateNext()
+	{
+		// Individual to be mutated
+		PackedEnsembleIndividual mutant = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter);
+		// Number of words of each model
+		int numWords = LabelSubset.numWords(numberLabels);
+		// Creates mutant genotype
+		long [] mgenome = mutant.getGenotype().clone();
+
+		/*
+		 * The 'mut' array includes the sum of Phi correlation values of each '0' bit with all '1' bits of the base classifier
+		 * To that sum, we add 0.1, so the not correlated labels will have a little chance to mutate
+		 */
+		double [] mut = new double[numberLabels];
+		double [] acc = new double[numberLabels];
+		int mp1;
+		double rand;
+
+		// Models whose labels change
+		int [] changed = new int[mgenome.length/numWords];
+		int nChanged = 0;
+
+		//For each base classifier
+		for (int i = 0; i < (mgenome.length/numWords); i++)
+		{
+			//Choose a '1'
+			do{
+				mp1 = randgen.choose(0, numberLabels);
+			}while(!PackedEnsembleIndividual.getBit(mgenome, numWords, i, mp1));
+
+			//For each '0', we add phi[0_position][1_position] to mut[0_position]
+			for(int j=0; j<numberLabels; j++)
+			{
+				if(!PackedEnsembleIndividual.getBit(mgenome, numWords, i, j))
+				{
+					mut[j] = 0.1;
+					//Only the '1' bits are visited, iterating over the words
+					for(int w=0; w<numWords; w++)
+					{
+						long word = mgenome[i*numWords + w];
+						while(word != 0)
+						{
+							int k = (w << 6) + Long.numberOfTrailingZeros(word);
+							word &= word - 1;
+							if((k != mp1) && !Double.isNaN(phiMatrix[j][k]))
+								mut[j] = mut[j] + Math.abs(phiMatrix[j][k]);
+						}
+					}
+				}
+				else
+					mut[j] = 0;
+			}
+
+			//Accumulate values
+			acc[0] = mut[0];
+			for(int j=1; j<numberLabels; j++)
+			{
+				acc[j] = acc[j-1] + mut[j];
+			}
+
+			//Select the bit to mutate
+			rand = randgen.uniform(0, acc[numberLabels-1]);
+
+			for(int j=0; j<numberLabels; j++)
+			{
+				if(acc[j] >= rand)
+				{
+					//Mutate
+					PackedEnsembleIndividual.flipBit(mgenome, numWords, i, mp1);
+					if(!PackedEnsembleIndividual.getBit(mgenome, numWords, i, j))
+						PackedEnsembleIndividual.flipBit(mgenome, numWords, i, j);
+					if(j != mp1)
+					{
+						changed[nChanged] = i;
+						nChanged++;
+					}
+					break;
+				}
+			}
+		}
+
+		PackedEnsembleIndividual son = packedSpecies.createIndividual(mgenome);
+
+		// Obtain the key of the son only updating the mutated models
+		son.inheritEnsembleKey(mutant, null, changed, nChanged, numberLabels);
+
+		sonsBuffer.add(son);
+	}
+}
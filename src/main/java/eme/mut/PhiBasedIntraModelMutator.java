@@ -11,6 +11,7 @@
 
 package eme.mut;
 
+import eme.EnsembleIndividual;
 import net.sf.jclec.binarray.BinArrayIndividual;
 
 /**
@@ -89,6 +90,10 @@ public class PhiBasedIntraModelMutator extends IntraModelMutator
 		double [] acc = new double[numberLabels];
 		double rand;
 		
+		// Models whose labels change
+		int [] changed = new int[gl/numberLabels];
+		int nChanged = 0;
+		
 		for (int i = 0; i < (gl/numberLabels); i++) 
 		{
 			//Choose a '1'
@@ -132,13 +137,24 @@ public class PhiBasedIntraModelMutator extends IntraModelMutator
 					//Mutate
 					mgenome[mp1] = 0;
 					mgenome[j + i*numberLabels] = 1;
+					if(j + i*numberLabels != mp1)
+					{
+						changed[nChanged] = i;
+						nChanged++;
+					}
 					break;
 				}
 			}
 			
 		}
 		
-		sonsBuffer.add(species.createIndividual(mgenome));
+		BinArrayIndividual son = species.createIndividual(mgenome);
+		
+		// Obtain the key of the son only updating the mutated models
+		if((son instanceof EnsembleIndividual) && (mutant instanceof EnsembleIndividual))
+			((EnsembleIndividual) son).inheritEnsembleKey((EnsembleIndividual) mutant, null, changed, nChanged, numberLabels);
+		
+		sonsBuffer.add(son);
 	}
 
 }
@@ -11,6 +11,8 @@
 
 package eme.rec;
 
+import eme.EnsembleIndividual;
+
 import net.sf.jclec.binarray.BinArrayIndividual;
 import net.sf.jclec.binarray.BinArrayRecombinator;
 
@@ -37,7 +39,7 @@ public class MultiModelCrossover extends BinArrayRecombinator
 	/**
 	 * Number of labels
 	 */
-	private int numberLabels;
+	protected int numberLabels;
 	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -123,8 +125,25 @@ public class MultiModelCrossover extends BinArrayRecombinator
 			}
 		}
 		
+		// Exchanged models
+		int [] exchanged = new int[nModels];
+		for(int i = 0; i < nModels; i++)
+		{
+			exchanged[i] = pModel + i;
+		}
+		
 		// Put sons in buffer
-		sonsBuffer.add(species.createIndividual(s0_genome));
-		sonsBuffer.add(species.createIndividual(s1_genome));
+		BinArrayIndividual s0 = species.createIndividual(s0_genome);
+		BinArrayIndividual s1 = species.createIndividual(s1_genome);
+		
+		// Obtain the keys of the sons only updating the exchanged models
+		if((s0 instanceof EnsembleIndividual) && (p0 instanceof EnsembleIndividual) && (p1 instanceof EnsembleIndividual))
+		{
+			((EnsembleIndividual) s0).inheritEnsembleKey((EnsembleIndividual) p0, (EnsembleIndividual) p1, exchanged, nModels, numberLabels);
+			((EnsembleIndividual) s1).inheritEnsembleKey((EnsembleIndividual) p1, (EnsembleIndividual) p0, exchanged, nModels, numberLabels);
+		}
+		
+		sonsBuffer.add(s0);
+		sonsBuffer.add(s1);
 	}
 }
\ No newline at end of file
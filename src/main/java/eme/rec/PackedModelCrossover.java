@@ -0,0 +1,132 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.rec;
+
+import eme.LabelSubset;
+import eme.PackedEnsembleIndividual;
+import eme.PackedEnsembleIndividualSpecies;
+
+/**
+ * Class implementing the model crossover for individuals with packed genotype
+ */
+public class PackedModelCrossover extends ModelCrossover
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = -6172690433286128095L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Species of the individuals */
+	protected transient PackedEnsembleIndividualSpecies packedSpecies;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedModelCrossover()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof PackedModelCrossover) {
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * All the objects of this type are equal, so all of them have the same hash code.
+	 */
+	@Override
+	public int hashCode()
+	{
+		return PackedModelCrossover.class.getName().hashCode();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void prepareRecombination()
+	{
+		packedSpecies = (PackedEnsembleIndividualSpecies) context.getSpecies();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void recombineNext()
+	{
+		// Parents conversion
+		PackedEnsembleIndividual p0 = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter);
+		PackedEnsembleIndividual p1 = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter+1);
+		// Parents genotypes
+		long [] p0_genome = p0.getGenotype();
+		long [] p1_genome = p1.getGenotype();
+		int numWords = LabelSubset.numWords(numberLabels);
+		int numModels = p0_genome.length / numWords;
+		// Sons genotypes are copies of the parents
+		long [] s0_genome = p0_genome.clone();
+		long [] s1_genome = p1_genome.clone();
+		// Taking a crossover point
+		int cp1, cp2;
+		cp1 = randgen.choose(0, numModels);
+		cp2 = randgen.choose(0, numModels);
+
+		// First son receives the model cp1 of the second parent
+		System.arraycopy(p1_genome, cp1*numWords,   s0_genome, cp1*numWords,  numWords);
+		// Second son receives the model cp2 of the first parent
+		System.arraycopy(p0_genome, cp2*numWords,   s1_genome, cp2*numWords,  numWords);
+
+		// Put sons in buffer
+		PackedEnsembleIndividual s0 = packedSpecies.createIndividual(s0_genome);
+		PackedEnsembleIndividual s1 = packedSpecies.createIndividual(s1_genome);
+
+		// Obtain the keys of the sons only updating the exchanged models
+		s0.inheritEnsembleKey(p0, p1, new int[]{cp1}, 1, numberLabels);
+		s1.inheritEnsembleKey(p1, p0, new int[]{cp2}, 1, numberLabels);
+
+		sonsBuffer.add(s0);
+		sonsBuffer.add(s1);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.rec;
+
+import eme.LabelSubset;
+import eme.PackedEnsembleIndividual;
+import eme.PackedEnsembleIndividualSpecies;
+
+/**
+ * Class implementing the multi-model crossover for individuals with packed genotype
+ */
+public class PackedMultiModelCrossover extends MultiModelCrossover
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 1395816602934125528L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Species of the individuals */
+	protected transient PackedEnsembleIndividualSpecies packedSpecies;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedMultiModelCrossover()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof PackedMultiModelCrossover) {
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * All the objects of this type are equal, so all of them have the same hash code.
+	 */
+	@Override
+	public int hashCode()
+	{
+		return PackedMultiModelCrossover.class.getName().hashCode();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void prepareRecombination()
+	{
+		packedSpecies = (PackedEnsembleIndividualSpecies) context.getSpecies();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void recombineNext()
+	{
+		// Parents conversion
+		PackedEnsembleIndividual p0 = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter);
+		PackedEnsembleIndividual p1 = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter+1);
+		// Parents genotypes
+		long [] p0_genome = p0.getGenotype();
+		long [] p1_genome = p1.getGenotype();
+		int numWords = LabelSubset.numWords(numberLabels);
+		int numModels = p0_genome.length / numWords;
+		// Sons genotypes are copies of the parents
+		long [] s0_genome = p0_genome.clone();
+		long [] s1_genome = p1_genome.clone();
+		// Taking a number of models
+		int nModels;
+		nModels = randgen.choose(0, numModels-1);
+
+		// Taking a origin point
+		int pModel;
+		do{
+			pModel = randgen.choose(0, numModels-1);
+		}while((pModel+nModels)>numModels-1);
+
+		// Exchange the consecutive models starting at the origin point
+		System.arraycopy(p1_genome, pModel*numWords,   s0_genome, pModel*numWords,  nModels*numWords);
+		System.arraycopy(p0_genome, pModel*numWords,   s1_genome, pModel*numWords,  nModels*numWords);
+
+		// Exchanged models
+		int [] exchanged = new int[nModels];
+		for(int i = 0; i < nModels; i++)
+		{
+			exchanged[i] = pModel + i;
+		}
+
+		// Put sons in buffer
+		PackedEnsembleIndividual s0 = packedSpecies.createIndividual(s0_genome);
+		PackedEnsembleIndividual s1 = packedSpecies.createIndividual(s1_genome);
+
+		// Obtain the keys of the sons only updating the exchanged models
+		s0.inheritEnsembleKey(p0, p1, exchanged, nModels, numberLabels);
+		s1.inheritEnsembleKey(p1, p0, exchanged, nModels, numberLabels);
+
+		sonsBuffer.add(s0);
+		sonsBuffer.add(s1);
+	}
+}
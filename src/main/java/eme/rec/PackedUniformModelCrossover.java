@@ -0,0 +1,137 @@
+/*
+ * This file is part of EME algorithm.
+ *
+ * (c)  Jose Maria Moyano Murillo <jmoyano@uco.es>
+ *      Eva Lucrecia Gibaja Galindo <egibaja@uco.es>
+ *      Sebastian Ventura Soto <sventura@uco.es>
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ */
+
+package eme.rec;
+
+import eme.LabelSubset;
+import eme.PackedEnsembleIndividual;
+import eme.PackedEnsembleIndividualSpecies;
+
+import org.apache.commons.lang.builder.HashCodeBuilder;
+
+/**
+ * Class implementing the uniform model crossover for individuals with packed genotype
+ */
+public class PackedUniformModelCrossover extends UniformModelCrossover
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Serialization constant
+	 */
+	private static final long serialVersionUID = 5873349209571536415L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 *  Species of the individuals */
+	protected transient PackedEnsembleIndividualSpecies packedSpecies;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+	public PackedUniformModelCrossover()
+	{
+		super();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		return (other instanceof PackedUniformModelCrossover) && super.equals(other);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode()
+	{
+		return new HashCodeBuilder().append(getLocusCrossoverProb()).toHashCode();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------- Protected methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void prepareRecombination()
+	{
+		packedSpecies = (PackedEnsembleIndividualSpecies) context.getSpecies();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void recombineNext()
+	{
+		// Parents conversion
+		PackedEnsembleIndividual p0 = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter);
+		PackedEnsembleIndividual p1 = (PackedEnsembleIndividual) parentsBuffer.get(parentsCounter+1);
+		// Parents genotypes
+		long [] p0_genome = p0.getGenotype();
+		long [] p1_genome = p1.getGenotype();
+		// Genotype length and words of each model
+		int gl = p0_genome.length;
+		int numWords = LabelSubset.numWords(numberLabels);
+		// Creating sons genotypes
+		long [] s0_genome = new long[gl];
+		long [] s1_genome = new long[gl];
+		// Exchanged models
+		int [] exchanged = new int[gl/numWords];
+		int nExchanged = 0;
+
+		// Building sons
+		for (int i=0; i<(gl/numWords); i++)
+		{
+			if (randgen.coin(locusCrossoverProb)) {
+				exchanged[nExchanged] = i;
+				nExchanged++;
+				System.arraycopy(p1_genome, i*numWords,   s0_genome, i*numWords,  numWords);
+				System.arraycopy(p0_genome, i*numWords,   s1_genome, i*numWords,  numWords);
+			}
+			else {
+				System.arraycopy(p0_genome, i*numWords,   s0_genome, i*numWords,  numWords);
+				System.arraycopy(p1_genome, i*numWords,   s1_genome, i*numWords,  numWords);
+			}
+		}
+
+		// Put sons in son buffer
+		PackedEnsembleIndividual s0 = packedSpecies.createIndividual(s0_genome);
+		PackedEnsembleIndividual s1 = packedSpecies.createIndividual(s1_genome);
+
+		// Obtain the keys of the sons only updating the exchanged models
+		s0.inheritEnsembleKey(p0, p1, exchanged, nExchanged, numberLabels);
+		s1.inheritEnsembleKey(p1, p0, exchanged, nExchanged, numberLabels);
+
+		sonsBuffer.add(s0);
+		sonsBuffer.add(s1);
+	}
+}
@@ -13,6 +13,8 @@ package eme.rec;
 
 import net.sf.jclec.IConfigure;
 
+import eme.EnsembleIndividual;
+
 import net.sf.jclec.binarray.BinArrayIndividual;
 import net.sf.jclec.binarray.BinArrayRecombinator;
 
@@ -43,12 +45,12 @@ public class UniformModelCrossover extends BinArrayRecombinator implements IConf
 	/**
 	 * Crossover probability for each of the models inside the individual
 	 */
-	private double locusCrossoverProb;
+	protected double locusCrossoverProb;
 	
 	/**
 	 * Number of labels
 	 */
-	private int numberLabels;
+	protected int numberLabels;
 	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -146,10 +148,16 @@ public class UniformModelCrossover extends BinArrayRecombinator implements IConf
 		// Creating sons genotypes
 		byte [] s0_genome = new byte[gl];
 		byte [] s1_genome = new byte[gl];
+		// Exchanged models
+		int [] exchanged = new int[gl/numberLabels];
+		int nExchanged = 0;
+		
 		// Building sons
 		for (int i=0; i<(gl/numberLabels); i++) 
 		{
 			if (randgen.coin(locusCrossoverProb)) {
+				exchanged[nExchanged] = i;
+				nExchanged++;
 				System.arraycopy(p1_genome, i*numberLabels,   s0_genome, i*numberLabels,  numberLabels);
 				System.arraycopy(p0_genome, i*numberLabels,   s1_genome, i*numberLabels,  numberLabels);
 			}
@@ -160,7 +168,17 @@ public class UniformModelCrossover extends BinArrayRecombinator implements IConf
 		}
 		
 		// Put sons in son buffer
-		sonsBuffer.add(species.createIndividual(s0_genome));
-		sonsBuffer.add(species.createIndividual(s1_genome));	
+		BinArrayIndividual s0 = species.createIndividual(s0_genome);
+		BinArrayIndividual s1 = species.createIndividual(s1_genome);
+		
+		// Obtain the keys of the sons only updating the exchanged models
+		if((s0 instanceof EnsembleIndividual) && (p0 instanceof EnsembleIndividual) && (p1 instanceof EnsembleIndividual))
+		{
+			((EnsembleIndividual) s0).inheritEnsembleKey((EnsembleIndividual) p0, (EnsembleIndividual) p1, exchanged, nExchanged, numberLabels);
+			((EnsembleIndividual) s1).inheritEnsembleKey((EnsembleIndividual) p1, (EnsembleIndividual) p0, exchanged, nExchanged, numberLabels);
+		}
+		
+		sonsBuffer.add(s0);
+		sonsBuffer.add(s1);
 	}
 }
\ No newline at end of file